@@ -0,0 +1,95 @@
+package it.polito.extgol.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import it.polito.extgol.Board;
+import it.polito.extgol.Cell;
+import it.polito.extgol.CellMood;
+import it.polito.extgol.CellType;
+import it.polito.extgol.Coord;
+import it.polito.extgol.EventType;
+import it.polito.extgol.Game;
+import it.polito.extgol.Generation;
+
+/**
+ * Reproducible games shared by the benchmarks. The same seed always yields the
+ * same board, so numbers from different runs compare the code, not the input.
+ */
+final class BenchmarkGames {
+
+    /** Seed used by every benchmark board. */
+    static final long SEED = 42L;
+
+    /** Events triggered by the "with events" benchmarks, one of each kind. */
+    static final Map<Integer, EventType> EVENTS = Map.of(
+        1, EventType.BLOOD_MOON,
+        3, EventType.BLOOM,
+        5, EventType.FAMINE,
+        7, EventType.SANCTUARY,
+        9, EventType.CATACLYSM);
+
+    private BenchmarkGames() {} // utility class need not to be instantiated
+
+    /**
+     * Builds a square extended game with random cell types, moods, energies and
+     * tile modifiers, and the given percentage of initially alive cells.
+     *
+     * @param size    the side of the board
+     * @param density the percentage of alive cells, in [0, 100]
+     * @return a new Game with its initial generation
+     */
+    static Game randomGame(int size, int density) {
+        Random rnd = new Random(SEED);
+        Game game = Game.createExtended("bench-" + size + "-" + density, size, size);
+        Board board = game.getBoard();
+        CellType[] types = CellType.values();
+        CellMood[] moods = CellMood.values();
+
+        List<Coord> alive = new ArrayList<>();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                Coord c = new Coord(x, y);
+                Cell cell = board.getTile(c).getCell();
+                cell.setType(types[rnd.nextInt(types.length)]);
+                cell.setMood(moods[rnd.nextInt(moods.length)]);
+                cell.setLifePoints(rnd.nextInt(4));
+                if (rnd.nextInt(10) == 0) {
+                    Board.setInteractableTile(board, c, rnd.nextInt(3) - 1);
+                }
+                if (rnd.nextInt(100) < density) {
+                    alive.add(c);
+                }
+            }
+        }
+        Generation.createInitial(game, board, alive);
+        return game;
+    }
+
+    /**
+     * Builds a square classic game with the given percentage of initially alive
+     * cells, drawn from the same seed. Its board evolves as plain Conway's Game
+     * of Life, so it is supported by HashLifeEngine.
+     *
+     * @param size    the side of the board
+     * @param density the percentage of alive cells, in [0, 100]
+     * @return a new Game with its initial generation
+     */
+    static Game conwayGame(int size, int density) {
+        Random rnd = new Random(SEED);
+        Game game = Game.create("conway-" + size + "-" + density, size, size);
+
+        List<Coord> alive = new ArrayList<>();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (rnd.nextInt(100) < density) {
+                    alive.add(new Coord(x, y));
+                }
+            }
+        }
+        Generation.createInitial(game, game.getBoard(), alive);
+        return game;
+    }
+}
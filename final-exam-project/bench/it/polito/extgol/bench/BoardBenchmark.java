@@ -0,0 +1,89 @@
+package it.polito.extgol.bench;
+
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import it.polito.extgol.Board;
+import it.polito.extgol.Cell;
+import it.polito.extgol.EngineMode;
+import it.polito.extgol.ExtendedGameOfLife;
+import it.polito.extgol.Game;
+import it.polito.extgol.Generation;
+import it.polito.extgol.Tile;
+
+/**
+ * Cost of the Board neighborhood lookups, of Generation snapshots and of the
+ * Board analytics, on a game with a recorded history.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    /** Generations recorded before measuring. */
+    private static final int STEPS = 20;
+
+    /** Cells requested from topEnergyCells. */
+    private static final int TOP_CELLS = 10;
+
+    @Param({ "16", "64", "128" })
+    public int size;
+
+    @Param({ "10", "40" })
+    public int density;
+
+    private Board board;
+    private Generation last;
+
+    /**
+     * Builds the game and its history once: these benchmarks only read it,
+     * apart from snapCells, which rewrites the same snapshot every time.
+     */
+    @Setup
+    public void setUp() {
+        Game game = BenchmarkGames.randomGame(size, density);
+        new ExtendedGameOfLife(EngineMode.GRID).run(game, STEPS, BenchmarkGames.EVENTS);
+        board = game.getBoard();
+        last = game.getGenerations().get(STEPS);
+    }
+
+    @Benchmark
+    public void getAdjacentTiles(Blackhole bh) {
+        for (Tile tile : board.getTiles()) {
+            bh.consume(board.getAdjacentTiles(tile));
+        }
+    }
+
+    @Benchmark
+    public Map<Cell, Boolean> snapCells() {
+        return last.snapCells();
+    }
+
+    @Benchmark
+    public List<Cell> topEnergyCells() {
+        return board.topEnergyCells(last, TOP_CELLS);
+    }
+
+    @Benchmark
+    public Map<Integer, IntSummaryStatistics> getTimeSeriesStats() {
+        return board.getTimeSeriesStats(0, STEPS);
+    }
+}
@@ -0,0 +1,68 @@
+package it.polito.extgol.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.polito.extgol.ExtendedGameOfLife;
+import it.polito.extgol.Generation;
+
+/**
+ * Cost of a single ExtendedGameOfLife.evolve(...) call on the entity model,
+ * across board sizes and densities.
+ *
+ * evolve appends to the history and changes the cells, so every call needs a
+ * game of its own. A pool of BATCH games is built before each iteration and
+ * the iteration times one call on each of them, so building the boards is
+ * neither measured nor repeated between two calls. Scores are per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, batchSize = EvolveBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = EvolveBenchmark.BATCH)
+@OperationsPerInvocation(EvolveBenchmark.BATCH)
+@Fork(1)
+public class EvolveBenchmark {
+
+    /** Games evolved by each iteration, one per benchmark call. */
+    static final int BATCH = 50;
+
+    @Param({ "16", "64", "128" })
+    public int size;
+
+    @Param({ "10", "40" })
+    public int density;
+
+    private final ExtendedGameOfLife life = new ExtendedGameOfLife();
+    private final Generation[] starts = new Generation[BATCH];
+    private int next;
+
+    /**
+     * Builds the games evolved by the next iteration, all from the same state.
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        for (int i = 0; i < BATCH; i++) {
+            starts[i] = BenchmarkGames.randomGame(size, density).getStart();
+        }
+        next = 0;
+    }
+
+    @Benchmark
+    public Generation evolve() {
+        return life.evolve(starts[next++]);
+    }
+}
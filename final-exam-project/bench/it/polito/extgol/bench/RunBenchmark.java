@@ -0,0 +1,85 @@
+package it.polito.extgol.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.polito.extgol.EngineMode;
+import it.polito.extgol.ExtendedGameOfLife;
+import it.polito.extgol.Game;
+
+/**
+ * Cost of ExtendedGameOfLife.run(...) over a fixed number of steps, with and
+ * without events, for every engine mode.
+ *
+ * A run appends to the history and changes the cells, so every call needs a
+ * game of its own. A pool of BATCH games is built before each iteration and
+ * the iteration times one run on each of them. Scores are per call.
+ *
+ * HASHLIFE only takes over plain Conway boards, so it runs on classic games of
+ * the same size and density; with events it falls back to GRID.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = RunBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = RunBenchmark.BATCH)
+@OperationsPerInvocation(RunBenchmark.BATCH)
+@Fork(1)
+public class RunBenchmark {
+
+    /** Generations computed by each benchmark call. */
+    private static final int STEPS = 10;
+
+    /** Games run by each iteration, one per benchmark call. */
+    static final int BATCH = 10;
+
+    @Param({ "16", "64", "128" })
+    public int size;
+
+    @Param({ "10", "40" })
+    public int density;
+
+    @Param({ "ENTITY", "GRID", "PARALLEL", "HASHLIFE" })
+    public EngineMode engine;
+
+    private ExtendedGameOfLife life;
+    private final Game[] games = new Game[BATCH];
+    private int next;
+
+    /**
+     * Builds the games run by the next iteration, all from the same state.
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        life = new ExtendedGameOfLife(engine);
+        for (int i = 0; i < BATCH; i++) {
+            games[i] = engine == EngineMode.HASHLIFE
+                    ? BenchmarkGames.conwayGame(size, density)
+                    : BenchmarkGames.randomGame(size, density);
+        }
+        next = 0;
+    }
+
+    @Benchmark
+    public Game run() {
+        return life.run(games[next++], STEPS);
+    }
+
+    @Benchmark
+    public Game runWithEvents() {
+        return life.run(games[next++], STEPS, BenchmarkGames.EVENTS);
+    }
+}
@@ -0,0 +1,138 @@
+package it.polito.extgol;
+
+import java.util.IntSummaryStatistics;
+
+/**
+ * Summary statistics of one experiment run by the BatchRunner, or the failure
+ * that stopped it.
+ */
+public class BatchResult {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final String name;
+    private final int steps;
+    private final IntSummaryStatistics aliveStats;
+    private final int finalAlive;
+    private final long finalEnergy;
+    private final int extinctAt;
+    private final long elapsedNanos;
+    private final RuntimeException failure;
+
+    private BatchResult(String name, int steps, IntSummaryStatistics aliveStats, int finalAlive,
+                        long finalEnergy, int extinctAt, long elapsedNanos, RuntimeException failure) {
+        this.name = name;
+        this.steps = steps;
+        this.aliveStats = aliveStats;
+        this.finalAlive = finalAlive;
+        this.finalEnergy = finalEnergy;
+        this.extinctAt = extinctAt;
+        this.elapsedNanos = elapsedNanos;
+        this.failure = failure;
+    }
+
+    /**
+     * Creates the result of a completed experiment.
+     *
+     * @param name         the name of the spec
+     * @param steps        the number of generations simulated
+     * @param aliveStats   the alive cell counts of every generation, the initial one included
+     * @param finalAlive   the number of alive cells in the last generation
+     * @param finalEnergy  the total lifePoints of the alive cells in the last generation
+     * @param extinctAt    the first step with no alive cell, or -1 if none
+     * @param elapsedNanos the time spent on the experiment, in nanoseconds
+     * @return the result
+     */
+    static BatchResult completed(String name, int steps, IntSummaryStatistics aliveStats, int finalAlive,
+                                 long finalEnergy, int extinctAt, long elapsedNanos) {
+        return new BatchResult(name, steps, aliveStats, finalAlive, finalEnergy, extinctAt, elapsedNanos, null);
+    }
+
+    /**
+     * Creates the result of an experiment that could not complete.
+     *
+     * @param name         the name of the spec
+     * @param failure      the exception that stopped it
+     * @param elapsedNanos the time spent before the failure, in nanoseconds
+     * @return the result
+     */
+    static BatchResult failed(String name, RuntimeException failure, long elapsedNanos) {
+        return new BatchResult(name, 0, new IntSummaryStatistics(), 0, 0, -1, elapsedNanos, failure);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Tells whether the experiment ran all its steps.
+     *
+     * @return true unless the experiment failed
+     */
+    public boolean isCompleted() {
+        return failure == null;
+    }
+
+    /**
+     * Returns the exception that stopped the experiment.
+     *
+     * @return the failure, or null if the experiment completed
+     */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    public int getSteps() {
+        return steps;
+    }
+
+    /**
+     * Returns the statistics of the alive cell counts over every generation,
+     * the initial one included.
+     *
+     * @return the min, max, average and count of alive cells per generation
+     */
+    public IntSummaryStatistics getAliveStats() {
+        return aliveStats;
+    }
+
+    public int getFinalAlive() {
+        return finalAlive;
+    }
+
+    /**
+     * Returns the total lifePoints of the alive cells in the last generation.
+     *
+     * @return the final energy
+     */
+    public long getFinalEnergy() {
+        return finalEnergy;
+    }
+
+    /**
+     * Returns the first step at which no cell was alive.
+     *
+     * @return the extinction step, or -1 if some cell was always alive
+     */
+    public int getExtinctAt() {
+        return extinctAt;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getElapsedMillis() {
+        return elapsedNanos / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public String toString() {
+        if (failure != null) {
+            return String.format("%s failed after %.3f ms: %s", name, getElapsedMillis(), failure);
+        }
+        return String.format("%s: %d steps, alive %d (min %d, max %d, avg %.2f), energy %d in %.3f ms",
+                name, steps, finalAlive, aliveStats.getMin(), aliveStats.getMax(), aliveStats.getAverage(),
+                finalEnergy, getElapsedMillis());
+    }
+}
@@ -0,0 +1,152 @@
+package it.polito.extgol;
+
+import java.util.ArrayList;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many independent experiments concurrently and summarizes each of them.
+ *
+ * Every GameSpec is turned into its own in-memory Game and evolved on its own
+ * GridEngine through ExtendedGameOfLife.runStreaming(...), keeping no history
+ * and touching no database, so experiments share no mutable state. They are
+ * executed on a fixed pool of worker threads, which bounds the number of games
+ * in memory at once; results come back in the order of the specs. A spec that
+ * fails (e.g. a pattern not fitting its board) yields a failed BatchResult and
+ * does not stop the others.
+ */
+public class BatchRunner {
+
+    private final int threads;
+
+    /**
+     * Creates a runner using one worker thread per available processor.
+     */
+    public BatchRunner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a runner using the given number of worker threads.
+     *
+     * @param threads the maximum number of experiments running at once
+     * @throws IllegalArgumentException if threads is not positive
+     */
+    public BatchRunner(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Runs every experiment and waits for all of them.
+     *
+     * @param specs the experiments to run
+     * @return one result per spec, in the same order
+     * @throws IllegalStateException if the calling thread is interrupted while waiting
+     */
+    public List<BatchResult> run(List<GameSpec> specs) {
+        Objects.requireNonNull(specs, "Specs cannot be null");
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, specs.size())));
+        try {
+            List<Future<BatchResult>> futures = new ArrayList<>(specs.size());
+            for (GameSpec spec : specs) {
+                futures.add(pool.submit(() -> runOne(spec)));
+            }
+            List<BatchResult> results = new ArrayList<>(specs.size());
+            for (Future<BatchResult> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running the batch", e);
+        } catch (ExecutionException e) {
+            // runOne reports failures as results, so only errors get here
+            throw new IllegalStateException("Batch worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs a single experiment on the calling thread.
+     *
+     * @param spec the experiment to run
+     * @return its summary, or the failure that stopped it
+     */
+    public BatchResult runOne(GameSpec spec) {
+        long start = System.nanoTime();
+        try {
+            Game game = spec.toGame();
+            IntSummaryStatistics aliveStats = new IntSummaryStatistics();
+            int initialAlive = game.getStart().getAliveCells().size();
+            aliveStats.accept(initialAlive);
+            int[] last = { initialAlive, initialAlive == 0 ? 0 : -1 }; // alive count, extinction step
+            long[] energy = { 0 };
+
+            ExtendedGameOfLife life = new ExtendedGameOfLife(EngineMode.GRID);
+            life.runStreaming(game, spec.getSteps(), spec.getEvents(), HistoryRetention.none(), view -> {
+                int alive = view.countAlive();
+                aliveStats.accept(alive);
+                last[0] = alive;
+                if (alive == 0 && last[1] < 0) {
+                    last[1] = view.getStep();
+                }
+                if (view.getStep() == spec.getSteps()) {
+                    long total = 0;
+                    for (Coord c : view.getAliveCoords()) {
+                        total += view.getLifePoints(c.getX(), c.getY());
+                    }
+                    energy[0] = total;
+                }
+            });
+            if (spec.getSteps() == 0) {
+                energy[0] = initialEnergy(game);
+            }
+            return BatchResult.completed(spec.getName(), spec.getSteps(), aliveStats, last[0],
+                    energy[0], last[1], System.nanoTime() - start);
+        } catch (RuntimeException e) {
+            return BatchResult.failed(spec.getName(), e, System.nanoTime() - start);
+        }
+    }
+
+    private static long initialEnergy(Game game) {
+        long total = 0;
+        for (Tile tile : game.getBoard().getTiles()) {
+            Cell cell = tile.getCell();
+            if (cell.isAlive()) total += cell.getLifePoints();
+        }
+        return total;
+    }
+
+    /**
+     * Formats results as a fixed-width text table, one row per experiment.
+     *
+     * @param results the results to format
+     * @return the table, with a header row
+     */
+    public static String formatTable(List<BatchResult> results) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-24s %6s %8s %8s %8s %10s %10s %8s %12s%n",
+                "name", "steps", "alive", "min", "max", "avg", "energy", "extinct", "ms"));
+        for (BatchResult r : results) {
+            if (!r.isCompleted()) {
+                sb.append(String.format("%-24s FAILED: %s%n", r.getName(), r.getFailure().getMessage()));
+                continue;
+            }
+            IntSummaryStatistics stats = r.getAliveStats();
+            sb.append(String.format("%-24s %6d %8d %8d %8d %10.2f %10d %8s %12.3f%n",
+                    r.getName(), r.getSteps(), r.getFinalAlive(), stats.getMin(), stats.getMax(),
+                    stats.getAverage(), r.getFinalEnergy(),
+                    r.getExtinctAt() < 0 ? "-" : Integer.toString(r.getExtinctAt()), r.getElapsedMillis()));
+        }
+        return sb.toString();
+    }
+}
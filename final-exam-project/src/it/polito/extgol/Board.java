@@ -3,24 +3,33 @@ package it.polito.extgol;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.IntSummaryStatistics;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.stream.Collectors;
 
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
 import jakarta.persistence.MapKey;
+import jakarta.persistence.MapKeyColumn;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.Transient;
 
 /**
  * Entity representing the game board grid in the Extended Game of Life.
@@ -54,6 +63,25 @@ public class Board {
     @Column(nullable = false)    
     private Integer height=5;
 
+    /** How the edges of the board are connected; BOUNDED unless chosen otherwise. */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "topology")
+    private Topology topology = Topology.BOUNDED;
+
+    /**
+     * Custom rules usable by the cells of this board, as canonical rule strings
+     * by name (e.g. "highlife" to "B36/S23").
+     */
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "board_rules", joinColumns = @JoinColumn(name = "board_id"))
+    @MapKeyColumn(name = "rule_name")
+    @Column(name = "rule_string", nullable = false)
+    private Map<String, String> ruleStrings = new HashMap<>();
+
+    /** Compiled custom rules by name, filled on first use. Not persisted. */
+    @Transient
+    private Map<String, RuleTable> compiledRules = new HashMap<>();
+
     /** Inverse one-to-one back to owning Game. */
     @OneToOne(mappedBy = "board", fetch = FetchType.LAZY)
     private Game game;
@@ -80,6 +108,57 @@ public class Board {
     )
     private List<Cell> cellSet = new ArrayList<>();
 
+    /**
+     * Number of slots per tile in the neighbor table. Slot k holds the neighbor at
+     * offset (dx, dy) in the order (-1,-1), (-1,0), (-1,1), (0,-1), (0,1), (1,-1),
+     * (1,0), (1,1).
+     */
+    static final int NEIGHBOR_SLOTS = 8;
+
+    /** Tiles by index y * width + x. Not persisted, rebuilt on demand after a reload. */
+    @Transient
+    private Tile[] tileIndex;
+
+    /**
+     * NEIGHBOR_SLOTS entries per tile holding the index of each neighbor, or the
+     * sentinel index width * height where the neighbor falls off the board.
+     */
+    @Transient
+    private int[] neighborTable;
+
+    /** Immutable view of the tiles in index order, returned by getTiles(). */
+    @Transient
+    private List<Tile> tileView;
+
+    /** Immutable view of the cells in index order, returned by getCellSet(). */
+    @Transient
+    private Set<Cell> cellView;
+
+    /**
+     * Aliveness of the cell on each tile, 1 for alive and 0 for dead, plus a last
+     * entry for the sentinel index that is always 0. Kept in sync by Cell.setAlive.
+     */
+    @Transient
+    private byte[] aliveFlags;
+
+    /** Seed of the per-tile keys of the state hash. */
+    private static final long STATE_HASH_SEED = 0x2545F4914F6CDD1DL;
+
+    /**
+     * Zobrist hash of the board, see getStateHash(), as of its last call: the
+     * XOR of the per-tile terms in tileHashes.
+     */
+    @Transient
+    private long stateHash;
+
+    /** Hash term of each tile, or null until getStateHash() is first called. */
+    @Transient
+    private long[] tileHashes;
+
+    /** One bit per tile whose term is stale, set by onStateChanged(...). */
+    @Transient
+    private long[] changedTiles;
+
 
     /**
      * Default constructor required by JPA.
@@ -96,9 +175,30 @@ public class Board {
      * @param g      the Game instance this board belongs to;
      */
     public Board(int width, int height, Game g) {
+        this(width, height, g, Topology.BOUNDED);
+    }
+
+    /**
+     * Constructs a Board of the given width and height whose edges are connected
+     * according to the given topology.
+     *
+     * @param width    the number of columns in the board grid
+     * @param height   the number of rows in the board grid
+     * @param g        the Game instance this board belongs to;
+     * @param topology how the edges of the board are connected
+     * @throws IllegalArgumentException if a wrapping topology is requested for a
+     *                                  board with fewer than 3 columns or rows
+     */
+    public Board(int width, int height, Game g, Topology topology) {
+        Objects.requireNonNull(topology, "Topology cannot be null");
+        if (topology.wraps() && (width < Topology.MIN_WRAPPING_SIDE || height < Topology.MIN_WRAPPING_SIDE)) {
+            throw new IllegalArgumentException("A " + topology + " board needs at least "
+                    + Topology.MIN_WRAPPING_SIDE + " columns and rows");
+        }
         this.width = width;
         this.height = height;
         this.game = g;
+        this.topology = topology;
         initializeTiles();
     }
 
@@ -118,7 +218,24 @@ public class Board {
      * @return the Board instance ready for use in the extended simulation
      */
     public static Board createExtended(int width, int height, Game game) {
-        Board board = new Board(width, height, game);
+        return createExtended(width, height, game, Topology.BOUNDED);
+    }
+
+    /**
+     * Factory method to create a fully initialized Board for the extended Game of Life
+     * whose edges are connected according to the given topology, with the same
+     * default extended settings as createExtended(width, height, game).
+     *
+     * @param width    the number of columns on the board
+     * @param height   the number of rows on the board
+     * @param game     the Game instance to which this board belongs
+     * @param topology how the edges of the board are connected
+     * @return the Board instance ready for use in the extended simulation
+     * @throws IllegalArgumentException if a wrapping topology is requested for a
+     *                                  board with fewer than 3 columns or rows
+     */
+    public static Board createExtended(int width, int height, Game game, Topology topology) {
+        Board board = new Board(width, height, game, topology);
 
         // Initialize all tiles as interactable with zero modifier
         for (Tile t : board.getTiles()) {
@@ -140,8 +257,8 @@ public class Board {
      * This method clears any existing tiles, then:
      *   1. Creates a Tile at each (x, y) coordinate within the board’s width and height,
      *      associates it with this Board and its Game, and stores it in the tiles map.
-     *   2. Iterates over every Tile to establish neighbor relationships by
-     *      calling Tile's initializeNeighbors(...) with the adjacent tiles.
+     *   2. Builds the neighbor table linking every tile index to the indices
+     *      of its surrounding tiles.
      *
      * This setup ensures each tile knows its position and its surrounding tiles,
      * enabling neighbor-based logic in the simulation.
@@ -155,34 +272,242 @@ public class Board {
                 tiles.put(tile.getCoordinates(), tile);
             }
         }
-        for (Tile t : tiles.values()) {   
-            t.initializeNeighbors(getAdjacentTiles(t));
+        buildIndex();
+    }
+
+    /**
+     * Builds the tile index and the neighbor table from the tiles map.
+     *
+     * The table stores, for each tile, the indices of its eight neighbors as
+     * resolved by the board topology, with the sentinel index width * height for
+     * the neighbors outside a bounded board. Neighbor counting then reads eight
+     * array slots with no bounds checks and no branches on the board edges.
+     */
+    private void buildIndex() {
+        int size = width * height;
+        Tile[] index = new Tile[size];
+        for (Tile t : tiles.values()) {
+            index[indexOf(t.getX(), t.getY())] = t;
+        }
+        Topology top = getTopology();
+        int[] table = new int[size * NEIGHBOR_SLOTS];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int slot = indexOf(x, y) * NEIGHBOR_SLOTS;
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dy = -1; dy <= 1; dy++) {
+                        // skip the center tile itself
+                        if (dx == 0 && dy == 0) continue;
+
+                        int n = top.resolve(x, y, dx, dy, width, height);
+                        table[slot++] = n < 0 ? size : n;
+                    }
+                }
+            }
+        }
+        this.tileIndex = index;
+        this.neighborTable = table;
+        this.aliveFlags = null;
+        this.tileView = null;
+        this.cellView = null;
+    }
+
+    /**
+     * Returns the index of the tile at the given position.
+     *
+     * @param x the column of the tile
+     * @param y the row of the tile
+     * @return the index y * width + x
+     */
+    int indexOf(int x, int y) {
+        return y * width + x;
+    }
+
+    /**
+     * Returns the neighbor table, building it first if the board was reloaded
+     * from the database.
+     *
+     * @return NEIGHBOR_SLOTS neighbor indices per tile, width * height marking
+     *         a missing neighbor
+     */
+    int[] getNeighborTable() {
+        if (neighborTable == null) {
+            buildIndex();
+        }
+        return neighborTable;
+    }
+
+    /**
+     * Returns the tile with the given index.
+     *
+     * @param index the tile index y * width + x
+     * @return the Tile at that index
+     */
+    Tile getTile(int index) {
+        if (tileIndex == null) {
+            buildIndex();
+        }
+        return tileIndex[index];
+    }
+
+    /**
+     * Counts the alive neighbors of the tile with the given index by reading
+     * the neighbor table and the aliveness flags, with no tile or cell lookup.
+     *
+     * @param index the tile index y * width + x
+     * @return the number of alive neighbors, between 0 and 8
+     */
+    int countAliveNeighbors(int index) {
+        int[] table = getNeighborTable();
+        byte[] flags = getAliveFlags();
+        int slot = index * NEIGHBOR_SLOTS;
+        int count = 0;
+        for (int k = 0; k < NEIGHBOR_SLOTS; k++) {
+            count += flags[table[slot + k]];
+        }
+        return count;
+    }
+
+    /**
+     * Returns the aliveness flags, loading them from the cells on first use.
+     *
+     * @return one flag per tile plus the always-dead sentinel
+     */
+    private byte[] getAliveFlags() {
+        if (aliveFlags == null) {
+            int size = width * height;
+            byte[] flags = new byte[size + 1];
+            for (int i = 0; i < size; i++) {
+                Cell cell = getTile(i).getCell();
+                flags[i] = (byte) (cell != null && cell.isAlive() ? 1 : 0);
+            }
+            aliveFlags = flags;
+        }
+        return aliveFlags;
+    }
+
+    /**
+     * Records a change in the aliveness of a cell on this board.
+     * Called by Cell.setAlive; does nothing until the flags have been loaded.
+     *
+     * @param coord the coordinates of the cell
+     * @param alive the new aliveness
+     */
+    void onAliveChanged(Coord coord, boolean alive) {
+        if (aliveFlags != null) {
+            aliveFlags[indexOf(coord.getX(), coord.getY())] = (byte) (alive ? 1 : 0);
+        }
+    }
+
+    /**
+     * Drops the aliveness flags after a tile changed its cell, so that they are
+     * reloaded on the next count.
+     */
+    void onCellReplaced() {
+        aliveFlags = null;
+        cellView = null;
+        tileHashes = null;
+    }
+
+    /**
+     * Records a change in a hashed property of the cell or tile at the given
+     * coordinates, whose hash term is then refreshed by the next call to
+     * getStateHash(). Does nothing until the hash has been computed.
+     *
+     * @param coord the coordinates of the tile
+     */
+    void onStateChanged(Coord coord) {
+        if (tileHashes != null) {
+            int i = indexOf(coord.getX(), coord.getY());
+            changedTiles[i >>> 6] |= 1L << i;
+        }
+    }
+
+    /**
+     * Returns a 64-bit Zobrist hash of the state of every cell on the board.
+     *
+     * The hash is the XOR of one hash per tile, mixing a key of the tile with
+     * everything the future of its cell depends on: aliveness, lifePoints, mood,
+     * type, custom rule, rule counter, pending mood transitions and empowered
+     * bite of the cell, and the energy modifier of the tile. Boards of the same
+     * size whose tiles agree on all of them have the same hash.
+     *
+     * The hash is computed over the whole board on the first call only. The
+     * Cell and Tile setters then mark the tiles they change, and each later
+     * call XORs out the old term and XORs in the new one of the marked tiles
+     * only, so a generation costs a rehash of the cells that changed in it.
+     *
+     * @return the state hash
+     */
+    public long getStateHash() {
+        List<Tile> all = getTiles();
+        if (tileHashes == null) {
+            tileHashes = new long[all.size()];
+            changedTiles = new long[(all.size() + 63) >>> 6];
+            stateHash = 0;
+            for (int i = 0; i < tileHashes.length; i++) {
+                tileHashes[i] = tileHash(all.get(i));
+                stateHash ^= tileHashes[i];
+            }
+            return stateHash;
+        }
+        for (int w = 0; w < changedTiles.length; w++) {
+            for (long bits = changedTiles[w]; bits != 0; bits &= bits - 1) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+                long term = tileHash(all.get(i));
+                stateHash ^= tileHashes[i] ^ term;
+                tileHashes[i] = term;
+            }
+            changedTiles[w] = 0;
+        }
+        return stateHash;
+    }
+
+    /**
+     * Returns the hash term of a tile, 0 for a tile without a cell.
+     */
+    private long tileHash(Tile tile) {
+        Cell cell = tile.getCell();
+        if (cell == null) {
+            return 0;
+        }
+        CellMood mood = cell.getMood();
+        CellType type = cell.getType();
+        long state = (cell.isAlive() ? 1L : 0L)
+                | (long) (mood == null ? 0 : mood.ordinal() + 1) << 1
+                | (long) (type == null ? 0 : type.ordinal() + 1) << 4
+                | (cell.isFromNaiveToVampire() ? 1L : 0L) << 7
+                | (cell.isFromHealerToVampire() ? 1L : 0L) << 8
+                | (Boolean.TRUE.equals(cell.getEmpoweredBite()) ? 1L : 0L) << 9
+                | (long) cell.getLifePoints() << 32;
+        long key = GridEngine.mix(STATE_HASH_SEED + indexOf(tile.getX(), tile.getY()));
+        long h = GridEngine.mix(key ^ state);
+        h = GridEngine.mix(h ^ ((long) tile.getLifePointModifier() << 32
+                | cell.getConsecutiveNearToDeath() & 0xffffffffL));
+        if (cell.getCustomRule() != null) {
+            h = GridEngine.mix(h ^ getRule(cell.getCustomRule()).fingerprint());
         }
+        return h;
     }
 
     /**
      * Computes and returns all neighboring Tiles surrounding the specified tile.
      *
-     * Iterates over the eight possible offsets (dx, dy) around the tile’s coordinates,
-     * skips the tile itself, and includes only those tiles that exist within the neighborhood.
+     * Reads the eight slots of the tile in the neighbor table and includes only
+     * those tiles that exist within the neighborhood.
      *
      * @param tile the central Tile for which neighbors are sought
      * @return a Set of adjacent Tile instances (up to eight) surrounding the given tile
      */
     public Set<Tile> getAdjacentTiles(Tile tile) {
         Set<Tile> adj = new HashSet<>();
-        int cx = tile.getX();
-        int cy = tile.getY();
-        for (int dx = -1; dx <= 1; dx++) {
-            for (int dy = -1; dy <= 1; dy++) {
-                // skip the center tile itself
-                if (dx == 0 && dy == 0) continue;
-
-                Tile t = getTile(new Coord(cx + dx, cy + dy));
-                
-                if (t != null) { // skipping null references (e.g., border conditions)
-                    adj.add(t);
-                }
+        int[] table = getNeighborTable();
+        int size = width * height;
+        int slot = indexOf(tile.getX(), tile.getY()) * NEIGHBOR_SLOTS;
+        for (int k = 0; k < NEIGHBOR_SLOTS; k++) {
+            int n = table[slot + k];
+            if (n != size) { // skipping the sentinel (e.g., border conditions)
+                adj.add(getTile(n));
             }
         }
         return adj;
@@ -201,49 +526,160 @@ public class Board {
         return id;
     }
 
+    /**
+     * Returns the number of columns of this Board.
+     *
+     * @return the board width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the number of rows of this Board.
+     *
+     * @return the board height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Registers a custom rule that cells of this board can evolve by through
+     * Cell.setCustomRule(name), evaluated by the same table-driven path as the
+     * rules of the CellTypes.
+     *
+     * @param name the name of the rule
+     * @param rule the rule string, e.g. "B36/S23" or "B2/S/C3" (see RuleTable)
+     * @return the compiled rule
+     * @throws IllegalArgumentException if the name is blank, the rule string is
+     *                                  invalid or the name is taken by a different rule
+     */
+    public RuleTable registerRule(String name, String rule) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Rule name cannot be blank");
+        }
+        RuleTable table = RuleTable.parse(rule);
+        String canonical = table.toRuleString();
+        String existing = ruleStrings.get(name);
+        if (existing != null && !existing.equals(canonical)) {
+            throw new IllegalArgumentException("Rule " + name + " is already registered as " + existing);
+        }
+        ruleStrings.put(name, canonical);
+        compiledRules.put(name, table);
+        return table;
+    }
+
+    /**
+     * Returns a custom rule registered on this board.
+     *
+     * @param name the name of the rule
+     * @return the compiled rule
+     * @throws IllegalArgumentException if no rule with that name is registered
+     */
+    public RuleTable getRule(String name) {
+        RuleTable table = compiledRules.get(name);
+        if (table == null) {
+            String rule = ruleStrings.get(name);
+            if (rule == null) {
+                throw new IllegalArgumentException("Unknown rule: " + name);
+            }
+            table = RuleTable.parse(rule);
+            compiledRules.put(name, table);
+        }
+        return table;
+    }
+
+    /**
+     * Returns the custom rules registered on this board.
+     *
+     * @return an unmodifiable map from rule name to canonical rule string
+     */
+    public Map<String, String> getRules() {
+        return Collections.unmodifiableMap(ruleStrings);
+    }
+
+    /**
+     * Returns how the edges of this Board are connected.
+     *
+     * @return the board topology, BOUNDED for boards saved before topologies existed
+     */
+    public Topology getTopology() {
+        return topology == null ? Topology.BOUNDED : topology;
+    }
+
     /**
      * Retrieves the Tile at the specified coordinates.
      *
+     * The lookup reads the dense tile index, so it costs the same on any board
+     * size and allocates nothing.
+     *
      * @param c the Coord position to look up
-     * @return the Tile at those coordinates
+     * @return the Tile at those coordinates, or null if they fall outside the board
      */
     public Tile getTile(Coord c){
-        return tiles.get(c);
+        if (c == null || c.getX() < 0 || c.getX() >= width || c.getY() < 0 || c.getY() >= height) {
+            return null;
+        }
+        return getTile(indexOf(c.getX(), c.getY()));
     }
 
     /**
-     * Returns an immutable list of all Tiles on this Board.
+     * Returns an immutable list of all Tiles on this Board, in index order
+     * (row by row).
      *
-     * This defensive copy prevents external modification of the board’s tile collection.
+     * The list is built once and returned by every later call, so loops over
+     * the tiles allocate nothing in proportion to the board size.
      *
      * @return a List of all Tile instances on the board
      */
     public List<Tile> getTiles() {
-        return List.copyOf(tiles.values());
+        if (tileView == null) {
+            if (tileIndex == null) {
+                buildIndex();
+            }
+            List<Tile> view = new ArrayList<>(tileIndex.length);
+            for (Tile t : tileIndex) {
+                if (t != null) {
+                    view.add(t);
+                }
+            }
+            tileView = Collections.unmodifiableList(view);
+        }
+        return tileView;
     }
 
     /**
-     * Gathers and returns the set of all Cells currently placed on this Board.
+     * Gathers and returns the set of all Cells currently placed on this Board,
+     * in index order.
+     *
+     * The set is immutable and cached until a tile receives another cell, so
+     * repeated calls allocate nothing.
      *
      * @return a Set of all Cell instances belonging to this board
      */
     public Set<Cell> getCellSet() {
-        Set<Cell> cellSet = new HashSet<>();
-        for (Tile t : tiles.values()) {
-            cellSet.add(t.getCell());
+        if (cellView == null) {
+            List<Tile> all = getTiles();
+            Set<Cell> cells = new LinkedHashSet<>(all.size() * 2);
+            for (Tile t : all) {
+                cells.add(t.getCell());
+            }
+            cellView = Collections.unmodifiableSet(cells);
         }
-        return cellSet;
+        return cellView;
     }
 
+    /**
+     * Retrieves the Cell at the specified coordinates in constant time.
+     *
+     * @param c the Coord position to look up
+     * @return the Cell at those coordinates, or null if they fall outside the
+     *         board or the tile holds no cell
+     */
     public Cell getCell(Coord c) {
-        Set<Cell> cellSet = getCellSet();
-        
-        for (Cell cell: cellSet) {
-            if (cell.getCoordinates().equals(c)) {
-                return cell; // return requested cell
-            }
-        }
-        return null;
+        Tile tile = getTile(c);
+        return tile == null ? null : tile.getCell();
     }
     
     /**
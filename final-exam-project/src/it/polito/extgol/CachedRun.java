@@ -0,0 +1,77 @@
+package it.polito.extgol;
+
+import java.util.IntSummaryStatistics;
+
+/**
+ * Outcome of a run kept by the SimulationCache: the final generation and the
+ * statistics of the run, without its intermediate generations.
+ */
+public final class CachedRun {
+
+    /** Approximate size of this object and of the statistics, for estimatedBytes(). */
+    private static final int OVERHEAD_BYTES = 80;
+
+    private final int steps;
+    private final GenerationView finalState;
+    private final IntSummaryStatistics aliveStats;
+    private final int extinctAt;
+
+    /**
+     * Creates the outcome of a run.
+     *
+     * @param steps      the number of generations simulated
+     * @param finalState a detached view of the last generation
+     * @param aliveStats the alive cell counts of the simulated generations
+     * @param extinctAt  the first step with no alive cell, or -1 if none
+     */
+    CachedRun(int steps, GenerationView finalState, IntSummaryStatistics aliveStats, int extinctAt) {
+        this.steps = steps;
+        this.finalState = finalState;
+        this.aliveStats = aliveStats;
+        this.extinctAt = extinctAt;
+    }
+
+    public int getSteps() {
+        return steps;
+    }
+
+    /**
+     * Returns the last generation of the run. The view is shared by every
+     * caller hitting the same cache entry and cannot be changed.
+     *
+     * @return the final GenerationView
+     */
+    public GenerationView getFinalState() {
+        return finalState;
+    }
+
+    /**
+     * Returns the statistics of the alive cell counts over the simulated
+     * generations, the initial one excluded.
+     *
+     * @return a copy of the statistics
+     */
+    public IntSummaryStatistics getAliveStats() {
+        IntSummaryStatistics copy = new IntSummaryStatistics();
+        copy.combine(aliveStats);
+        return copy;
+    }
+
+    /**
+     * Returns the first step at which no cell was alive.
+     *
+     * @return the extinction step, or -1 if some cell was always alive
+     */
+    public int getExtinctAt() {
+        return extinctAt;
+    }
+
+    /**
+     * Estimates the heap footprint of this outcome.
+     *
+     * @return an approximate size in bytes
+     */
+    long estimatedBytes() {
+        return OVERHEAD_BYTES + finalState.estimatedBytes();
+    }
+}
@@ -0,0 +1,95 @@
+package it.polito.extgol;
+
+import java.util.IntSummaryStatistics;
+
+import jakarta.persistence.Basic;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+
+/**
+ * Persistent copy of a CachedRun, stored by a persistent SimulationCache so that
+ * cached outcomes survive the cache and the process.
+ *
+ * The final generation is kept in the compressed format of GenerationCodec.
+ */
+@Entity
+@Table(name = "run_cache")
+public class CachedRunRecord {
+
+    /** Key computed by SimulationCache.keyOf(...). */
+    @Id
+    @Column(name = "cache_key")
+    private Long cacheKey;
+
+    @Column(nullable = false)
+    private Integer steps;
+
+    /** Step of the final generation. */
+    @Column(name = "final_step", nullable = false)
+    private Integer finalStep;
+
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "final_state", nullable = false)
+    private byte[] finalState;
+
+    @Column(name = "alive_count", nullable = false)
+    private Long aliveCount;
+
+    @Column(name = "alive_min", nullable = false)
+    private Integer aliveMin;
+
+    @Column(name = "alive_max", nullable = false)
+    private Integer aliveMax;
+
+    @Column(name = "alive_sum", nullable = false)
+    private Long aliveSum;
+
+    @Column(name = "extinct_at", nullable = false)
+    private Integer extinctAt;
+
+    /**
+     * Protected no-argument constructor required by JPA.
+     */
+    protected CachedRunRecord() {
+    }
+
+    /**
+     * Creates the record of a cached outcome.
+     *
+     * @param cacheKey the key of the outcome
+     * @param run      the outcome to store
+     */
+    CachedRunRecord(long cacheKey, CachedRun run) {
+        IntSummaryStatistics stats = run.getAliveStats();
+        this.cacheKey = cacheKey;
+        this.steps = run.getSteps();
+        this.finalStep = run.getFinalState().getStep();
+        this.finalState = GenerationCodec.encode(run.getFinalState());
+        this.aliveCount = stats.getCount();
+        this.aliveMin = stats.getMin();
+        this.aliveMax = stats.getMax();
+        this.aliveSum = stats.getSum();
+        this.extinctAt = run.getExtinctAt();
+    }
+
+    public Long getCacheKey() {
+        return cacheKey;
+    }
+
+    /**
+     * Rebuilds the cached outcome from this record.
+     *
+     * @return the CachedRun
+     * @throws IllegalStateException if the stored state is corrupted
+     */
+    CachedRun toCachedRun() {
+        GenerationView view = GenerationCodec.decodeView(finalState, finalStep);
+        IntSummaryStatistics stats = new IntSummaryStatistics(aliveCount, aliveMin, aliveMax, aliveSum);
+        return new CachedRun(steps, view, stats, extinctAt);
+    }
+}
@@ -0,0 +1,11 @@
+package it.polito.extgol;
+
+/**
+ * Repository of the outcomes persisted by a SimulationCache, keyed by cache key.
+ */
+public class CachedRunRepository extends GenericExtGOLRepository<CachedRunRecord, Long> {
+
+    public CachedRunRepository() {
+        super(CachedRunRecord.class);
+    }
+}
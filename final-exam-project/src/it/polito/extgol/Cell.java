@@ -2,6 +2,7 @@ package it.polito.extgol;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 import jakarta.persistence.AttributeOverride;
 import jakarta.persistence.AttributeOverrides;
@@ -17,6 +18,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Transient;
 
 /**
@@ -33,7 +35,8 @@ import jakarta.persistence.Transient;
 public class Cell implements Evolvable, Interactable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cell_seq")
+    @SequenceGenerator(name = "cell_seq", sequenceName = "cell_seq", allocationSize = JPAUtil.ID_ALLOCATION_SIZE)
     private Long id;
 
     /**
@@ -82,6 +85,10 @@ public class Cell implements Evolvable, Interactable {
     @Column(name = "mood", nullable = false) 
     protected CellMood mood = CellMood.NAIVE;
 
+    /** Name of the custom rule registered on the board, or null to follow the cell type. */
+    @Column(name = "custom_rule")
+    protected String customRule;
+
     // death-inducing conditions counter
     @Transient
     private int consecutiveNearToDeath = 0;
@@ -150,30 +157,11 @@ public class Cell implements Evolvable, Interactable {
     public Boolean evolve(int aliveNeighbors) {
         tile.interact(this); // update lifePoints 
 
-        // Start by assuming the cell retains its current state
-        Boolean willLive = this.isAlive;
-
-        switch (cellType) {
-            case BASIC: 
-                willLive = evolveBasic(aliveNeighbors);
-                break;
-
-            case HIGHLANDER:
-                willLive = evolveHighlander(aliveNeighbors);
-                break;
-
-            case LONER:
-                willLive = evolveLoner(aliveNeighbors);
-                break;
-            
-            case SOCIAL: 
-                willLive = evolveSocial(aliveNeighbors);
-                break; 
-
-            default:
-                willLive = evolveBasic(aliveNeighbors);
-                break;
-        }
+        // the rules of each CellType (including the Highlander's tolerance to
+        // consecutive near to death conditions) are compiled in its RuleTable
+        RuleTable rules = getRuleTable();
+        boolean willLive = rules.evolve(this.isAlive, consecutiveNearToDeath, aliveNeighbors);
+        setConsecutiveNearToDeath(rules.nextCounter(this.isAlive, consecutiveNearToDeath, aliveNeighbors));
 
         if (this.mood == CellMood.NAIVE && this.fromNaiveToVampire) {
             this.setMood(CellMood.VAMPIRE);
@@ -185,69 +173,6 @@ public class Cell implements Evolvable, Interactable {
         return willLive;
     }
 
-
-    private Boolean evolveBasic (int aliveNeighbors) {
-        Boolean willLive = this.isAlive;
-
-        // overpopulation + underpopulation
-        if (aliveNeighbors < 2 || aliveNeighbors > 3) { 
-            willLive = false;
-        } 
-        // respawn
-        else if (!this.isAlive && aliveNeighbors == 3 ){
-            willLive = true;
-        }
-
-        return willLive;
-    }
-    
-    private Boolean evolveHighlander (int aliveNeighbors) {
-        Boolean willLive = this.isAlive;
-
-        // check consecutive near to death conditions
-        if (aliveNeighbors < 2 || aliveNeighbors > 3) {
-            consecutiveNearToDeath++;
-        }
-        else consecutiveNearToDeath = 0;
-
-        
-        if (consecutiveNearToDeath >= 3) {
-            willLive = false;
-        }
-        // respawn
-        else if (!isAlive && aliveNeighbors == 3) {
-            willLive = true;
-        }
-        
-        return willLive;
-    }
-    
-    private Boolean evolveLoner (int aliveNeighbors) {
-        Boolean willLive = this.isAlive;
-
-        if (aliveNeighbors < 1 || aliveNeighbors > 3) {
-            willLive = false; 
-        }
-        else if (!this.isAlive && aliveNeighbors == 3) {
-            willLive = true;
-        }
-        
-        return willLive;
-    }
-    
-    private Boolean evolveSocial (int aliveNeighbors) {
-        Boolean willLive = this.isAlive;
-
-        if (aliveNeighbors < 2 || aliveNeighbors > 8) {
-            willLive = false;
-        }
-        else if (!isAlive && aliveNeighbors == 3) {
-            willLive = true;
-        }
-
-        return willLive;
-    }
-    
     /**
      * Retrieves all tiles adjacent to this cell's tile.
      *
@@ -263,12 +188,16 @@ public class Cell implements Evolvable, Interactable {
     /**
      * Counts the number of live cells adjacent to this cell’s tile.
      *
-     * Iterates over all neighboring tiles and increments the count for each
-     * tile that hosts an alive Cell.
+     * Reads the board's neighbor table and aliveness flags when the cell is
+     * placed on a board; otherwise iterates over all neighboring tiles and
+     * increments the count for each tile that hosts an alive Cell.
      *
      * @return the total number of alive neighboring cells
      */
     public int countAliveNeighbors() {
+        if (board != null) {
+            return board.countAliveNeighbors(board.indexOf(cellCoord.getX(), cellCoord.getY()));
+        }
         int count = 0;
         for (Tile t : tile.getNeighbors()) {
             if (t.getCell() != null && t.getCell().isAlive())
@@ -346,7 +275,23 @@ public class Cell implements Evolvable, Interactable {
      * @param isAlive true to mark the cell as alive; false to mark it as dead
      */
     public void setAlive(boolean isAlive) {
+        if (this.isAlive != isAlive) {
+            stateChanged();
+        }
         this.isAlive = isAlive;
+        if (board != null) {
+            board.onAliveChanged(cellCoord, isAlive);
+        }
+    }
+
+    /**
+     * Tells the board that a hashed property of this cell changed, so that its
+     * term of the state hash is refreshed, see Board.getStateHash().
+     */
+    private void stateChanged() {
+        if (board != null) {
+            board.onStateChanged(cellCoord);
+        }
     }
 
     /**
@@ -379,11 +324,16 @@ public class Cell implements Evolvable, Interactable {
      * @param lifePoints the new number of life points to assign to the cell
      */
     public void setLifePoints(int lifePoints) {
-        // TODO Auto-generated method stub
+        if (this.lifepoints != lifePoints) {
+            stateChanged();
+        }
         this.lifepoints=lifePoints;
     }
 
     public void setEmpoweredBite(Boolean bite){
+        if (!Objects.equals(empoweredBite, bite)) {
+            stateChanged();
+        }
         empoweredBite = bite; 
     }
 
@@ -415,10 +365,10 @@ public class Cell implements Evolvable, Interactable {
 
                 // HEALER + VAMPIRE
                 else if (otherCell.getMood() == CellMood.VAMPIRE) {
-                    this.lifepoints -= 1;
+                    this.setLifePoints(this.lifepoints - 1);
                     otherCell.setLifePoints(otherCell.getLifePoints() + 1);
                     if (empoweredBite) {
-                        this.fromHealerToVampire = true;
+                        setFromHealerToVampire(true);
                     }
                 }
             
@@ -430,17 +380,17 @@ public class Cell implements Evolvable, Interactable {
 
                 // VAMPIRE + NAIVE
                 if (otherCell.getMood() == CellMood.NAIVE) {
-                    this.lifepoints += 1;
+                    this.setLifePoints(this.lifepoints + 1);
                     otherCell.setLifePoints(otherCell.getLifePoints() - 1);
-                    otherCell.fromNaiveToVampire = true;
+                    otherCell.setFromNaiveToVampire(true);
                 }
 
                 // VAMPIRE + HEALER
                 else if (otherCell.getMood() == CellMood.HEALER) {
-                    this.lifepoints += 1;
+                    this.setLifePoints(this.lifepoints + 1);
                     otherCell.setLifePoints(otherCell.getLifePoints() - 1);
                     if (empoweredBite) {
-                        otherCell.fromHealerToVampire = true;
+                        otherCell.setFromHealerToVampire(true);
                     }
                 }
 
@@ -452,12 +402,12 @@ public class Cell implements Evolvable, Interactable {
 
                 // NAIVE + HEALER   
                 if (otherCell.getMood() == CellMood.HEALER) {
-                    this.lifepoints += 1;
+                    this.setLifePoints(this.lifepoints + 1);
                 }
                 // NAIVE + VAMPIRE
                 else if (otherCell.getMood() == CellMood.VAMPIRE) {
-                    this.fromNaiveToVampire = true;
-                    this.lifepoints -= 1;
+                    setFromNaiveToVampire(true);
+                    this.setLifePoints(this.lifepoints - 1);
                     otherCell.setLifePoints(otherCell.getLifePoints() + 1);
                 }
         }
@@ -470,6 +420,9 @@ public class Cell implements Evolvable, Interactable {
      * @param t the CellType to set (e.g., BASIC, HIGHLANDER, LONER, SOCIAL)
      */
     public void setType(CellType t) {
+        if (this.cellType != t) {
+            stateChanged();
+        }
         this.cellType = t;
     }
 
@@ -477,12 +430,53 @@ public class Cell implements Evolvable, Interactable {
         return this.cellType;
     }
 
+    /**
+     * Makes this cell evolve by a custom rule registered on its board instead of
+     * the rule of its CellType. The type is kept and applies again once the
+     * custom rule is cleared.
+     *
+     * @param ruleName the name given to Board.registerRule(...), or null to
+     *                 follow the cell type again
+     * @throws IllegalArgumentException if no rule with that name is registered on the board
+     */
+    public void setCustomRule(String ruleName) {
+        if (ruleName != null) {
+            board.getRule(ruleName); // fail fast on unknown rules
+        }
+        if (!Objects.equals(this.customRule, ruleName)) {
+            stateChanged();
+        }
+        this.customRule = ruleName;
+    }
+
+    /**
+     * Returns the name of the custom rule this cell evolves by.
+     *
+     * @return the rule name, or null if the cell follows its CellType
+     */
+    public String getCustomRule() {
+        return customRule;
+    }
+
+    /**
+     * Returns the compiled rule this cell evolves by: its custom rule if any,
+     * the rule of its CellType otherwise.
+     *
+     * @return the RuleTable of this cell
+     */
+    RuleTable getRuleTable() {
+        return customRule == null ? RuleTable.of(cellType) : board.getRule(customRule);
+    }
+
     /**
      * Sets the current mood of this cell, impacting how it interacts with others.
      *
      * @param mood the CellMood to assign (NAIVE, HEALER, or VAMPIRE)
      */
     public void setMood(CellMood mood) {
+        if (this.mood != mood) {
+            stateChanged();
+        }
         this.mood = mood;
     }
 
@@ -507,4 +501,70 @@ public class Cell implements Evolvable, Interactable {
         return tile;
     }
 
+    // ENGINE SUPPORT
+
+    /**
+     * Returns the number of consecutive death-inducing generations survived so far.
+     * Used by array-based engines to load and restore the Highlander counter.
+     *
+     * @return the current consecutive near-to-death counter
+     */
+    int getConsecutiveNearToDeath() {
+        return consecutiveNearToDeath;
+    }
+
+    /**
+     * Restores the consecutive near-to-death counter computed outside the entity.
+     *
+     * @param count the counter value to store
+     */
+    void setConsecutiveNearToDeath(int count) {
+        if (this.consecutiveNearToDeath != count) {
+            stateChanged();
+        }
+        this.consecutiveNearToDeath = count;
+    }
+
+    /**
+     * Tells whether this cell was bitten while NAIVE and is due to become a VAMPIRE.
+     *
+     * @return true if the NAIVE to VAMPIRE transition is pending
+     */
+    boolean isFromNaiveToVampire() {
+        return fromNaiveToVampire;
+    }
+
+    /**
+     * Restores the pending NAIVE to VAMPIRE transition flag.
+     *
+     * @param pending true if the transition is pending
+     */
+    void setFromNaiveToVampire(boolean pending) {
+        if (this.fromNaiveToVampire != pending) {
+            stateChanged();
+        }
+        this.fromNaiveToVampire = pending;
+    }
+
+    /**
+     * Tells whether this cell was bitten by an empowered vampire while HEALER.
+     *
+     * @return true if the HEALER to VAMPIRE transition is pending
+     */
+    boolean isFromHealerToVampire() {
+        return fromHealerToVampire;
+    }
+
+    /**
+     * Restores the pending HEALER to VAMPIRE transition flag.
+     *
+     * @param pending true if the transition is pending
+     */
+    void setFromHealerToVampire(boolean pending) {
+        if (this.fromHealerToVampire != pending) {
+            stateChanged();
+        }
+        this.fromHealerToVampire = pending;
+    }
+
 }
@@ -0,0 +1,119 @@
+package it.polito.extgol;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Full aliveness, energy and mood state of every cell at a given step.
+ *
+ * Used by delta-encoded generations, both as the running state the next delta
+ * is computed against and as the reconstructed state returned by the getters.
+ */
+final class CellStates {
+
+    /** Step these states refer to. */
+    int step;
+
+    final Map<Cell, Boolean> aliveness;
+    final Map<Cell, Integer> energy;
+    final Map<Cell, CellMood> moods;
+
+    // entries overwritten by the last record(...), null values standing for absent ones
+    private final Map<Cell, Boolean> previousAliveness = new HashMap<>();
+    private final Map<Cell, Integer> previousEnergy = new HashMap<>();
+    private final Map<Cell, CellMood> previousMoods = new HashMap<>();
+    private int previousStep;
+    private boolean revertible;
+
+    CellStates(int step) {
+        this.step = step;
+        this.aliveness = new HashMap<>();
+        this.energy = new HashMap<>();
+        this.moods = new HashMap<>();
+    }
+
+    /**
+     * Creates a copy of the given states.
+     *
+     * @param other the states to copy
+     */
+    CellStates(CellStates other) {
+        this.step = other.step;
+        this.aliveness = new HashMap<>(other.aliveness);
+        this.energy = new HashMap<>(other.energy);
+        this.moods = new HashMap<>(other.moods);
+    }
+
+    /**
+     * Overwrites the entries recorded by a generation, either a full keyframe
+     * or a delta, and moves these states to its step.
+     *
+     * @param aliveness the recorded aliveness entries
+     * @param energy    the recorded energy entries
+     * @param moods     the recorded mood entries
+     * @param step      the step of the recording generation
+     */
+    void apply(Map<Cell, Boolean> aliveness, Map<Cell, Integer> energy, Map<Cell, CellMood> moods, int step) {
+        this.aliveness.putAll(aliveness);
+        this.energy.putAll(energy);
+        this.moods.putAll(moods);
+        this.step = step;
+    }
+
+    /**
+     * Like apply(...), but remembers the overwritten entries so that revert()
+     * can restore them. Used for the running state, since a generation may be
+     * captured more than once.
+     */
+    void record(Map<Cell, Boolean> aliveness, Map<Cell, Integer> energy, Map<Cell, CellMood> moods, int step) {
+        remember(this.aliveness, aliveness, previousAliveness);
+        remember(this.energy, energy, previousEnergy);
+        remember(this.moods, moods, previousMoods);
+        previousStep = this.step;
+        revertible = true;
+        apply(aliveness, energy, moods, step);
+    }
+
+    /**
+     * Undoes the last record(...), if any.
+     */
+    void revert() {
+        if (!revertible) return;
+        restore(aliveness, previousAliveness);
+        restore(energy, previousEnergy);
+        restore(moods, previousMoods);
+        step = previousStep;
+        revertible = false;
+    }
+
+    private static <V> void remember(Map<Cell, V> current, Map<Cell, V> changes, Map<Cell, V> previous) {
+        previous.clear();
+        for (Cell cell : changes.keySet()) {
+            previous.put(cell, current.get(cell));
+        }
+    }
+
+    private static <V> void restore(Map<Cell, V> current, Map<Cell, V> previous) {
+        for (Map.Entry<Cell, V> entry : previous.entrySet()) {
+            if (entry.getValue() == null) {
+                current.remove(entry.getKey());
+            } else {
+                current.put(entry.getKey(), entry.getValue());
+            }
+        }
+        previous.clear();
+    }
+
+    Map<Cell, Boolean> getAliveness() {
+        return Collections.unmodifiableMap(aliveness);
+    }
+
+    Map<Cell, Integer> getEnergy() {
+        return Collections.unmodifiableMap(energy);
+    }
+
+    Map<Cell, CellMood> getMoods() {
+        return Collections.unmodifiableMap(moods);
+    }
+}
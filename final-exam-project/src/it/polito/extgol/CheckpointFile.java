@@ -0,0 +1,228 @@
+package it.polito.extgol;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Memory-mapped file holding the latest checkpoints of a GridEngine, so that a
+ * long run can be resumed after a crash.
+ *
+ * The file has two slots of the same size, written alternately, each with a
+ * header followed by the engine state of GridEngine.writeState(...), in the
+ * native byte order of the machine:
+ *   - 8 bytes: sequence number, 0 while the slot is being written
+ *   - 4 bytes: step of the checkpointed generation
+ *   - 4 bytes: CRC32C of the engine state
+ *   - 8 bytes: configuration fingerprint of the engine
+ * A checkpoint overwrites the older slot: it clears the sequence number, copies
+ * the arrays of the engine into the mapping, then writes the checksum and the
+ * new sequence number. A crash in the middle leaves the other slot intact, and
+ * a slot torn by an operating system crash fails its checksum; read(...) picks
+ * the valid slot with the highest sequence number.
+ *
+ * Writing a checkpoint is a bulk copy into the page cache plus a checksum pass.
+ * With sync enabled the mapping is also forced to the storage device, first
+ * before and then after the sequence number is written, which survives power
+ * loss but costs a device flush per checkpoint.
+ */
+public final class CheckpointFile implements Closeable {
+
+    /** Size of the header of a slot. */
+    static final int SLOT_HEADER_BYTES = Long.BYTES + Integer.BYTES + Integer.BYTES + Long.BYTES;
+
+    private static final int STEP_OFFSET = Long.BYTES;
+    private static final int CRC_OFFSET = STEP_OFFSET + Integer.BYTES;
+    private static final int FINGERPRINT_OFFSET = CRC_OFFSET + Integer.BYTES;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer mapping;
+    private final int stateBytes;
+    private final int slotBytes;
+    private final boolean sync;
+
+    private long sequence;
+
+    private CheckpointFile(FileChannel channel, MappedByteBuffer mapping, int stateBytes, boolean sync) {
+        this.channel = channel;
+        this.mapping = mapping;
+        this.stateBytes = stateBytes;
+        this.slotBytes = SLOT_HEADER_BYTES + stateBytes;
+        this.sync = sync;
+        this.sequence = Math.max(slotSequence(0), slotSequence(1));
+    }
+
+    /**
+     * Opens or creates the checkpoint file of an engine, mapping it in memory.
+     * An existing file keeps its checkpoints if it has the size the engine needs,
+     * otherwise it is resized and its content is discarded.
+     *
+     * @param path   the checkpoint file
+     * @param engine the engine whose state is checkpointed
+     * @param sync   whether each checkpoint is forced to the storage device
+     * @return the open CheckpointFile
+     * @throws UncheckedIOException if the file cannot be opened or mapped
+     */
+    public static CheckpointFile open(Path path, GridEngine engine, boolean sync) {
+        return open(path, engine, sync, true);
+    }
+
+    /**
+     * Opens the existing checkpoint file of an engine to resume from it,
+     * mapping it in memory. The file is neither created nor resized.
+     *
+     * @param path   the checkpoint file
+     * @param engine the engine the checkpoints are read into
+     * @return the open CheckpointFile
+     * @throws UncheckedIOException  if the file does not exist or cannot be mapped
+     * @throws IllegalStateException if the file does not have the size the engine needs
+     */
+    public static CheckpointFile openExisting(Path path, GridEngine engine) {
+        return open(path, engine, false, false);
+    }
+
+    private static CheckpointFile open(Path path, GridEngine engine, boolean sync, boolean create) {
+        int stateBytes = engine.stateBytes();
+        long fileBytes = 2L * (SLOT_HEADER_BYTES + stateBytes);
+        FileChannel channel = null;
+        try {
+            channel = create
+                    ? FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                    : FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (channel.size() != fileBytes) {
+                if (!create) {
+                    throw new IllegalStateException("Checkpoint file " + path + " was not written for this board");
+                }
+                channel.truncate(0); // stale or foreign content: start from empty slots
+            }
+            MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileBytes);
+            CheckpointFile file = new CheckpointFile(channel, mapping, stateBytes, sync);
+            channel = null; // owned by the CheckpointFile from now on
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open checkpoint file " + path, e);
+        } finally {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // the open failure is the one worth reporting
+                }
+            }
+        }
+    }
+
+    /**
+     * Checkpoints the current state of the engine into the older slot.
+     *
+     * @param engine the engine to checkpoint, the one the file was opened for
+     * @param step   the absolute step of the current generation of the engine
+     */
+    public void write(GridEngine engine, int step) {
+        if (engine.stateBytes() != stateBytes) {
+            throw new IllegalArgumentException("Engine does not match the checkpoint file");
+        }
+        int slot = (int) ((sequence + 1) & 1);
+        int base = slot * slotBytes;
+        mapping.putLong(base, 0L);
+
+        engine.writeState(state(base));
+        CRC32C crc = new CRC32C();
+        crc.update(state(base));
+
+        mapping.putInt(base + STEP_OFFSET, step);
+        mapping.putInt(base + CRC_OFFSET, (int) crc.getValue());
+        mapping.putLong(base + FINGERPRINT_OFFSET, engine.configFingerprint());
+        if (sync) {
+            mapping.force();
+        }
+        mapping.putLong(base, ++sequence);
+        if (sync) {
+            mapping.force();
+        }
+    }
+
+    /**
+     * Loads the latest valid checkpoint into a freshly loaded engine.
+     *
+     * @param engine an engine loaded from the same board that was checkpointed,
+     *               with no step computed yet
+     * @return the absolute step of the loaded generation, or -1 if the file
+     *         holds no valid checkpoint
+     * @throws IllegalStateException if the checkpoint was taken on a board with
+     *                               a different size, rules or tile modifiers
+     */
+    public int read(GridEngine engine) {
+        int slot = latestSlot();
+        if (slot < 0) {
+            return -1;
+        }
+        int base = slot * slotBytes;
+        if (engine.stateBytes() != stateBytes
+                || mapping.getLong(base + FINGERPRINT_OFFSET) != engine.configFingerprint()) {
+            throw new IllegalStateException("Checkpoint was taken on a different board");
+        }
+        engine.readState(state(base));
+        return mapping.getInt(base + STEP_OFFSET);
+    }
+
+    /**
+     * Returns the step of the latest valid checkpoint.
+     *
+     * @return the absolute step, or -1 if the file holds no valid checkpoint
+     */
+    public int latestStep() {
+        int slot = latestSlot();
+        return slot < 0 ? -1 : mapping.getInt(slot * slotBytes + STEP_OFFSET);
+    }
+
+    private int latestSlot() {
+        int best = -1;
+        for (int slot = 0; slot < 2; slot++) {
+            long seq = slotSequence(slot);
+            if (seq > 0 && (best < 0 || seq > slotSequence(best)) && checksumMatches(slot)) {
+                best = slot;
+            }
+        }
+        return best;
+    }
+
+    private long slotSequence(int slot) {
+        return mapping.getLong(slot * slotBytes);
+    }
+
+    private boolean checksumMatches(int slot) {
+        int base = slot * slotBytes;
+        CRC32C crc = new CRC32C();
+        crc.update(state(base));
+        return (int) crc.getValue() == mapping.getInt(base + CRC_OFFSET);
+    }
+
+    /**
+     * Returns the engine state area of the slot starting at base, in native byte
+     * order so that the bulk copies of the engine arrays need no byte swapping.
+     */
+    private ByteBuffer state(int base) {
+        return mapping.slice(base + SLOT_HEADER_BYTES, stateBytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Closes the file. The mapping itself is released by the garbage collector,
+     * and the checkpoints already written stay in the file.
+     */
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close checkpoint file", e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package it.polito.extgol;
+
+/**
+ * Detects fixed points and short cycles in a sequence of generation hashes.
+ *
+ * The detector remembers the hashes of the last maxPeriod generations it
+ * observed, so memory and time per generation do not grow with the length of
+ * the run. A generation whose hash equals the one of a generation p steps
+ * earlier, with p at most maxPeriod, closes a cycle of period p; a board that
+ * stopped changing is a cycle of period 1.
+ *
+ * Hashes are 64-bit, so two different states are taken for equal with a
+ * probability in the order of 2^-64 per pair of generations compared.
+ */
+public class CycleDetector {
+
+    private final int maxPeriod;
+
+    /** Step of each remembered hash. */
+    private final LongIntHashMap recent;
+
+    /** Remembered hashes and their steps, oldest at next once the window is full. */
+    private final long[] window;
+    private final int[] windowSteps;
+    private int next;
+    private int count;
+
+    /**
+     * Creates a detector of cycles up to the given period.
+     *
+     * @param maxPeriod the longest period to detect, at least 1
+     * @throws IllegalArgumentException if maxPeriod is not positive
+     */
+    public CycleDetector(int maxPeriod) {
+        if (maxPeriod < 1) {
+            throw new IllegalArgumentException("Maximum period must be positive");
+        }
+        this.maxPeriod = maxPeriod;
+        this.recent = new LongIntHashMap(maxPeriod);
+        this.window = new long[maxPeriod];
+        this.windowSteps = new int[maxPeriod];
+    }
+
+    /**
+     * Records the hash of a generation and checks it against the last ones.
+     * Generations must be observed in consecutive steps.
+     *
+     * @param step the step of the generation, not negative
+     * @param hash the state hash of the generation
+     * @return the period of the cycle the generation closes, or 0 if none
+     */
+    public int observe(int step, long hash) {
+        int seen = recent.get(hash);
+        if (seen != LongIntHashMap.NO_VALUE) {
+            return step - seen;
+        }
+        if (count == maxPeriod) {
+            // forget the generation that falls out of the window
+            if (recent.get(window[next]) == windowSteps[next]) {
+                recent.remove(window[next]);
+            }
+        } else {
+            count++;
+        }
+        window[next] = hash;
+        windowSteps[next] = step;
+        next = (next + 1) % maxPeriod;
+        recent.put(hash, step);
+        return 0;
+    }
+
+    /**
+     * Forgets every observed generation, e.g. after an event broke the
+     * determinism of the sequence.
+     */
+    public void reset() {
+        for (int k = 0; k < count; k++) {
+            recent.remove(window[k]);
+        }
+        next = 0;
+        count = 0;
+    }
+
+    public int getMaxPeriod() {
+        return maxPeriod;
+    }
+}
@@ -0,0 +1,31 @@
+package it.polito.extgol;
+
+/**
+ * Selects the evolution engine used by ExtendedGameOfLife to run a game.
+ */
+public enum EngineMode {
+
+    /**
+     * Evolves the board by walking Tile and Cell entities (the reference implementation).
+     */
+    ENTITY,
+
+    /**
+     * Evolves the board on primitive arrays through GridEngine and materializes
+     * the entities only once per recorded generation.
+     */
+    GRID,
+
+    /**
+     * Like GRID, but evolves horizontal stripes of the board concurrently on the
+     * common ForkJoinPool.
+     */
+    PARALLEL,
+
+    /**
+     * Evolves plain Conway boards (BASIC, NAIVE cells on neutral tiles) through the
+     * memoized quadtree of HashLifeEngine; other boards and runs with events fall
+     * back to GRID.
+     */
+    HASHLIFE
+}
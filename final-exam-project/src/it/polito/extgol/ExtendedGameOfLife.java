@@ -1,16 +1,30 @@
 package it.polito.extgol;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IntSummaryStatistics;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityTransaction;
 
+import org.hibernate.Session;
+
 /**
  * Facade coordinating the core operations of the Extended Game of Life simulation.
  *
@@ -21,8 +35,170 @@ import jakarta.persistence.EntityTransaction;
  */
 public class ExtendedGameOfLife {
 
+    /** Generations saveGameBulk(...) persists between two flushes. */
+    static final int BULK_FLUSH_GENERATIONS = 100;
+
     private static GameRepository gameRepository = new GameRepository();
 
+    /** Engine used by run(...) to compute generations. */
+    private EngineMode engineMode = EngineMode.ENTITY;
+
+    /** Longest cycle period run(...) looks for, 0 when cycle detection is off. */
+    private int maxCyclePeriod = 0;
+
+    /** Whether cycle detection compares lifePoints too. */
+    private boolean cycleLifePoints = true;
+
+    /** File runStreaming(...) checkpoints to, null when checkpointing is off. */
+    private Path checkpointPath = null;
+
+    /** Number of steps between two checkpoints. */
+    private int checkpointInterval = 0;
+
+    /** Whether each checkpoint is forced to the storage device. */
+    private boolean checkpointSync = false;
+
+    /**
+     * Creates a facade that evolves games with the reference entity-based engine.
+     */
+    public ExtendedGameOfLife() {
+    }
+
+    /**
+     * Creates a facade that evolves games with the given engine.
+     *
+     * @param engineMode the engine used by run(...)
+     */
+    public ExtendedGameOfLife(EngineMode engineMode) {
+        setEngineMode(engineMode);
+    }
+
+    /**
+     * Returns the engine used by run(...).
+     *
+     * @return the current EngineMode
+     */
+    public EngineMode getEngineMode() {
+        return engineMode;
+    }
+
+    /**
+     * Selects the engine used by run(...).
+     *
+     * @param engineMode the EngineMode to use, cannot be null
+     */
+    public void setEngineMode(EngineMode engineMode) {
+        this.engineMode = Objects.requireNonNull(engineMode, "Engine mode cannot be null");
+    }
+
+    /**
+     * Returns the longest cycle period run(...) looks for.
+     *
+     * @return the maximum period, or 0 if cycle detection is off
+     */
+    public int getMaxCyclePeriod() {
+        return maxCyclePeriod;
+    }
+
+    /**
+     * Makes run(...) stop as soon as the game falls into a fixed point or a
+     * cycle of period up to maxPeriod, comparing the full state of the cells
+     * (aliveness, lifePoints, mood and pending transitions).
+     *
+     * @param maxPeriod the longest period to detect, 0 to turn detection off
+     * @see #setCycleDetection(int, boolean)
+     */
+    public void setCycleDetection(int maxPeriod) {
+        setCycleDetection(maxPeriod, true);
+    }
+
+    /**
+     * Makes run(...) stop as soon as the game falls into a fixed point or a
+     * cycle of period up to maxPeriod.
+     *
+     * Every generation is hashed by the GridEngine and compared with the last
+     * maxPeriod ones; when a generation repeats an earlier one the run stops
+     * there and records the cycle on the Game (see Game.getCyclePeriod()), so
+     * that the state at any later step can be read from the history through
+     * Game.getEquivalentStep(...). Generations before the last scheduled event
+     * are not compared, since events break the periodicity.
+     *
+     * Comparing lifePoints makes the detected cycles exact, but surviving cells
+     * keep gaining lifePoints, so still lifes and oscillators with survivors are
+     * only detected when lifePoints are left out. That is only sound while
+     * lifePoints cannot change the fate of any cell: when comparison starts no
+     * tile may have an energy modifier, every cell must be NAIVE with no
+     * pending transition and no alive cell may have negative lifePoints. The
+     * recorded cycle then holds for aliveness, moods and rule counters, while
+     * lifePoints keep drifting.
+     *
+     * Detection runs on the GridEngine whatever the engine mode, since it
+     * produces the same history as the other engines.
+     *
+     * @param maxPeriod      the longest period to detect, 0 to turn detection off
+     * @param withLifePoints whether two generations must also agree on lifePoints;
+     *                       if false, run(...) throws IllegalStateException when
+     *                       the game does not meet the conditions above
+     * @throws IllegalArgumentException if maxPeriod is negative
+     */
+    public void setCycleDetection(int maxPeriod, boolean withLifePoints) {
+        if (maxPeriod < 0) {
+            throw new IllegalArgumentException("Maximum period cannot be negative");
+        }
+        this.maxCyclePeriod = maxPeriod;
+        this.cycleLifePoints = withLifePoints;
+    }
+
+    /**
+     * Returns the file runStreaming(...) checkpoints to.
+     *
+     * @return the checkpoint file, or null if checkpointing is off
+     */
+    public Path getCheckpointPath() {
+        return checkpointPath;
+    }
+
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * Makes runStreaming(...) checkpoint the engine state every interval steps
+     * into a memory-mapped CheckpointFile, so that a long run interrupted by a
+     * crash can be completed by resumeStreaming(...) instead of starting over.
+     *
+     * @param file     the checkpoint file, null to turn checkpointing off
+     * @param interval the number of steps between two checkpoints
+     * @see #setCheckpointing(Path, int, boolean)
+     */
+    public void setCheckpointing(Path file, int interval) {
+        setCheckpointing(file, interval, false);
+    }
+
+    /**
+     * Makes runStreaming(...) checkpoint the engine state every interval steps
+     * into a memory-mapped CheckpointFile, so that a long run interrupted by a
+     * crash can be completed by resumeStreaming(...) instead of starting over.
+     *
+     * A checkpoint is a bulk copy of the engine arrays into the page cache, so
+     * it survives a crash of the process at a cost comparable to a few steps on
+     * a sparse board. Surviving a crash of the operating system or a power loss
+     * takes sync, which also flushes the file to the device at every checkpoint.
+     *
+     * @param file     the checkpoint file, null to turn checkpointing off
+     * @param interval the number of steps between two checkpoints
+     * @param sync     whether each checkpoint is forced to the storage device
+     * @throws IllegalArgumentException if file is given and interval is not positive
+     */
+    public void setCheckpointing(Path file, int interval, boolean sync) {
+        if (file != null && interval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        this.checkpointPath = file;
+        this.checkpointInterval = file == null ? 0 : interval;
+        this.checkpointSync = sync;
+    }
+
     /**
      * Computes and returns the next generation based on the current one.
      *
@@ -56,24 +232,25 @@ public class ExtendedGameOfLife {
         }
 
         // step 0 : interaction between cells
-        // create a list of cells in order of coordinates
+        // visit alive cells in order of coordinates (x, then y)
         List<Cell> aliveCells = current.getAliveCells()
                                        .stream()
                                        .sorted(Comparator.comparing(Cell::getX).thenComparing(Cell::getY))
                                        .collect(Collectors.toList());
-        // create a set to store all interactions between cells in order to avoid multiple interactions between two cells
-        Set<String> interactions = new HashSet<>();                   
+        // each cell only interacts with the neighbors coming later in that order,
+        // so every pair of neighbors interacts exactly once and always in the same order;
+        // on a bounded board these are (x, y+1), (x+1, y-1), (x+1, y), (x+1, y+1)
+        int[] neighbors = board.getNeighborTable();
+        int sentinel = board.getWidth() * board.getHeight();
         for (Cell cell : aliveCells) {
-            List<Cell> neighbors = cell.getNeighbors()
-                                       .stream()
-                                       .map(Tile::getCell)
-                                       .collect(Collectors.toList());
-
-            for (Cell neighbor : neighbors) {
-                String key = cell.hashCode() > neighbor.hashCode() ? cell.hashCode()+ ":" + neighbor.hashCode() : neighbor.hashCode() + ":" + cell.hashCode();
-                if (!interactions.contains(key)) { // if the interaction has not happened yet, make the cells interact and store the interaction
-                    interactions.add(key);
-                    cell.interact(neighbor);
+            int slot = board.indexOf(cell.getX(), cell.getY()) * Board.NEIGHBOR_SLOTS;
+            for (int k = 0; k < Board.NEIGHBOR_SLOTS; k++) {
+                int n = neighbors[slot + k];
+                if (n == sentinel) continue;
+                Tile neighbor = board.getTile(n);
+                if (neighbor.getX() > cell.getX()
+                        || (neighbor.getX() == cell.getX() && neighbor.getY() > cell.getY())) {
+                    cell.interact(neighbor.getCell());
                 }
             }
         }
@@ -155,6 +332,15 @@ public class ExtendedGameOfLife {
      * @return The same Game instance, updated with the new generation.
      */
     public Game run(Game game, int steps) {
+        if (maxCyclePeriod > 0) {
+            return runOnGrid(game, steps, null);
+        }
+        if (engineMode == EngineMode.HASHLIFE && HashLifeEngine.supports(game.getBoard())) {
+            return runOnHashLife(game, steps);
+        }
+        if (engineMode != EngineMode.ENTITY) {
+            return runOnGrid(game, steps, null);
+        }
         Generation current = game.getStart();
         for (int i = 0; i < steps; i++) {
             Generation next = evolve(current);
@@ -183,7 +369,9 @@ public class ExtendedGameOfLife {
      * @return          The same Game instance, now containing the extended generation history.
      */
     public Game run(Game game, int steps, Map<Integer, EventType> eventMap) {
-        // TODO: implement for R3
+        if (engineMode != EngineMode.ENTITY || maxCyclePeriod > 0) {
+            return runOnGrid(game, steps, eventMap);
+        }
         Generation current = game.getStart();
         for (int i = 0; i < steps; i++) {
             if (eventMap.keySet().contains(current.getStep())){ //there is an event for that generation
@@ -208,6 +396,366 @@ public class ExtendedGameOfLife {
        
     }
 
+    /**
+     * Creates the GridEngine matching the selected engine mode.
+     *
+     * @param board the Board to load into the engine
+     * @return a GridEngine, sharing the common ForkJoinPool in PARALLEL mode
+     */
+    private GridEngine createEngine(Board board) {
+        if (engineMode == EngineMode.PARALLEL) {
+            return new GridEngine(board, ForkJoinPool.commonPool());
+        }
+        return new GridEngine(board);
+    }
+
+    /**
+     * Runs the game on a GridEngine loaded from the board, materializing one
+     * Generation per step so that the resulting history matches the entity engine.
+     * Stops early when cycle detection is on and the game falls into a cycle.
+     *
+     * @param game     the Game instance to run and update
+     * @param steps    the number of generations to simulate
+     * @param eventMap the events to trigger by generation step, or null for none
+     * @return the same Game instance, now containing the extended generation history
+     */
+    private Game runOnGrid(Game game, int steps, Map<Integer, EventType> eventMap) {
+        Generation current = game.getStart();
+        GridEngine engine = createEngine(current.getBoard());
+        CycleDetector detector = null;
+        int lastEvent = -1;
+        if (maxCyclePeriod > 0) {
+            detector = new CycleDetector(maxCyclePeriod);
+            engine.trackStateHash(cycleLifePoints);
+            if (eventMap != null && !eventMap.isEmpty()) {
+                lastEvent = eventMap.keySet().stream().max(Comparator.naturalOrder()).get();
+            }
+            if (current.getStep() > lastEvent) {
+                checkCycleDetection(engine);
+                detector.observe(current.getStep(), engine.getStateHash());
+            }
+        }
+        for (int i = 0; i < steps; i++) {
+            if (eventMap != null) {
+                EventType event = eventMap.get(current.getStep());
+                current.setEvent(event);
+                if (event != null) {
+                    game.getEventMapInternal().put(current.getStep(), event);
+                    engine.applyEvent(event);
+                }
+            }
+            engine.step();
+            current = engine.materialize(current);
+            if (detector != null && current.getStep() > lastEvent) {
+                if (current.getStep() == lastEvent + 1) {
+                    checkCycleDetection(engine);
+                }
+                int period = detector.observe(current.getStep(), engine.getStateHash());
+                if (period > 0) {
+                    game.recordCycle(current.getStep() - period, period);
+                    break;
+                }
+            }
+        }
+        return game;
+    }
+
+    /**
+     * Checks, before the first generation is compared, that leaving lifePoints
+     * out of the comparison cannot report a cycle the game does not have.
+     *
+     * @param engine the GridEngine holding the first compared generation
+     * @throws IllegalStateException if lifePoints are ignored but still matter
+     */
+    private void checkCycleDetection(GridEngine engine) {
+        if (!cycleLifePoints && !engine.lifePointsAreInert()) {
+            throw new IllegalStateException("Cycles cannot be detected without lifePoints: "
+                    + "energy modifiers, HEALER or VAMPIRE cells or negative lifePoints affect this game");
+        }
+    }
+
+    /**
+     * Runs a plain Conway game on a HashLifeEngine, materializing one Generation
+     * per step so that the resulting history matches the entity engine. Every
+     * generation is needed here, since lifePoints depend on each of them;
+     * fastForward(...) is the path that jumps and reads only the last.
+     *
+     * @param game  the Game instance to run and update
+     * @param steps the number of generations to simulate
+     * @return the same Game instance, now containing the extended generation history
+     */
+    private Game runOnHashLife(Game game, int steps) {
+        Generation[] current = { game.getStart() };
+        advanceOnHashLife(game.getBoard(), steps, engine -> current[0] = engine.materialize(current[0]));
+        return game;
+    }
+
+    /**
+     * Advances a plain Conway board on a HashLifeEngine.
+     *
+     * When every intermediate generation is needed the engine is stepped one
+     * generation at a time and handed to everyStep after each; otherwise it
+     * advances in the largest power-of-two jumps that stay on the board and
+     * only its final state is left to read.
+     *
+     * @param board       the plain Conway Board to load
+     * @param generations the number of generations to compute
+     * @param everyStep   called after each generation, or null if intermediate
+     *                    generations are not needed
+     * @return the engine, at the last computed generation
+     * @throws IllegalArgumentException if the board is not a plain Conway board
+     */
+    private static HashLifeEngine advanceOnHashLife(Board board, long generations,
+            Consumer<HashLifeEngine> everyStep) {
+        HashLifeEngine engine = new HashLifeEngine(board);
+        if (everyStep == null) {
+            engine.advance(generations);
+            return engine;
+        }
+        for (long i = 0; i < generations; i++) {
+            engine.step();
+            everyStep.accept(engine);
+        }
+        return engine;
+    }
+
+    /**
+     * Computes the alive cells of a plain Conway game far in the future without
+     * recording the intermediate generations.
+     *
+     * The HashLifeEngine jumps 2^k generations at once whenever the pattern provably
+     * stays on the board, so periodic or repetitive patterns cost roughly logarithmic
+     * time in the number of generations. The game itself is left untouched: lifePoints
+     * depend on each intermediate generation and are not computed.
+     *
+     * @param game        the Game whose current board state is evolved
+     * @param generations the number of generations to skip
+     * @return the coordinates of the alive cells after the given number of generations
+     * @throws IllegalArgumentException if the board is not a plain Conway board
+     */
+    public Set<Coord> fastForward(Game game, long generations) {
+        return advanceOnHashLife(game.getBoard(), generations, null).getAliveCoords();
+    }
+
+    /**
+     * Evolves the game generation by generation as an unbounded lazy Stream,
+     * without recording any Generation.
+     *
+     * Each element is the generation following the previous one, starting from
+     * the current board state as step 0, with the events of the map applied at
+     * their steps as run(...) does. Elements are flyweight views valid until the
+     * next element is pulled; call GenerationView.copy() to keep one. Use
+     * limit(...) or a short-circuiting operation to bound the stream. The game,
+     * its board and its cells are left untouched.
+     *
+     * @param game     the Game whose board state is evolved
+     * @param eventMap the events to trigger by generation step, or null for none
+     * @return an infinite, ordered Stream of GenerationView
+     */
+    public Stream<GenerationView> stream(Game game, Map<Integer, EventType> eventMap) {
+        GridEngine engine = createEngine(game.getBoard());
+        int start = game.getStart().getStep();
+        Iterator<GenerationView> generations = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public GenerationView next() {
+                return advance(engine, start, eventMap);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(generations,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Evolves the game through the given number of steps, handing every new
+     * generation to the sink and keeping only what the retention policy asks for.
+     *
+     * Memory does not grow with the number of steps unless the policy retains
+     * generations: no Generation entity is created and no Cell tracks the steps.
+     * The game, its board and its cells are left untouched. When checkpointing
+     * is set, every generation whose step is a multiple of the interval is
+     * checkpointed after the sink has seen it.
+     *
+     * @param game      the Game whose board state is evolved
+     * @param steps     the number of generations to simulate
+     * @param eventMap  the events to trigger by generation step, or null for none
+     * @param retention which generations to keep after the sink has seen them
+     * @param sink      the consumer of each generation, as a flyweight view valid
+     *                  only during the call
+     * @return the retained generations, as detached copies in step order
+     */
+    public List<GenerationView> runStreaming(Game game, int steps, Map<Integer, EventType> eventMap,
+                                             HistoryRetention retention, Consumer<GenerationView> sink) {
+        Objects.requireNonNull(retention, "Retention cannot be null");
+        Objects.requireNonNull(sink, "Sink cannot be null");
+        GridEngine engine = createEngine(game.getBoard());
+        int start = game.getStart().getStep();
+        return streamSteps(engine, start, steps, eventMap, retention, sink);
+    }
+
+    /**
+     * Evolves the game through the given number of steps like runStreaming(...),
+     * writing the current generation and every new one to a history file that
+     * HistoryFile can replay from any step, instead of keeping them in memory.
+     *
+     * @param game     the Game whose board state is evolved
+     * @param steps    the number of generations to simulate
+     * @param eventMap the events to trigger by generation step, or null for none
+     * @param file     the history file, replaced if it exists
+     * @throws java.io.UncheckedIOException if the file cannot be written
+     */
+    public void recordHistory(Game game, int steps, Map<Integer, EventType> eventMap, Path file) {
+        Board board = game.getBoard();
+        HistoryWriter writer = HistoryWriter.create(file, board.getWidth(), board.getHeight());
+        try {
+            writer.append(createEngine(board).view(game.getStart().getStep()));
+            runStreaming(game, steps, eventMap, HistoryRetention.none(), writer);
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Completes a runStreaming(...) interrupted after its last checkpoint.
+     *
+     * Called with the arguments of the interrupted run, it loads the latest
+     * checkpoint of the file into an engine built from the board of the game
+     * and streams the generations from the one after the checkpoint up to the
+     * last one of the original run. Steps keep the numbering of the original
+     * run, and events are applied at the same steps; generations the original
+     * run computed after its last checkpoint are computed again. Checkpointing
+     * goes on if it is set. The game, its board and its cells are left untouched.
+     *
+     * The game must be in the state the original run started from: the
+     * checkpoint holds the evolving state of the cells, while their rules and
+     * the tiles' energy modifiers are read from the board.
+     *
+     * @param game      the Game the interrupted run evolved
+     * @param file      the checkpoint file written by the interrupted run
+     * @param steps     the number of generations of the interrupted run
+     * @param eventMap  the events of the interrupted run, or null for none
+     * @param retention which of the resumed generations to keep
+     * @param sink      the consumer of each resumed generation, as a flyweight
+     *                  view valid only during the call
+     * @return the retained generations, as detached copies in step order
+     * @throws IllegalStateException        if the file holds no valid checkpoint or
+     *                                      was written for a different board
+     * @throws java.io.UncheckedIOException if the file does not exist or cannot be read
+     */
+    public List<GenerationView> resumeStreaming(Game game, Path file, int steps, Map<Integer, EventType> eventMap,
+                                                HistoryRetention retention, Consumer<GenerationView> sink) {
+        Objects.requireNonNull(file, "Checkpoint file cannot be null");
+        Objects.requireNonNull(retention, "Retention cannot be null");
+        Objects.requireNonNull(sink, "Sink cannot be null");
+        GridEngine engine = createEngine(game.getBoard());
+        int checkpoint;
+        CheckpointFile checkpoints = CheckpointFile.openExisting(file, engine);
+        try {
+            checkpoint = checkpoints.read(engine);
+        } finally {
+            checkpoints.close();
+        }
+        if (checkpoint < 0) {
+            throw new IllegalStateException("No valid checkpoint in " + file);
+        }
+        int end = game.getStart().getStep() + steps;
+        return streamSteps(engine, checkpoint, Math.max(0, end - checkpoint), eventMap, retention, sink);
+    }
+
+    /**
+     * Streams the given number of steps of an engine whose current generation
+     * is the one at step start, checkpointing it when checkpointing is on.
+     */
+    private List<GenerationView> streamSteps(GridEngine engine, int start, int steps,
+                                             Map<Integer, EventType> eventMap,
+                                             HistoryRetention retention, Consumer<GenerationView> sink) {
+        int capacity = retention.capacity();
+        Deque<GenerationView> retained = new ArrayDeque<>();
+        CheckpointFile checkpoints = checkpointPath == null
+                ? null
+                : CheckpointFile.open(checkpointPath, engine, checkpointSync);
+        try {
+            for (int i = 0; i < steps; i++) {
+                GenerationView view = advance(engine, start, eventMap);
+                sink.accept(view);
+                if (retention.retains(view.getStep())) {
+                    if (retained.size() == capacity) {
+                        retained.removeFirst();
+                    }
+                    retained.addLast(view.copy());
+                }
+                if (checkpoints != null && view.getStep() % checkpointInterval == 0) {
+                    checkpoints.write(engine, view.getStep());
+                }
+            }
+        } finally {
+            if (checkpoints != null) {
+                checkpoints.close();
+            }
+        }
+        return new ArrayList<>(retained);
+    }
+
+    /**
+     * Evolves the game through the given number of steps like runStreaming(...),
+     * or returns the outcome of an identical earlier run from the cache.
+     *
+     * Two runs are identical when they start from the same board state (cell
+     * and tile properties included) with the same events and steps, see
+     * SimulationCache.keyOf(...). Only the final generation and the statistics
+     * of the run are returned; no Generation is recorded and the game, its board
+     * and its cells are left untouched.
+     *
+     * @param game     the Game whose board state is evolved
+     * @param steps    the number of generations to simulate
+     * @param eventMap the events to trigger by generation step, or null for none
+     * @param cache    the cache to look up and fill
+     * @return the outcome of the run
+     */
+    public CachedRun runCached(Game game, int steps, Map<Integer, EventType> eventMap, SimulationCache cache) {
+        Objects.requireNonNull(cache, "Cache cannot be null");
+        long key = SimulationCache.keyOf(game, eventMap, steps);
+        Optional<CachedRun> cached = cache.get(key);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        IntSummaryStatistics aliveStats = new IntSummaryStatistics();
+        int[] extinctAt = { -1 };
+        List<GenerationView> last = runStreaming(game, steps, eventMap, HistoryRetention.keepLast(1), view -> {
+            int alive = view.countAlive();
+            aliveStats.accept(alive);
+            if (alive == 0 && extinctAt[0] < 0) {
+                extinctAt[0] = view.getStep();
+            }
+        });
+        GenerationView finalState = last.isEmpty()
+                ? createEngine(game.getBoard()).view(game.getStart().getStep()).copy()
+                : last.get(0);
+        CachedRun run = new CachedRun(steps, finalState, aliveStats, extinctAt[0]);
+        cache.put(key, run);
+        return run;
+    }
+
+    /**
+     * Applies the event scheduled for the current engine step, if any, then
+     * computes the next generation.
+     */
+    private GenerationView advance(GridEngine engine, int start, Map<Integer, EventType> eventMap) {
+        if (eventMap != null) {
+            EventType event = eventMap.get(start + engine.getStep());
+            if (event != null) {
+                engine.applyEvent(event);
+            }
+        }
+        engine.step();
+        return engine.view(start);
+    }
+
     /**
      * Builds and returns a map associating each coordinate with its alive Cell 
      * instance for the specified generation.
@@ -251,15 +799,79 @@ public class ExtendedGameOfLife {
      * @param game The Game instance to persist or update.
      */
     public void saveGame(Game game) {
-        EntityManager em = JPAUtil.getEntityManager();
-        EntityTransaction tx = em.getTransaction();
-        try {
-            tx.begin();
+        inTransaction(em -> {
             if (game.getId() == null) {
                 em.persist(game);
             } else {
                 em.merge(game);
             }
+        });
+    }
+
+    /**
+     * Persists the complete state of the provided Game like saveGame(...), tuned
+     * for games with long histories, and reports the achieved throughput.
+     *
+     * A new game is persisted first with its board, tiles and cells only; its
+     * generations follow in chunks of BULK_FLUSH_GENERATIONS, each flushed and
+     * then cleared from the persistence context, so that the context and its
+     * dirty checking stay small however long the history. Tiles, cells and
+     * generations take their identifiers from pooled sequences, so the inserts
+     * of each table (generation_state, energy and mood rows above all) are sent
+     * in JDBC batches of JPAUtil.ID_ALLOCATION_SIZE statements.
+     *
+     * A game that is already stored is merged as saveGame(...) does, and its
+     * report counts the rows of the generations added since it was stored: the
+     * rows it already had are at most updated in place and are not counted.
+     *
+     * @param game The Game instance to persist or update.
+     * @return a SaveReport with the number of rows written and the rows per second
+     */
+    public SaveReport saveGameBulk(Game game) {
+        long start = System.nanoTime();
+        if (game.getId() != null) {
+            long rows = countGenerationRows(game, true);
+            saveGame(game);
+            return new SaveReport(rows, System.nanoTime() - start);
+        }
+        Board board = game.getBoard();
+        long rows = 2 + board.getTiles().size() + board.getCellSet().size() // game, board, tiles, cells
+                + game.getEventMapInternal().size() + countGenerationRows(game, false);
+        List<Generation> history = game.swapGenerations(new ArrayList<>());
+        try {
+            inTransaction(em -> {
+                em.unwrap(Session.class).setJdbcBatchSize(JPAUtil.ID_ALLOCATION_SIZE);
+                em.persist(game);
+                em.flush();
+                em.clear();
+                int pending = 0;
+                for (Generation generation : history) {
+                    em.persist(generation); // its game, board and cells are stored, by reference
+                    if (++pending == BULK_FLUSH_GENERATIONS) {
+                        em.flush();
+                        em.clear();
+                        pending = 0;
+                    }
+                }
+            });
+        } finally {
+            game.swapGenerations(history);
+        }
+        return new SaveReport(rows, System.nanoTime() - start);
+    }
+
+    /**
+     * Runs a unit of work in a transaction of its own EntityManager, committing
+     * it on success and rolling it back on failure.
+     *
+     * @param work the operations to run with the EntityManager
+     */
+    private static void inTransaction(Consumer<EntityManager> work) {
+        EntityManager em = JPAUtil.getEntityManager();
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            work.accept(em);
             tx.commit();
         } catch (RuntimeException e) {
             if (tx.isActive()) {
@@ -271,6 +883,23 @@ public class ExtendedGameOfLife {
         }
     }
 
+    /**
+     * Counts the generation and per-generation state rows of a game.
+     *
+     * @param game    the Game to inspect
+     * @param newOnly true to count only the generations not stored yet
+     * @return the number of generation and state rows
+     */
+    private static long countGenerationRows(Game game, boolean newOnly) {
+        long rows = 0;
+        for (Generation generation : game.getGenerations()) {
+            if (!newOnly || generation.getId() == null) {
+                rows += 1 + generation.countStoredStates();
+            }
+        }
+        return rows;
+    }
+
     /**
      * Loads and returns a persisted map of game events keyed by generation step.
      *
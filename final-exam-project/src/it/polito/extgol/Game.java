@@ -10,6 +10,8 @@ import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
 import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -18,8 +20,9 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.MapKeyColumn;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
-import jakarta.persistence.OrderColumn;
+import jakarta.persistence.OrderBy;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 
 
 /**
@@ -33,6 +36,9 @@ import jakarta.persistence.Table;
 @Table(name = "games")
 public class Game {
 
+    /** Default number of generations between two full keyframes in DELTA storage. */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 32;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -62,7 +68,8 @@ public class Game {
      * List of all generations in this game, including the initial.
      * 
      * All generations (including initial) in time order.  
-     * Uses an ORDER_COLUMN so the DB keeps the sequence.
+     * The position of a generation is its step, so the list is ordered by step
+     * when loaded and generations can be stored apart from the game.
      */
     @OneToMany(
       mappedBy       = "game",
@@ -70,7 +77,7 @@ public class Game {
       orphanRemoval  = true,
       fetch          = FetchType.LAZY
     )
-    @OrderColumn(name = "generation_index")
+    @OrderBy("step ASC")
     private List<Generation> generations = new ArrayList<>();
 
    @ElementCollection
@@ -79,6 +86,43 @@ public class Game {
     @Column(name = "event_type")
     private Map<Integer, EventType> eventMap = new HashMap<>();
 
+    /**
+     * How generations record the cell states; FULL unless opted in.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "generation_storage")
+    private GenerationStorage generationStorage = GenerationStorage.FULL;
+
+    /**
+     * Number of generations between two full keyframes in DELTA storage.
+     */
+    @Column(name = "keyframe_interval")
+    private Integer keyframeInterval = DEFAULT_KEYFRAME_INTERVAL;
+
+    /**
+     * Period of the cycle the run fell into, null if none was detected.
+     */
+    @Column(name = "cycle_period")
+    private Integer cyclePeriod;
+
+    /**
+     * First step of the detected cycle, null if none was detected.
+     */
+    @Column(name = "cycle_start")
+    private Integer cycleStart;
+
+    /** State of the last captured generation, the base of the next delta. */
+    @Transient
+    private CellStates tipStates;
+
+    /** Last state reconstructed from deltas, reused by consecutive lookups. */
+    @Transient
+    private CellStates resolvedStates;
+
+    /** Generation resolvedStates belongs to. */
+    @Transient
+    private Generation resolvedGeneration;
+
     /**
      * Default constructor for JPA.
      */
@@ -148,6 +192,26 @@ public class Game {
         return game;
     }
 
+    /**
+     * Factory method to create and fully initialize an extended Game instance
+     * whose board edges are connected according to the given topology.
+     *
+     * @param name     the human-readable name for this game instance
+     * @param width    the number of columns for the game board
+     * @param height   the number of rows for the game board
+     * @param topology how the edges of the board are connected
+     * @return a new Game configured with its extended board and initial generation
+     * @throws IllegalArgumentException if a wrapping topology is requested for a
+     *                                  board with fewer than 3 columns or rows
+     */
+    public static Game createExtended(String name, int width, int height, Topology topology) {
+        Game game = new Game(name);
+        Board board = Board.createExtended(width, height, game, topology);
+        game.setBoard(board);
+        Generation.createInitial(game, board);
+        return game;
+    }
+
      /**
      * Appends a new Generation to the end of this game’s timeline.
      * Sets the generation’s back-reference to this Game before adding.
@@ -179,6 +243,36 @@ public class Game {
      */
     public void clearGenerations() {
         generations.clear();
+        tipStates = null;
+        resolvedStates = null;
+        resolvedGeneration = null;
+    }
+
+    /**
+     * Replaces the history of a detached game with a lazily loaded one, see
+     * GameRepository.loadPaged(...).
+     *
+     * @param history the read-only history, indexed by step
+     */
+    void setLazyGenerations(List<Generation> history) {
+        this.generations = history;
+        this.tipStates = null;
+        this.resolvedStates = null;
+        this.resolvedGeneration = null;
+    }
+
+    /**
+     * Replaces the generation list of this game and returns the previous one,
+     * leaving the cell state caches alone. Lets ExtendedGameOfLife.saveGameBulk
+     * persist the game and its history separately.
+     *
+     * @param history the list to install
+     * @return the list installed before
+     */
+    List<Generation> swapGenerations(List<Generation> history) {
+        List<Generation> previous = this.generations;
+        this.generations = history;
+        return previous;
     }
 
     /**
@@ -235,6 +329,122 @@ public class Game {
         this.board = b;
     }
 
+    /**
+     * Returns how generations of this game record the cell states.
+     *
+     * @return the GenerationStorage in use
+     */
+    public GenerationStorage getGenerationStorage() {
+        return generationStorage == null ? GenerationStorage.FULL : generationStorage;
+    }
+
+    /**
+     * Returns the number of generations between two full keyframes in DELTA storage.
+     *
+     * @return the keyframe interval
+     */
+    public int getKeyframeInterval() {
+        return keyframeInterval == null ? DEFAULT_KEYFRAME_INTERVAL : keyframeInterval;
+    }
+
+    /**
+     * Selects how the generations of this game record the cell states.
+     *
+     * In DELTA storage a generation whose step is a multiple of the keyframe
+     * interval stores every cell, while the others store only what changed since
+     * the previous generation. In PACKED storage every generation keeps the state
+     * of all cells in one compressed binary column and the interval is ignored.
+     * The getters of Generation return the full state either way. Must be chosen
+     * before the game is run.
+     *
+     * @param storage          the GenerationStorage to use, cannot be null
+     * @param keyframeInterval the number of generations between two keyframes, at least 1
+     * @throws IllegalStateException if generations past the initial one already exist
+     */
+    public void setGenerationStorage(GenerationStorage storage, int keyframeInterval) {
+        if (storage == null) {
+            throw new IllegalArgumentException("Generation storage cannot be null");
+        }
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("Keyframe interval must be positive");
+        }
+        if (generations.size() > 1) {
+            throw new IllegalStateException("Generation storage must be chosen before running the game");
+        }
+        this.generationStorage = storage;
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * Returns the period of the cycle detected while running the game: 1 for a
+     * board that stopped changing, p if every generation from getCycleStart()
+     * on repeats the one p steps earlier.
+     *
+     * @return the detected period, or null if the run detected no cycle
+     */
+    public Integer getCyclePeriod() {
+        return cyclePeriod;
+    }
+
+    /**
+     * Returns the first step of the detected cycle: the generation at step
+     * getCycleStart() + getCyclePeriod() has the same state as this one.
+     *
+     * @return the first step of the cycle, or null if the run detected no cycle
+     */
+    public Integer getCycleStart() {
+        return cycleStart;
+    }
+
+    /**
+     * Maps a step to the earliest recorded step holding the same state, using
+     * the detected cycle to answer for steps past the end of a run that
+     * stopped early.
+     *
+     * @param step a generation step, not negative
+     * @return the step itself if no cycle was detected or it precedes the
+     *         cycle, otherwise the matching step within the first period
+     * @throws IllegalArgumentException if step is negative
+     */
+    public int getEquivalentStep(int step) {
+        if (step < 0) {
+            throw new IllegalArgumentException("Step cannot be negative");
+        }
+        if (cyclePeriod == null || step < cycleStart) {
+            return step;
+        }
+        return cycleStart + (step - cycleStart) % cyclePeriod;
+    }
+
+    void recordCycle(int start, int period) {
+        this.cycleStart = start;
+        this.cyclePeriod = period;
+    }
+
+    CellStates getTipStates() {
+        return tipStates;
+    }
+
+    void setTipStates(CellStates tipStates) {
+        this.tipStates = tipStates;
+    }
+
+    /**
+     * Returns the last state reconstructed from deltas, or null if none.
+     */
+    CellStates getResolvedStates() {
+        return resolvedStates;
+    }
+
+    Generation getResolvedGeneration() {
+        return resolvedGeneration;
+    }
+
+    void setResolvedStates(Generation generation, CellStates states) {
+        this.resolvedGeneration = generation;
+        this.resolvedStates = states;
+    }
+
     /**
      * Returns the initial Generation of the game (step 0).
      *
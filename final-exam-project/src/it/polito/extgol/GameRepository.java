@@ -1,10 +1,22 @@
 package it.polito.extgol;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityTransaction;
 
 public class GameRepository extends GenericExtGOLRepository<Game,Long>{
 
+    /** Number of consecutive generations loadPaged(...) reads per query by default. */
+    public static final int DEFAULT_PAGE_SIZE = 256;
+
+    /** Number of pages loadPaged(...) keeps in memory by default. */
+    public static final int DEFAULT_MAX_PAGES = 16;
+
     protected GameRepository() {
         super(Game.class);
     }
@@ -35,4 +47,110 @@ public class GameRepository extends GenericExtGOLRepository<Game,Long>{
     
     }
 
+    /**
+     * Loads a stored game without its generation history, which is read from
+     * the database on demand with the default page size and number of pages.
+     *
+     * @param id the identifier of the stored game
+     * @return the detached game, with a lazily loaded history
+     * @see #loadPaged(Long, int, int)
+     */
+    public static Game loadPaged(Long id) {
+        return loadPaged(id, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    /**
+     * Loads a stored game without its generation history, for browsing games
+     * too long to hold in memory.
+     *
+     * Only the game, its events and its board are read; the history counts its
+     * generations with one query and reads pageSize consecutive generations at
+     * a time when a step is first accessed, keeping the last maxPages pages in
+     * memory. Opening a game therefore costs the same whatever the length of
+     * its history. The history is read-only and the game is meant for replay:
+     * run(...) cannot extend it, and saving it back would read every page.
+     *
+     * @param id       the identifier of the stored game
+     * @param pageSize the number of generations read per query
+     * @param maxPages the number of pages kept in memory
+     * @return the detached game, with a lazily loaded history
+     * @throws IllegalArgumentException if no game has that identifier, or the
+     *                                  page size or number of pages is not positive
+     */
+    public static Game loadPaged(Long id, int pageSize, int maxPages) {
+        Objects.requireNonNull(id, "Game id cannot be null");
+        if (pageSize < 1 || maxPages < 1) {
+            throw new IllegalArgumentException("Page size and number of pages must be positive");
+        }
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            List<Game> found = em.createQuery(
+                    "SELECT g FROM Game g JOIN FETCH g.board WHERE g.id = :id", Game.class)
+                .setParameter("id", id)
+                .getResultList();
+            if (found.isEmpty()) {
+                throw new IllegalArgumentException("No stored game with id " + id);
+            }
+            Game game = found.get(0);
+            game.getEventMapInternal().isEmpty(); //load event map
+            Map<Long, Cell> cellsById = new HashMap<>();
+            for (Cell cell : game.getBoard().getCellSet()) { //load board
+                cellsById.put(cell.getId(), cell);
+            }
+            long count = em.createQuery(
+                    "SELECT COUNT(gen) FROM Generation gen WHERE gen.game.id = :id", Long.class)
+                .setParameter("id", id)
+                .getSingleResult();
+            em.detach(game);
+            game.setLazyGenerations(new PagedGenerations(game, Math.toIntExact(count), pageSize, maxPages, cellsById));
+            return game;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Looks for a stored game that started from the same configuration as the
+     * given one: same board size and topology, and the same initial state hash
+     * (see Generation.getStateHash()).
+     *
+     * The lookup goes through the indexed state_hash column, so its cost does
+     * not depend on the number of stored games; different configurations
+     * sharing a hash are possible but with a probability in the order of 2^-64.
+     * The returned game is detached, with its lazy associations not loaded.
+     *
+     * @param candidate the game whose initial configuration is looked up
+     * @return a stored game other than the candidate with the same initial
+     *         configuration, or empty if none
+     * @throws IllegalArgumentException if the initial generation of the
+     *                                  candidate has no state hash
+     */
+    public Optional<Game> findByInitialState(Game candidate) {
+        Objects.requireNonNull(candidate, "Game cannot be null");
+        Long hash = candidate.getStart().getStateHash();
+        if (hash == null) {
+            throw new IllegalArgumentException("Initial generation has no state hash");
+        }
+        Board board = candidate.getBoard();
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            List<Game> matches = em.createQuery(
+                    "SELECT g FROM Game g JOIN g.generations gen JOIN FETCH g.board b"
+                    + " WHERE gen.step = 0 AND gen.stateHash = :hash"
+                    + " AND b.width = :width AND b.height = :height", Game.class)
+                .setParameter("hash", hash)
+                .setParameter("width", board.getWidth())
+                .setParameter("height", board.getHeight())
+                .getResultList();
+            for (Game game : matches) {
+                boolean self = game.getId() != null && game.getId().equals(candidate.getId());
+                if (!self && game.getBoard().getTopology() == board.getTopology()) {
+                    return Optional.of(game);
+                }
+            }
+            return Optional.empty();
+        } finally {
+            em.close();
+        }
+    }
 }
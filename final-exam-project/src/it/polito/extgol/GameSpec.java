@@ -0,0 +1,166 @@
+package it.polito.extgol;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable description of one experiment run by the BatchRunner: the board
+ * size and topology, the initial pattern, the cell types, the events and the
+ * number of steps.
+ *
+ * Create it with of(...) and refine it with the with...(...) methods, each
+ * returning a new spec, so that a base spec can be shared across a sweep.
+ */
+public final class GameSpec {
+
+    private final String name;
+    private final int width;
+    private final int height;
+    private final int steps;
+    private final Topology topology;
+    private final List<Coord> alive;
+    private final Map<Coord, CellType> types;
+    private final Map<Integer, EventType> events;
+
+    private GameSpec(String name, int width, int height, int steps, Topology topology,
+                     List<Coord> alive, Map<Coord, CellType> types, Map<Integer, EventType> events) {
+        this.name = name;
+        this.width = width;
+        this.height = height;
+        this.steps = steps;
+        this.topology = topology;
+        this.alive = alive;
+        this.types = types;
+        this.events = events;
+    }
+
+    /**
+     * Creates the spec of a bounded board with no alive cell, BASIC cells and no event.
+     *
+     * @param name   the name identifying the experiment in the results
+     * @param width  the number of columns of the board
+     * @param height the number of rows of the board
+     * @param steps  the number of generations to simulate
+     * @return the new spec
+     * @throws IllegalArgumentException if the board is empty or steps is negative
+     */
+    public static GameSpec of(String name, int width, int height, int steps) {
+        Objects.requireNonNull(name, "Name cannot be null");
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Board must have at least one tile");
+        }
+        if (steps < 0) {
+            throw new IllegalArgumentException("Steps cannot be negative");
+        }
+        return new GameSpec(name, width, height, steps, Topology.BOUNDED, List.of(), Map.of(), Map.of());
+    }
+
+    /**
+     * Returns a copy of this spec with the given initial pattern.
+     *
+     * @param alive the coordinates of the initially alive cells
+     * @return the new spec
+     */
+    public GameSpec withAlive(Collection<Coord> alive) {
+        return new GameSpec(name, width, height, steps, topology, List.copyOf(alive), types, events);
+    }
+
+    /**
+     * Returns a copy of this spec with the given cell types; cells not in the
+     * map are BASIC.
+     *
+     * @param types the CellType of the cells by coordinates
+     * @return the new spec
+     */
+    public GameSpec withTypes(Map<Coord, CellType> types) {
+        return new GameSpec(name, width, height, steps, topology, alive, Map.copyOf(types), events);
+    }
+
+    /**
+     * Returns a copy of this spec with the given events.
+     *
+     * @param events the events to trigger by generation step
+     * @return the new spec
+     */
+    public GameSpec withEvents(Map<Integer, EventType> events) {
+        return new GameSpec(name, width, height, steps, topology, alive, types, Map.copyOf(events));
+    }
+
+    /**
+     * Returns a copy of this spec with the given board topology.
+     *
+     * @param topology how the edges of the board are connected
+     * @return the new spec
+     */
+    public GameSpec withTopology(Topology topology) {
+        Objects.requireNonNull(topology, "Topology cannot be null");
+        return new GameSpec(name, width, height, steps, topology, alive, types, events);
+    }
+
+    /**
+     * Builds the in-memory game described by this spec.
+     *
+     * @return a new Game at step 0 holding the initial pattern
+     * @throws IllegalArgumentException if a coordinate falls outside the board
+     */
+    Game toGame() {
+        Game game = Game.createExtended(name, width, height, topology);
+        Board board = game.getBoard();
+        for (Map.Entry<Coord, CellType> e : types.entrySet()) {
+            cellAt(board, e.getKey()).setType(e.getValue());
+        }
+        for (Coord c : alive) {
+            cellAt(board, c); // reject patterns not fitting the board
+        }
+        Generation.createInitial(game, board, alive);
+        return game;
+    }
+
+    private static Cell cellAt(Board board, Coord c) {
+        Tile tile = board.getTile(c);
+        if (tile == null) {
+            throw new IllegalArgumentException("No tile exists at coordinate: " + c);
+        }
+        return tile.getCell();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getSteps() {
+        return steps;
+    }
+
+    public Topology getTopology() {
+        return topology;
+    }
+
+    public List<Coord> getAlive() {
+        return alive;
+    }
+
+    public Map<Coord, CellType> getTypes() {
+        return types;
+    }
+
+    /**
+     * Returns the events of this spec.
+     *
+     * @return a mutable copy, as expected by ExtendedGameOfLife
+     */
+    public Map<Integer, EventType> getEvents() {
+        return new HashMap<>(events);
+    }
+}
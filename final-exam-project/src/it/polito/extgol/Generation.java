@@ -7,6 +7,7 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import jakarta.persistence.Basic;
 import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
 import jakarta.persistence.ElementCollection;
@@ -17,12 +18,17 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
+import jakarta.persistence.Lob;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.MapKeyJoinColumn;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
 
+import org.hibernate.annotations.BatchSize;
+
 /**
  * Entity representing a generation within a Game of Life simulation.
  * Each generation records the game state of every cell on the board at its
@@ -31,13 +37,21 @@ import jakarta.persistence.UniqueConstraint;
  * Use createInitial(...) to construct the initial state (step 0), and
  * createNextGeneration(...) to
  * advance from a previous generation.
+ *
+ * When the owning Game uses GenerationStorage.DELTA, only keyframes record every
+ * cell; the other generations record the entries that changed since the previous
+ * generation, and the state getters rebuild the full maps from the closest keyframe.
+ * With GenerationStorage.PACKED the maps stay empty and the whole state is kept in
+ * the packedState column (see GenerationCodec), decoded by the same getters.
  */
 @Entity
-@Table(name = "generation", uniqueConstraints = @UniqueConstraint(columnNames = { "game_id", "step" }))
+@Table(name = "generation", uniqueConstraints = @UniqueConstraint(columnNames = { "game_id", "step" }),
+        indexes = @Index(name = "generation_state_hash", columnList = "state_hash"))
 public class Generation {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "generation_seq")
+    @SequenceGenerator(name = "generation_seq", sequenceName = "generation_seq", allocationSize = JPAUtil.ID_ALLOCATION_SIZE)
     private Long id;
 
     /** Sequential step index (0 for initial generation). */
@@ -57,8 +71,12 @@ public class Generation {
     /**
      * Persistent map of each Cell to its alive state at this generation.
      * Keys are Cell entities; values are true for alive, false for dead.
+     *
+     * The state maps are fetched for a whole page of generations at once when
+     * the first of them is read (see PagedGenerations), not one query each.
      */
     @ElementCollection(fetch = FetchType.LAZY)
+    @BatchSize(size = GameRepository.DEFAULT_PAGE_SIZE)
     @CollectionTable(name = "generation_state", joinColumns = {
             // This maps generation_state.generation_id → generation.id
             @JoinColumn(name = "generation_id", referencedColumnName = "id"),
@@ -76,15 +94,38 @@ public class Generation {
     private EventType event;
 
     @ElementCollection
+    @BatchSize(size = GameRepository.DEFAULT_PAGE_SIZE)
     @MapKeyJoinColumn(name="cell_id")
     @Column(name="energy")
     private Map<Cell,Integer> energyStates= new HashMap<>();
 
     @ElementCollection
+    @BatchSize(size = GameRepository.DEFAULT_PAGE_SIZE)
     @MapKeyJoinColumn(name="cell_id")
     @Column(name="energy")
     private Map<Cell,CellMood> cellsMood= new HashMap<>();
 
+    /**
+     * True if the maps above hold every cell, false if they only hold the
+     * entries changed since the previous generation.
+     */
+    @Column(name = "keyframe")
+    private Boolean keyframe = true;
+
+    /**
+     * Compressed state of every cell in PACKED storage, null otherwise.
+     */
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "packed_state")
+    private byte[] packedState;
+
+    /**
+     * Board.getStateHash() when this generation was captured.
+     */
+    @Column(name = "state_hash")
+    private Long stateHash;
+
     /**
      * Protected no-argument constructor required by JPA.
      *
@@ -151,7 +192,7 @@ public class Generation {
     public static Generation createInitial(Game game, Board board) {
         game.clearGenerations();
         Generation init = new Generation(game, board, 0);
-        init.snapCells();
+        init.capture();
         game.addGeneration(init, 0);
         return init;
     }
@@ -174,7 +215,7 @@ public class Generation {
         game.clearGenerations();
         Generation init = new Generation(game, board, 0);
         init.setState(aliveCells, true);
-        init.snapCells();
+        init.capture();
         game.addGeneration(init, 0);
         return init;
     }
@@ -191,7 +232,7 @@ public class Generation {
         Objects.requireNonNull(prev, "Previous generation cannot be null");
         
         Generation next = new Generation(prev.getGame(), prev.getBoard(), prev.getStep() + 1);
-        next.snapCells();
+        next.capture();
         prev.getGame().addGeneration(next, prev.getStep() + 1);
         return next;
     }
@@ -210,20 +251,173 @@ public class Generation {
      * @throws ExtendedGameOfLifeException if any Tile does not contain a Cell
      */
     public Map<Cell, Boolean> snapCells() {
+        capture();
+        return Map.copyOf(getCellAlivenessStates());
+    }
+
+    /**
+     * Records the current state of every cell on the board, as a full keyframe
+     * or, in DELTA storage, as the entries changed since the previous generation.
+     *
+     * @throws IllegalStateException if any Tile does not contain a Cell
+     */
+    private void capture() {
+        if (game != null && game.getResolvedGeneration() == this) {
+            game.setResolvedStates(null, null); // drop a reconstruction of the old capture
+        }
         cellAlivenessStates.clear();
         energyStates.clear();
         cellsMood.clear();
+        stateHash = board.getStateHash();
+
+        if (game != null && game.getGenerationStorage() == GenerationStorage.PACKED) {
+            packedState = GenerationCodec.encode(board);
+            keyframe = true;
+            return;
+        }
+        packedState = null;
+
+        boolean delta = game != null && game.getGenerationStorage() == GenerationStorage.DELTA;
+        CellStates tip = delta ? game.getTipStates() : null;
+        if (tip != null && tip.step == step) {
+            tip.revert(); // this generation is captured again
+        }
+        keyframe = tip == null || tip.step != step - 1 || step % game.getKeyframeInterval() == 0;
+        if (delta && tip == null) {
+            tip = new CellStates(step);
+        }
+
         for (Tile tile : board.getTiles()) {
             Cell cell = tile.getCell();
             if (cell == null) {
                 throw new IllegalStateException("Each tile should hold a cell!");
             }
-            energyStates.put(cell,cell.getLifePoints());
-            cellAlivenessStates.put(cell, cell.isAlive());
-            cellsMood.put(cell,cell.getMood());
+            Boolean alive = cell.isAlive();
+            Integer energy = cell.getLifePoints();
+            CellMood mood = cell.getMood();
+            if (keyframe || !alive.equals(tip.aliveness.get(cell))) {
+                cellAlivenessStates.put(cell, alive);
+            }
+            if (keyframe || !energy.equals(tip.energy.get(cell))) {
+                energyStates.put(cell, energy);
+            }
+            if (keyframe || mood != tip.moods.get(cell)) {
+                cellsMood.put(cell, mood);
+            }
+        }
+
+        if (delta) {
+            tip.record(cellAlivenessStates, energyStates, cellsMood, step);
+            game.setTipStates(tip);
+        }
+    }
+
+    /**
+     * Returns the Zobrist hash of the cell states recorded by this generation,
+     * as computed by Board.getStateHash() at capture time.
+     *
+     * Generations with equal states have equal hashes, so comparing hashes is a
+     * constant-time test that rules out most differing generations; equal hashes
+     * of different states are possible but with a probability in the order
+     * of 2^-64.
+     *
+     * @return the state hash, or null if the generation was stored before
+     *         hashes were recorded
+     */
+    public Long getStateHash() {
+        return stateHash;
+    }
+
+    /**
+     * Tells whether this generation records every cell or only the changes
+     * since the previous generation.
+     *
+     * @return true for a full snapshot, false for a delta
+     */
+    public boolean isKeyframe() {
+        return keyframe == null || keyframe;
+    }
+
+    /**
+     * Counts the state entries actually stored by this generation, which is
+     * three per cell for a keyframe and the number of changes for a delta.
+     *
+     * @return the number of stored aliveness, energy and mood entries
+     */
+    public int countStoredStates() {
+        return cellAlivenessStates.size() + energyStates.size() + cellsMood.size();
+    }
+
+    /**
+     * Tells whether this generation keeps its state in the packed binary column.
+     *
+     * @return true in PACKED storage
+     */
+    public boolean isPacked() {
+        return packedState != null;
+    }
+
+    /**
+     * Returns the size of the packed binary state.
+     *
+     * @return the number of bytes of the packed column, 0 if not packed
+     */
+    public int getPackedSize() {
+        return packedState == null ? 0 : packedState.length;
+    }
+
+    /**
+     * Decodes the packed state, caching the result on the game for
+     * consecutive lookups.
+     *
+     * @return the full CellStates at this step
+     */
+    private CellStates unpack() {
+        if (game.getResolvedGeneration() == this) {
+            return game.getResolvedStates();
+        }
+        CellStates states = GenerationCodec.decode(packedState, board, step);
+        game.setResolvedStates(this, states);
+        return states;
+    }
+
+    /**
+     * Rebuilds the full state of a delta generation by replaying the deltas
+     * from the closest keyframe, or from the last reconstructed generation when
+     * it is closer. The result is cached on the game for consecutive lookups.
+     *
+     * @return the full CellStates at this step
+     */
+    private CellStates resolve() {
+        if (game.getResolvedGeneration() == this) {
+            return game.getResolvedStates();
+        }
+        List<Generation> history = game.getGenerations();
+        int index = step < history.size() && history.get(step) == this ? step : history.indexOf(this);
+        if (index < 0) {
+            throw new IllegalStateException("Delta generation is not part of its game history");
+        }
 
+        int start = index;
+        while (start > 0 && !history.get(start).isKeyframe()) {
+            start--;
+        }
+        CellStates cached = game.getResolvedStates();
+        Generation cachedGeneration = game.getResolvedGeneration();
+        CellStates states;
+        if (cached != null && cached.step >= start && cached.step < index
+                && history.get(cached.step) == cachedGeneration) {
+            states = new CellStates(cached);
+            start = cached.step + 1;
+        } else {
+            states = new CellStates(step);
         }
-        return Map.copyOf(cellAlivenessStates);
+        for (int i = start; i <= index; i++) {
+            Generation g = history.get(i);
+            states.apply(g.cellAlivenessStates, g.energyStates, g.cellsMood, g.getStep());
+        }
+        game.setResolvedStates(this, states);
+        return states;
     }
     
     /**
@@ -235,7 +429,7 @@ public class Generation {
      * @return a Set of Cell instances that are alive in this generation
      */
     public Set<Cell> getAliveCells() {
-        return cellAlivenessStates.entrySet().stream()
+        return getCellAlivenessStates().entrySet().stream()
         .filter(Map.Entry::getValue)
         .map(Map.Entry::getKey)
         .collect(Collectors.toSet());
@@ -254,7 +448,7 @@ public class Generation {
             Cell cell = board.getTile(c).getCell();
             cell.setAlive(true);
         }
-        this.snapCells();
+        this.capture();
     }
     
     /**
@@ -305,6 +499,37 @@ public class Generation {
         return board;
     }
 
+    /**
+     * Attaches a generation loaded by its own persistence context to a game
+     * loaded by another one: points it at the given game and board and re-keys
+     * its recorded states on the board's cells, which are the ones callers look
+     * states up with. Must be called before the loading context is closed, so
+     * that the lazy state collections can still be read.
+     *
+     * @param game      the detached Game the generation belongs to
+     * @param board     the detached Board of that game
+     * @param cellsById the cells of that board by identifier
+     */
+    void attach(Game game, Board board, Map<Long, Cell> cellsById) {
+        this.game = game;
+        this.board = board;
+        this.cellAlivenessStates = rekey(cellAlivenessStates, cellsById);
+        this.energyStates = rekey(energyStates, cellsById);
+        this.cellsMood = rekey(cellsMood, cellsById);
+    }
+
+    private static <V> Map<Cell, V> rekey(Map<Cell, V> states, Map<Long, Cell> cellsById) {
+        Map<Cell, V> result = new HashMap<>(states.size() * 2);
+        for (Map.Entry<Cell, V> e : states.entrySet()) {
+            Cell cell = cellsById.get(e.getKey().getId());
+            if (cell == null) {
+                throw new IllegalStateException("Generation refers to a cell outside its board");
+            }
+            result.put(cell, e.getValue());
+        }
+        return result;
+    }
+
     // EXTENDED BEHAVIORS
 
     /**
@@ -341,7 +566,7 @@ public class Generation {
         init.setState(coordsList, true);
 
         // capture the current state of every cell on the board
-        init.snapCells();
+        init.capture();
         game.addGeneration(init, 0);
         return init;
     }
@@ -361,6 +586,12 @@ public class Generation {
      * @return a Map from Cell to its Integer lifePoints value
      */
     public Map<Cell, Integer> getEnergyStates() {
+        if (isPacked()) {
+            return unpack().getEnergy();
+        }
+        if (!isKeyframe()) {
+            return resolve().getEnergy();
+        }
         return energyStates; // Return the map containing cell energy states
     }
 
@@ -372,6 +603,12 @@ public class Generation {
      */
     public Map<Cell, Boolean> getCellAlivenessStates() {
         // TODO: create aliveness states getter
+        if (isPacked()) {
+            return unpack().getAliveness();
+        }
+        if (!isKeyframe()) {
+            return resolve().getAliveness();
+        }
         return cellAlivenessStates;
     }
 
@@ -384,6 +621,12 @@ public class Generation {
      */
     public Map<Cell, CellMood> getMoodStates() {
         // TODO: create mood states getter
+        if (isPacked()) {
+            return unpack().getMoods();
+        }
+        if (!isKeyframe()) {
+            return resolve().getMoods();
+        }
         return cellsMood;
     }
 
@@ -0,0 +1,275 @@
+package it.polito.extgol;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encodes the aliveness, energy and mood of every cell of a board into the
+ * compact binary column used by GenerationStorage.PACKED, and back.
+ *
+ * Format version 1, all integers big-endian:
+ *   - 1 byte: format version
+ *   - 4 bytes: board width
+ *   - 4 bytes: board height
+ *   - the rest: a deflate stream holding, for the cells in index order (y * width + x),
+ *       - the aliveness bitset, one bit per cell, (width * height + 7) / 8 bytes,
+ *       - the mood ordinal of each cell, one byte per cell,
+ *       - the lifePoints of each cell as zigzag varints.
+ * Energies change slowly and moods rarely, so deflate squeezes most of them out.
+ */
+final class GenerationCodec {
+
+    /** Version written by encode(...); decode(...) rejects any other. */
+    static final byte FORMAT_VERSION = 1;
+
+    private static final int HEADER_BYTES = 1 + 4 + 4;
+
+    /** Longest zigzag varint of an int. */
+    private static final int MAX_VARINT_BYTES = 5;
+
+    /**
+     * Largest number of cells a packed state may declare, so that a corrupted
+     * header cannot make decoding reserve gigabytes.
+     */
+    static final int MAX_CELLS = 1 << 24;
+
+    /** Initial size of the inflate buffer, which then doubles as needed. */
+    private static final int INFLATE_CHUNK_BYTES = 4096;
+
+    private static final CellMood[] MOODS = CellMood.values();
+
+    private GenerationCodec() {} // utility class need not to be instantiated
+
+    /**
+     * Encodes the current state of every cell on the board.
+     *
+     * @param board the Board whose cells are captured
+     * @return the versioned, compressed state
+     * @throws IllegalStateException if any Tile does not contain a Cell
+     */
+    static byte[] encode(Board board) {
+        int width = board.getWidth();
+        int height = board.getHeight();
+        int size = width * height;
+
+        byte[] aliveness = new byte[(size + 7) >>> 3];
+        byte[] moods = new byte[size];
+        int[] energy = new int[size];
+        for (Tile tile : board.getTiles()) {
+            Cell cell = tile.getCell();
+            if (cell == null) {
+                throw new IllegalStateException("Each tile should hold a cell!");
+            }
+            int i = tile.getY() * width + tile.getX();
+            if (cell.isAlive()) {
+                aliveness[i >>> 3] |= (byte) (1 << (i & 7));
+            }
+            moods[i] = (byte) cell.getMood().ordinal();
+            energy[i] = cell.getLifePoints();
+        }
+        return pack(width, height, aliveness, moods, energy);
+    }
+
+    /**
+     * Encodes the cell states held by a generation view.
+     *
+     * @param view the GenerationView to capture
+     * @return the versioned, compressed state, in the same format as encode(Board)
+     */
+    static byte[] encode(GenerationView view) {
+        int width = view.getWidth();
+        int height = view.getHeight();
+        int size = width * height;
+
+        byte[] aliveness = new byte[(size + 7) >>> 3];
+        byte[] moods = new byte[size];
+        int[] energy = new int[size];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = y * width + x;
+                if (view.isAlive(x, y)) {
+                    aliveness[i >>> 3] |= (byte) (1 << (i & 7));
+                }
+                moods[i] = (byte) view.getMood(x, y).ordinal();
+                energy[i] = view.getLifePoints(x, y);
+            }
+        }
+        return pack(width, height, aliveness, moods, energy);
+    }
+
+    private static byte[] pack(int width, int height, byte[] aliveness, byte[] moods, int[] energy) {
+        int size = width * height;
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(aliveness.length + size * 2);
+        raw.write(aliveness, 0, aliveness.length);
+        raw.write(moods, 0, moods.length);
+        for (int lp : energy) {
+            writeVarint(raw, (lp << 1) ^ (lp >> 31)); // zigzag keeps small negatives short
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(FORMAT_VERSION);
+        out.write(ByteBuffer.allocate(8).putInt(width).putInt(height).array(), 0, 8);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw.toByteArray());
+            deflater.finish();
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a packed state into full per-cell maps keyed by the cells of the board.
+     *
+     * @param data  the bytes produced by encode(...)
+     * @param board the Board whose cells the state refers to
+     * @param step  the step of the decoded generation
+     * @return the decoded CellStates
+     * @throws IllegalStateException if the data has an unknown version, does not
+     *                               match the board size or is corrupted
+     */
+    static CellStates decode(byte[] data, Board board, int step) {
+        GenerationView view = decodeView(data, step, board.getWidth(), board.getHeight());
+        CellStates states = new CellStates(step);
+        for (Tile tile : board.getTiles()) {
+            Cell cell = tile.getCell();
+            states.aliveness.put(cell, view.isAlive(tile.getX(), tile.getY()));
+            states.moods.put(cell, view.getMood(tile.getX(), tile.getY()));
+            states.energy.put(cell, view.getLifePoints(tile.getX(), tile.getY()));
+        }
+        return states;
+    }
+
+    /**
+     * Decodes a packed state into a detached GenerationView, with no board needed.
+     *
+     * @param data the bytes produced by encode(...)
+     * @param step the step of the decoded generation
+     * @return the decoded GenerationView
+     * @throws IllegalStateException if the data has an unknown version, declares
+     *                               more than MAX_CELLS cells, is truncated or
+     *                               holds more or less than the cells of its size
+     */
+    static GenerationView decodeView(byte[] data, int step) {
+        return decodeView(data, step, 0, 0);
+    }
+
+    /**
+     * Decodes a packed state of a board of known size into a detached
+     * GenerationView. The size in the header is checked before anything is
+     * allocated or inflated.
+     *
+     * @param data   the bytes produced by encode(...)
+     * @param step   the step of the decoded generation
+     * @param expectedWidth  the board width, or 0 to accept any size
+     * @param expectedHeight the board height, or 0 to accept any size
+     * @return the decoded GenerationView
+     * @throws IllegalStateException if the data has an unknown version, does not
+     *                               match the expected size, declares more than
+     *                               MAX_CELLS cells, is truncated or holds more or
+     *                               less than the cells of its size
+     */
+    static GenerationView decodeView(byte[] data, int step, int expectedWidth, int expectedHeight) {
+        if (data.length < HEADER_BYTES || data[0] != FORMAT_VERSION) {
+            throw new IllegalStateException("Unsupported packed generation format");
+        }
+        ByteBuffer header = ByteBuffer.wrap(data, 1, 8);
+        int width = header.getInt();
+        int height = header.getInt();
+        if (expectedWidth > 0 && (width != expectedWidth || height != expectedHeight)) {
+            throw new IllegalStateException("Packed generation does not match the board size");
+        }
+        if (width <= 0 || height <= 0 || (long) width * height > MAX_CELLS) {
+            throw new IllegalStateException("Corrupted packed generation");
+        }
+        int size = width * height;
+        int bitsetBytes = (size + 7) >>> 3;
+        // varints take at most MAX_VARINT_BYTES bytes each
+        int maxLength = bitsetBytes + size + size * MAX_VARINT_BYTES;
+
+        // grown as the stream inflates, so the header alone reserves nothing
+        byte[] raw = new byte[Math.min(maxLength, INFLATE_CHUNK_BYTES)];
+        int length = 0;
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, HEADER_BYTES, data.length - HEADER_BYTES);
+            while (!inflater.finished()) {
+                if (length == raw.length) {
+                    if (length == maxLength) {
+                        // more data than any valid state of this size
+                        throw new IllegalStateException("Corrupted packed generation");
+                    }
+                    raw = Arrays.copyOf(raw, (int) Math.min(maxLength, 2L * length));
+                }
+                int n = inflater.inflate(raw, length, raw.length - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated packed generation");
+                }
+                length += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted packed generation", e);
+        } finally {
+            inflater.end();
+        }
+        if (length < bitsetBytes + size) {
+            throw new IllegalStateException("Truncated packed generation");
+        }
+
+        int[] energy = new int[size];
+        int pos = bitsetBytes + size;
+        for (int i = 0; i < size; i++) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (pos >= length) {
+                    throw new IllegalStateException("Truncated packed generation");
+                }
+                if (shift >= MAX_VARINT_BYTES * 7) {
+                    throw new IllegalStateException("Corrupted packed generation");
+                }
+                b = raw[pos++];
+                value |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            energy[i] = (value >>> 1) ^ -(value & 1);
+        }
+        if (pos != length) {
+            // every byte of the stream belongs to some cell
+            throw new IllegalStateException("Corrupted packed generation");
+        }
+
+        // one extra bit for the sentinel index, as in the GridEngine bitsets
+        long[] alive = new long[(size + 64) >>> 6];
+        byte[] moods = new byte[size];
+        for (int i = 0; i < size; i++) {
+            if ((raw[i >>> 3] & (1 << (i & 7))) != 0) {
+                alive[i >>> 6] |= 1L << i;
+            }
+            moods[i] = raw[bitsetBytes + i];
+            if (moods[i] < 0 || moods[i] >= MOODS.length) {
+                throw new IllegalStateException("Corrupted packed generation");
+            }
+        }
+        return new GenerationView(width, height).bind(step, alive, energy, moods);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
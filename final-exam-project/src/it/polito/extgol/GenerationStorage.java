@@ -0,0 +1,25 @@
+package it.polito.extgol;
+
+/**
+ * Selects how a Game records the cell states of its generations.
+ */
+public enum GenerationStorage {
+
+    /**
+     * Every generation stores the aliveness, energy and mood of every cell.
+     */
+    FULL,
+
+    /**
+     * Only keyframe generations store every cell; the others store the cells
+     * whose aliveness, energy or mood changed since the previous generation,
+     * and their full state is reconstructed on demand.
+     */
+    DELTA,
+
+    /**
+     * Every generation stores the state of every cell as a single compressed,
+     * versioned binary column instead of one row per cell, decoded on demand.
+     */
+    PACKED
+}
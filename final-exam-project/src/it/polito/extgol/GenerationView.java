@@ -0,0 +1,180 @@
+package it.polito.extgol;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only view of the cell states of one generation, produced by the
+ * streaming API of ExtendedGameOfLife without creating Generation entities.
+ *
+ * Views handed to a stream consumer are flyweights over the engine arrays: they
+ * reflect the generation being emitted and are rebound when the engine moves
+ * on. Use copy() to keep a generation beyond the consumer call.
+ */
+public final class GenerationView {
+
+    private static final CellMood[] MOODS = CellMood.values();
+
+    /** Approximate size of the object and array headers, for estimatedBytes(). */
+    private static final int OVERHEAD_BYTES = 96;
+
+    private final int width;
+    private final int height;
+    private int step;
+    private long[] alive;
+    private int[] lifePoints;
+    private byte[] moods;
+
+    GenerationView(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Points the view at the given state arrays.
+     */
+    GenerationView bind(int step, long[] alive, int[] lifePoints, byte[] moods) {
+        this.step = step;
+        this.alive = alive;
+        this.lifePoints = lifePoints;
+        this.moods = moods;
+        return this;
+    }
+
+    /**
+     * Builds a detached view of the states recorded by a generation.
+     *
+     * @param generation the Generation to read
+     * @return a GenerationView with the same step and cell states
+     */
+    static GenerationView of(Generation generation) {
+        Board board = generation.getBoard();
+        int width = board.getWidth();
+        int size = width * board.getHeight();
+        Map<Cell, Boolean> aliveness = generation.getCellAlivenessStates();
+        Map<Cell, Integer> energy = generation.getEnergyStates();
+        Map<Cell, CellMood> moodStates = generation.getMoodStates();
+
+        // one extra bit for the sentinel index, as in the GridEngine bitsets
+        long[] alive = new long[(size + 64) >>> 6];
+        int[] lifePoints = new int[size];
+        byte[] moods = new byte[size];
+        for (Tile tile : board.getTiles()) {
+            Cell cell = tile.getCell();
+            int i = tile.getY() * width + tile.getX();
+            if (Boolean.TRUE.equals(aliveness.get(cell))) {
+                alive[i >>> 6] |= 1L << i;
+            }
+            lifePoints[i] = energy.getOrDefault(cell, 0);
+            moods[i] = (byte) moodStates.getOrDefault(cell, CellMood.NAIVE).ordinal();
+        }
+        return new GenerationView(width, board.getHeight()).bind(generation.getStep(), alive, lifePoints, moods);
+    }
+
+    /**
+     * Returns a detached copy of this view that no later step can change.
+     *
+     * @return an immutable GenerationView with the same content
+     */
+    public GenerationView copy() {
+        return new GenerationView(width, height).bind(step,
+                Arrays.copyOf(alive, alive.length),
+                Arrays.copyOf(lifePoints, lifePoints.length),
+                Arrays.copyOf(moods, moods.length));
+    }
+
+    /**
+     * Retrieves the zero-based index of this generation in the game sequence.
+     *
+     * @return the generation's step number
+     */
+    public int getStep() {
+        return step;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Checks whether the cell at the given coordinates is alive.
+     *
+     * @param x the column index
+     * @param y the row index
+     * @return true if the cell is alive in this generation
+     */
+    public boolean isAlive(int x, int y) {
+        return GridEngine.getBit(alive, indexOf(x, y));
+    }
+
+    /**
+     * Returns the lifePoints of the cell at the given coordinates.
+     *
+     * @param x the column index
+     * @param y the row index
+     * @return the lifePoints of the cell in this generation
+     */
+    public int getLifePoints(int x, int y) {
+        return lifePoints[indexOf(x, y)];
+    }
+
+    /**
+     * Returns the mood of the cell at the given coordinates.
+     *
+     * @param x the column index
+     * @param y the row index
+     * @return the CellMood of the cell in this generation
+     */
+    public CellMood getMood(int x, int y) {
+        return MOODS[moods[indexOf(x, y)]];
+    }
+
+    /**
+     * Counts the alive cells.
+     *
+     * @return the number of alive cells in this generation
+     */
+    public int countAlive() {
+        int count = 0;
+        for (long word : alive) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the coordinates of every alive cell.
+     *
+     * @return a Set of Coord of the alive cells
+     */
+    public Set<Coord> getAliveCoords() {
+        Set<Coord> result = new HashSet<>();
+        for (int i = GridEngine.nextSetBit(alive, 0); i >= 0 && i < width * height; i = GridEngine.nextSetBit(alive, i + 1)) {
+            result.add(new Coord(i % width, i / width));
+        }
+        return result;
+    }
+
+    /**
+     * Estimates the heap footprint of this view and its arrays.
+     *
+     * @return an approximate size in bytes
+     */
+    long estimatedBytes() {
+        return OVERHEAD_BYTES + (long) alive.length * Long.BYTES
+                + (long) lifePoints.length * Integer.BYTES + moods.length;
+    }
+
+    private int indexOf(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new IllegalArgumentException("Coordinates out of board: " + x + "," + y);
+        }
+        return y * width + x;
+    }
+}
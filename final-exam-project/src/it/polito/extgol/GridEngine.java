@@ -0,0 +1,893 @@
+package it.polito.extgol;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Array-based evolution engine for the Extended Game of Life.
+ *
+ * Instead of walking Tile and Cell entities and staging results in boxed maps,
+ * the engine keeps the whole board state in primitive arrays indexed by
+ * {@code y * width + x}:
+ *   - aliveness in two long[] bitsets that are swapped every generation,
+ *   - lifePoints, cell type, mood and Highlander counters in parallel arrays,
+ *   - pending mood transitions and empowered bites as per-cell flag bits.
+ *
+ * The rules are the same applied by ExtendedGameOfLife.evolve: cell interactions,
+ * tile energy modifiers, per-type GOL rules, lifePoint bookkeeping and the
+ * negative-lifePoints death rule. Cell and Generation entities are only touched
+ * when the caller asks for them through writeBack() or materialize(...).
+ * Neighbors are read from the board's neighbor table, which already resolves
+ * the board topology, so wrapping boards need no special handling.
+ *
+ * Only the active region is evaluated by the rule pass: the alive cells and their
+ * neighbors. Any other tile holds a dead cell with no alive neighbor, which no rule
+ * can revive and whose lifePoints stay untouched, so skipping it yields the same
+ * result as a full sweep. The only state such a cell accumulates is the Highlander
+ * counter, which is caught up lazily from the step the cell was last evaluated.
+ * The very first step sweeps the whole board to settle any pending mood transition
+ * loaded from dead cells.
+ *
+ * When at least one tile in DENSE_RATIO is alive the active region covers most of
+ * the board, so the rule pass sweeps it all and counts neighbors row by row on
+ * byte arrays instead: interior tiles sum eight bytes at fixed offsets in a tight
+ * loop that the JIT compiles to vector instructions, and only the border tiles go
+ * through the neighbor table. The per-type rules are RuleTable lookups indexed by
+ * the neighbor count.
+ *
+ * When created with a ForkJoinPool both phases run on horizontal stripes evolved
+ * concurrently: the interaction phase through InteractionPhase's order-independent
+ * path, and the rule pass with every stripe reading only the previous aliveness
+ * buffer and writing its own cells. The buffers are swapped once all stripes are done.
+ *
+ * On request the engine also maintains a Zobrist-style hash of the whole state,
+ * the XOR of one keyed hash per tile, updated incrementally: a step can only
+ * change the tiles of its active region and the dead tiles still spending
+ * Generations dying states, so only those are hashed out before and back in
+ * after the step.
+ */
+public class GridEngine {
+
+    /** Flag bit: the cell was bitten while NAIVE and will turn VAMPIRE. */
+    static final byte FLAG_NAIVE_TO_VAMPIRE = 1;
+
+    /** Flag bit: the cell was bitten while HEALER and will turn VAMPIRE. */
+    static final byte FLAG_HEALER_TO_VAMPIRE = 2;
+
+    /** Flag bit: the cell is a vampire empowered by a BLOOD_MOON. */
+    static final byte FLAG_EMPOWERED_BITE = 4;
+
+    private static final byte NAIVE = (byte) CellMood.NAIVE.ordinal();
+    private static final byte VAMPIRE = (byte) CellMood.VAMPIRE.ordinal();
+    private static final byte HEALER = (byte) CellMood.HEALER.ordinal();
+
+    private static final CellMood[] MOODS = CellMood.values();
+
+    /** The rule pass counts every tile densely once at least 1 / DENSE_RATIO of them is alive. */
+    static final int DENSE_RATIO = 4;
+
+    private final Board board;
+    private final int width;
+    private final int height;
+    private final int size;
+
+    /** Cell entities by index, used only to load and write back state. */
+    private final Cell[] cells;
+
+    /**
+     * Board.NEIGHBOR_SLOTS neighbor indices per tile, shared with the board.
+     * Missing neighbors point to the sentinel index size, whose bit is never set.
+     */
+    private final int[] neighbors;
+
+    /** Aliveness of the current generation, one bit per tile plus the sentinel. */
+    private long[] alive;
+
+    /** Aliveness being computed for the next generation. */
+    private long[] nextAlive;
+
+    /** Tiles evaluated by the current rule pass, one bit per tile. */
+    private final long[] active;
+
+    /** Aliveness of the current generation, one byte per tile, filled for dense passes. */
+    private byte[] aliveBytes;
+
+    /** Alive neighbors of each tile, computed by dense passes. */
+    private byte[] counts;
+
+    /** Whether the current rule pass sweeps and counts the whole board. */
+    private boolean dense;
+
+    /** Step at which each tile was last evaluated by the rule pass, -1 if never. */
+    private final int[] evolvedAt;
+
+    private final int[] lifePoints;
+    private final int[] modifiers;
+    private final int[] nearToDeath;
+    /** Compiled rule of each cell: its custom rule or the rule of its type. */
+    private final RuleTable[] rules;
+    private final byte[] moods;
+    private final byte[] flags;
+
+    /** Number of generations computed since the engine was loaded. */
+    private int step;
+
+    /** Pool evolving the board stripes, or null to evolve sequentially. */
+    private final ForkJoinPool pool;
+
+    private final InteractionPhase interactions;
+
+    /** Flyweight returned by view(), rebound at every call. */
+    private final GenerationView view;
+
+    /** Seed of the per-tile hash keys, fixed so that hashes are reproducible. */
+    private static final long HASH_SEED = 0x5DEECE66DL;
+
+    /** Per-tile keys of the state hash, or null while the hash is not tracked. */
+    private long[] hashKeys;
+
+    /** Whether lifePoints are part of the state hash. */
+    private boolean hashLifePoints;
+
+    /** XOR of the hashes of all tiles, see tileHash(...). */
+    private long stateHash;
+
+    /** Tiles whose state the current step may change, one bit per tile plus the sentinel. */
+    private long[] touched;
+
+    /** Dead tiles whose dying counter still runs down while they are skipped. */
+    private long[] dying;
+
+    /**
+     * Loads the current state of every cell on the given board into the engine.
+     *
+     * @param board the Board whose tiles and cells provide the initial state
+     * @throws IllegalStateException if any tile does not hold a cell
+     */
+    public GridEngine(Board board) {
+        this(board, null);
+    }
+
+    /**
+     * Loads the current state of every cell on the given board into an engine
+     * that evolves horizontal stripes of the board on the given pool.
+     *
+     * @param board the Board whose tiles and cells provide the initial state
+     * @param pool  the ForkJoinPool running the stripes, or null to run sequentially
+     * @throws IllegalStateException if any tile does not hold a cell
+     */
+    public GridEngine(Board board, ForkJoinPool pool) {
+        this.board = Objects.requireNonNull(board, "Board cannot be null");
+        this.pool = pool;
+        this.width = board.getWidth();
+        this.height = board.getHeight();
+        this.size = width * height;
+
+        this.neighbors = board.getNeighborTable();
+
+        // one extra bit for the sentinel index
+        int words = (size + 64) >>> 6;
+        this.alive = new long[words];
+        this.nextAlive = new long[words];
+        this.active = new long[words];
+        this.evolvedAt = new int[size];
+        Arrays.fill(evolvedAt, -1);
+        this.cells = new Cell[size];
+        this.lifePoints = new int[size];
+        this.modifiers = new int[size];
+        this.nearToDeath = new int[size];
+        this.rules = new RuleTable[size];
+        this.moods = new byte[size];
+        this.flags = new byte[size];
+
+        for (Tile tile : board.getTiles()) {
+            Cell cell = tile.getCell();
+            if (cell == null) {
+                throw new IllegalStateException("Missing cell on tile " + tile);
+            }
+            int i = indexOf(tile.getX(), tile.getY());
+            cells[i] = cell;
+            modifiers[i] = tile.getLifePointModifier();
+            load(i, cell);
+        }
+        this.interactions = new InteractionPhase(width, height, neighbors, lifePoints, moods, flags);
+        this.view = new GenerationView(width, height);
+    }
+
+    /**
+     * Copies the state of a single cell entity into the engine arrays.
+     *
+     * @param i    the index of the cell
+     * @param cell the Cell entity to read
+     */
+    private void load(int i, Cell cell) {
+        setBit(alive, i, cell.isAlive());
+        lifePoints[i] = cell.getLifePoints();
+        nearToDeath[i] = cell.getConsecutiveNearToDeath();
+        rules[i] = cell.getRuleTable();
+        moods[i] = (byte) cell.getMood().ordinal();
+
+        byte f = 0;
+        if (cell.isFromNaiveToVampire()) f |= FLAG_NAIVE_TO_VAMPIRE;
+        if (cell.isFromHealerToVampire()) f |= FLAG_HEALER_TO_VAMPIRE;
+        if (cell.getEmpoweredBite()) f |= FLAG_EMPOWERED_BITE;
+        flags[i] = f;
+    }
+
+    /**
+     * Computes the next generation in place.
+     *
+     * The phases mirror ExtendedGameOfLife.evolve:
+     *   1. Alive neighbors interact pairwise, each unordered pair exactly once.
+     *   2. Every tile applies its energy modifier to alive cells, the per-type
+     *      rules decide the next aliveness and lifePoints are adjusted.
+     *   3. The aliveness buffers are swapped.
+     */
+    public void step() {
+        if (hashKeys != null) {
+            markTouched();
+            hashTouched();
+        }
+        if (pool == null) {
+            interactions.run(alive);
+        } else {
+            interactions.run(alive, pool);
+        }
+        rulePass();
+
+        long[] tmp = alive;
+        alive = nextAlive;
+        nextAlive = tmp;
+        step++;
+        if (hashKeys != null) {
+            hashTouched();
+            updateDying();
+        }
+    }
+
+    /**
+     * Applies the GOL rules to the active region, either sequentially or as
+     * concurrent stripes on the engine pool. Returns once every tile is evolved.
+     */
+    private void rulePass() {
+        dense = countAlive() >= size / DENSE_RATIO;
+        if (dense) {
+            if (aliveBytes == null) {
+                aliveBytes = new byte[size];
+                counts = new byte[size];
+            }
+            Stripes.forEach(pool, size, this::unpack);
+        } else if (step == 0) {
+            Arrays.fill(active, -1L); // first step: sweep the whole board
+        } else {
+            markActive();
+        }
+        Stripes.forEach(pool, size, this::rulePass);
+    }
+
+    /**
+     * Copies the aliveness bits of the tiles in [from, to) into aliveBytes.
+     */
+    private void unpack(int from, int to) {
+        for (int i = from; i < to; i++) {
+            aliveBytes[i] = (byte) ((alive[i >>> 6] >>> i) & 1);
+        }
+    }
+
+    /**
+     * Counts the alive neighbors of the tiles in [from, to) into counts, reading
+     * the aliveBytes of the whole board.
+     *
+     * Tiles away from the border have their eight neighbors at fixed offsets in
+     * the same row and in the rows above and below, whatever the topology, so
+     * they are counted by a branch-free loop over each row. Tiles on the border
+     * are counted through the neighbor table.
+     */
+    private void countNeighbors(int from, int to) {
+        byte[] a = aliveBytes;
+        byte[] c = counts;
+        int i = from;
+        while (i < to) {
+            int y = i / width;
+            int rowStart = y * width;
+            int rowEnd = Math.min(to, rowStart + width);
+            if (y == 0 || y == height - 1) {
+                for (int j = i; j < rowEnd; j++) {
+                    c[j] = (byte) countAliveNeighbors(j);
+                }
+            } else {
+                int start = i;
+                int end = rowEnd;
+                if (start == rowStart) {
+                    c[start] = (byte) countAliveNeighbors(start);
+                    start++;
+                }
+                if (end == rowStart + width && end > start) {
+                    end--;
+                    c[end] = (byte) countAliveNeighbors(end);
+                }
+                int up = -width;
+                int down = width;
+                for (int j = start; j < end; j++) {
+                    c[j] = (byte) (a[j + up - 1] + a[j + up] + a[j + up + 1]
+                            + a[j - 1] + a[j + 1]
+                            + a[j + down - 1] + a[j + down] + a[j + down + 1]);
+                }
+            }
+            i = rowEnd;
+        }
+    }
+
+    /**
+     * Marks the alive cells and their neighbors as the active region.
+     * The cost is proportional to the number of alive cells.
+     */
+    private void markActive() {
+        markNeighborhood(active);
+    }
+
+    /**
+     * Sets in the bitset exactly the alive cells and their neighbors.
+     *
+     * @param bits the bitset to fill, with room for the sentinel bit
+     */
+    private void markNeighborhood(long[] bits) {
+        Arrays.fill(bits, 0L);
+        for (int i = nextSetBit(alive, 0); i >= 0; i = nextSetBit(alive, i + 1)) {
+            bits[i >>> 6] |= 1L << i;
+            int slot = i * Board.NEIGHBOR_SLOTS;
+            for (int k = 0; k < Board.NEIGHBOR_SLOTS; k++) {
+                int n = neighbors[slot + k];
+                bits[n >>> 6] |= 1L << n; // marking the sentinel is harmless
+            }
+        }
+    }
+
+    /**
+     * Applies tile modifiers, GOL rules, mood transitions and lifePoint
+     * bookkeeping to the active tiles in [from, to), writing their next
+     * aliveness into nextAlive.
+     *
+     * The range must start on a 64-tile boundary so that concurrent stripes
+     * never write the same word of the nextAlive bitset.
+     *
+     * @param from the first tile index (inclusive)
+     * @param to   the last tile index (exclusive)
+     */
+    private void rulePass(int from, int to) {
+        Arrays.fill(nextAlive, from >>> 6, (to + 63) >>> 6, 0L);
+        if (dense) {
+            countNeighbors(from, to);
+            for (int i = from; i < to; i++) {
+                evolveTile(i, counts[i]);
+            }
+        } else {
+            for (int i = nextSetBit(active, from); i >= 0 && i < to; i = nextSetBit(active, i + 1)) {
+                evolveTile(i, countAliveNeighbors(i));
+            }
+        }
+    }
+
+    /**
+     * Evolves a single tile, writing its next aliveness into nextAlive.
+     *
+     * @param i              the index of the tile
+     * @param aliveNeighbors the number of alive neighbors of the tile
+     */
+    private void evolveTile(int i, int aliveNeighbors) {
+        catchUp(i);
+        evolvedAt[i] = step;
+
+        boolean wasAlive = getBit(alive, i);
+        int lp = lifePoints[i];
+        if (wasAlive) {
+            lp += modifiers[i]; // Apply tile energy modifier
+        }
+
+        boolean willLive = evolveCell(rules[i], nearToDeath, i, wasAlive, aliveNeighbors);
+        applyMoodTransition(moods, flags, i);
+
+        if (!wasAlive && willLive) {
+            lp = 0; // Respawn reset LP
+        } else if (wasAlive && !willLive) {
+            lp -= 1; // Death reduces LP
+        } else if (wasAlive) {
+            lp += 1; // Survival increases LP
+        }
+
+        // even if GOL says live, LP < 0 -> dies
+        if (willLive && lp >= 0) {
+            nextAlive[i >>> 6] |= 1L << i;
+        }
+        lifePoints[i] = lp;
+    }
+
+    /**
+     * Brings the rule counter of a tile up to date with the steps in which it
+     * was skipped. A skipped tile had no alive neighbor, which is a stressful
+     * generation for a Highlander and a dying one for Generations rules.
+     *
+     * @param i the index of the tile
+     */
+    private void catchUp(int i) {
+        if (evolvedAt[i] >= 0) {
+            nearToDeath[i] = rules[i].idleCounter(nearToDeath[i], step - evolvedAt[i] - 1);
+        }
+    }
+
+    /**
+     * Counts alive cells among the (up to eight) neighbors of a tile by reading
+     * its slots in the neighbor table. Missing neighbors point to the sentinel
+     * bit, which is never set, so the edges need no special case.
+     *
+     * @param i the index of the tile
+     * @return the number of alive neighbors
+     */
+    private int countAliveNeighbors(int i) {
+        int count = 0;
+        int slot = i * Board.NEIGHBOR_SLOTS;
+        for (int k = 0; k < Board.NEIGHBOR_SLOTS; k++) {
+            int n = neighbors[slot + k];
+            count += (int) (alive[n >>> 6] >>> n) & 1;
+        }
+        return count;
+    }
+
+    /**
+     * Primitive counterpart of Cell.evolve, reading the RuleTable of the cell.
+     *
+     * @param rules          the compiled rule of the cell
+     * @param nearToDeath    the rule counters, updated in place
+     * @param i              the index of the cell
+     * @param wasAlive       the current aliveness of the cell
+     * @param aliveNeighbors the number of alive neighbors
+     * @return true if the cell will live according to its type rules
+     */
+    static boolean evolveCell(RuleTable rules, int[] nearToDeath, int i, boolean wasAlive, int aliveNeighbors) {
+        int counter = nearToDeath[i];
+        nearToDeath[i] = rules.nextCounter(wasAlive, counter, aliveNeighbors);
+        return rules.evolve(wasAlive, counter, aliveNeighbors);
+    }
+
+    /**
+     * Applies pending NAIVE/HEALER to VAMPIRE transitions, as Cell.evolve does.
+     *
+     * @param moods the mood ordinals, updated in place
+     * @param flags the flag bits of each cell
+     * @param i     the index of the cell
+     */
+    static void applyMoodTransition(byte[] moods, byte[] flags, int i) {
+        if (moods[i] == NAIVE && (flags[i] & FLAG_NAIVE_TO_VAMPIRE) != 0) {
+            moods[i] = VAMPIRE;
+        }
+        if (moods[i] == HEALER && (flags[i] & FLAG_HEALER_TO_VAMPIRE) != 0) {
+            moods[i] = VAMPIRE;
+        }
+    }
+
+    /**
+     * Applies a global event to every alive cell, as Game.unrollEvent does.
+     *
+     * @param event the EventType to apply
+     */
+    public void applyEvent(EventType event) {
+        Objects.requireNonNull(event, "Event cannot be null");
+        for (int i = nextSetBit(alive, 0); i >= 0; i = nextSetBit(alive, i + 1)) {
+            if (hashKeys != null) {
+                stateHash ^= tileHash(i);
+            }
+            switch (event) {
+                case CATACLYSM:
+                    lifePoints[i] = 0;
+                    break;
+                case FAMINE:
+                    lifePoints[i] -= 1;
+                    break;
+                case BLOOM:
+                    lifePoints[i] += 2;
+                    break;
+                case BLOOD_MOON:
+                    if (moods[i] == VAMPIRE) {
+                        flags[i] |= FLAG_EMPOWERED_BITE;
+                    }
+                    break;
+                case SANCTUARY:
+                    if (moods[i] == HEALER) {
+                        lifePoints[i] += 1;
+                    } else if (moods[i] == VAMPIRE) {
+                        moods[i] = NAIVE;
+                    }
+                    break;
+            }
+            if (hashKeys != null) {
+                stateHash ^= tileHash(i);
+            }
+        }
+    }
+
+    // CHECKPOINTS
+
+    /**
+     * Returns the number of bytes written by writeState(...).
+     *
+     * @return the size of the serialized state
+     */
+    int stateBytes() {
+        return alive.length * Long.BYTES + size * (2 * Integer.BYTES + 2);
+    }
+
+    /**
+     * Fingerprints the parts of the board the state does not hold: its size and
+     * topology, the rule of every cell and the energy modifier of every tile. A state can
+     * only be read back into an engine with the same fingerprint.
+     *
+     * @return the configuration fingerprint
+     */
+    long configFingerprint() {
+        long h = mix(width) ^ mix((long) height << 32) ^ mix(board.getTopology().ordinal() + 1L);
+        for (int i = 0; i < size; i++) {
+            h = mix(h ^ rules[i].fingerprint());
+            h = mix(h ^ modifiers[i]);
+        }
+        return h;
+    }
+
+    /**
+     * Writes the evolving state of every cell with bulk copies: aliveness bits,
+     * lifePoints, rule counters (caught up to the current step), moods and flags.
+     *
+     * @param out the buffer to write to, with stateBytes() bytes remaining
+     */
+    void writeState(ByteBuffer out) {
+        out.asLongBuffer().put(alive);
+        out.position(out.position() + alive.length * Long.BYTES);
+        out.asIntBuffer().put(lifePoints);
+        out.position(out.position() + size * Integer.BYTES);
+        int[] counters = new int[size];
+        for (int i = 0; i < size; i++) {
+            counters[i] = currentCounter(i);
+        }
+        out.asIntBuffer().put(counters);
+        out.position(out.position() + size * Integer.BYTES);
+        out.put(moods);
+        out.put(flags);
+    }
+
+    /**
+     * Replaces the state of every cell with one written by writeState(...).
+     *
+     * @param in the buffer to read from, with stateBytes() bytes remaining
+     * @throws IllegalStateException if the engine has already computed a step
+     */
+    void readState(ByteBuffer in) {
+        if (step != 0 || hashKeys != null) {
+            throw new IllegalStateException("State can only be read into a freshly loaded engine");
+        }
+        in.asLongBuffer().get(alive);
+        in.position(in.position() + alive.length * Long.BYTES);
+        in.asIntBuffer().get(lifePoints);
+        in.position(in.position() + size * Integer.BYTES);
+        in.asIntBuffer().get(nearToDeath);
+        in.position(in.position() + size * Integer.BYTES);
+        in.get(moods);
+        in.get(flags);
+        setBit(alive, size, false); // the sentinel must stay dead
+        for (int i = 0; i < size; i++) {
+            if (moods[i] < 0 || moods[i] >= MOODS.length) {
+                throw new IllegalStateException("Corrupted engine state");
+            }
+        }
+    }
+
+    // STATE HASH
+
+    /**
+     * Starts maintaining the state hash, computing it once over the whole board.
+     * Does nothing if the hash is already tracked with the same contents.
+     *
+     * The hashed state of a tile is everything its future depends on: aliveness,
+     * mood, pending flags, the rule counter where it matters (alive cells and
+     * Generations dying states; the counter of a dead Highlander is reset before
+     * it can be born again) and, optionally, lifePoints. Leaving lifePoints out
+     * hashes the visible pattern only: surviving cells keep gaining lifePoints,
+     * so with them a still life never repeats exactly.
+     *
+     * @param withLifePoints whether lifePoints are part of the hash
+     */
+    public void trackStateHash(boolean withLifePoints) {
+        if (hashKeys != null && hashLifePoints == withLifePoints) return;
+        if (hashKeys == null) {
+            SplittableRandom random = new SplittableRandom(HASH_SEED);
+            hashKeys = new long[size];
+            for (int i = 0; i < size; i++) {
+                hashKeys[i] = random.nextLong();
+            }
+            touched = new long[alive.length];
+            dying = new long[alive.length];
+        }
+        hashLifePoints = withLifePoints;
+        stateHash = 0;
+        for (int i = 0; i < size; i++) {
+            stateHash ^= tileHash(i);
+            setBit(dying, i, isDying(i));
+        }
+    }
+
+    /**
+     * Tells whether lifePoints can no longer change the aliveness, moods or rule
+     * counters of any cell, so that a hash without them still identifies the
+     * future of the board.
+     *
+     * That is the case when no tile has an energy modifier, no cell is HEALER
+     * or VAMPIRE nor has a pending flag, and no alive cell has negative
+     * lifePoints: NAIVE cells do not interact, surviving cells only gain
+     * lifePoints and newborn ones start from 0, so the negative-lifePoints
+     * death rule never applies. Only events can break it again.
+     *
+     * @return true if lifePoints are irrelevant to the evolution of the board
+     */
+    boolean lifePointsAreInert() {
+        for (int i = 0; i < size; i++) {
+            if (modifiers[i] != 0 || moods[i] != NAIVE || flags[i] != 0) {
+                return false;
+            }
+        }
+        for (int i = nextSetBit(alive, 0); i >= 0; i = nextSetBit(alive, i + 1)) {
+            if (lifePoints[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash of the current state, equal for equal states whatever
+     * the step they were reached at.
+     *
+     * @return the state hash
+     * @throws IllegalStateException if trackStateHash(...) was not called
+     */
+    public long getStateHash() {
+        if (hashKeys == null) {
+            throw new IllegalStateException("State hash is not tracked");
+        }
+        return stateHash;
+    }
+
+    /**
+     * Marks the tiles the next step may change: its active region, or the whole
+     * board when the rule pass sweeps it all, plus the dying tiles.
+     */
+    private void markTouched() {
+        if (step == 0 || countAlive() >= size / DENSE_RATIO) {
+            Arrays.fill(touched, -1L);
+            return;
+        }
+        markNeighborhood(touched);
+        for (int w = 0; w < touched.length; w++) {
+            touched[w] |= dying[w];
+        }
+    }
+
+    /**
+     * XORs the hashes of the touched tiles into the state hash, which removes
+     * them before a step and adds them back after it.
+     */
+    private void hashTouched() {
+        for (int i = nextSetBit(touched, 0); i >= 0 && i < size; i = nextSetBit(touched, i + 1)) {
+            stateHash ^= tileHash(i);
+        }
+    }
+
+    /**
+     * Refreshes the dying bits of the touched tiles after a step.
+     */
+    private void updateDying() {
+        for (int i = nextSetBit(touched, 0); i >= 0 && i < size; i = nextSetBit(touched, i + 1)) {
+            setBit(dying, i, isDying(i));
+        }
+    }
+
+    private boolean isDying(int i) {
+        return !getBit(alive, i) && rules[i].getStates() > 2 && currentCounter(i) > 0;
+    }
+
+    /**
+     * Hashes the state of a single tile, mixing it with the key of the tile.
+     *
+     * @param i the index of the tile
+     * @return the hash of the tile
+     */
+    private long tileHash(int i) {
+        boolean isAlive = getBit(alive, i);
+        int counter = isAlive || rules[i].getStates() > 2 ? currentCounter(i) : 0;
+        long state = (isAlive ? 1L : 0L)
+                | (long) moods[i] << 1
+                | (long) flags[i] << 3
+                | (long) (counter & 0xffffff) << 8;
+        if (hashLifePoints) {
+            state |= (long) lifePoints[i] << 32;
+        }
+        return mix(hashKeys[i] ^ state);
+    }
+
+    /**
+     * Scrambles the bits of a value (the MurmurHash3 finalizer), so that the
+     * XOR of tile hashes does not cancel out for related states.
+     */
+    static long mix(long h) {
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Returns the rule counter of a tile as of the current step, including the
+     * idle steps catchUp(...) has not applied yet.
+     */
+    private int currentCounter(int i) {
+        if (evolvedAt[i] < 0) return nearToDeath[i];
+        return rules[i].idleCounter(nearToDeath[i], step - evolvedAt[i] - 1);
+    }
+
+    /**
+     * Copies the engine state back into the Cell entities of the board.
+     */
+    public void writeBack() {
+        for (int i = 0; i < size; i++) {
+            catchUp(i);
+            if (evolvedAt[i] >= 0) {
+                evolvedAt[i] = step - 1;
+            }
+            Cell cell = cells[i];
+            cell.setAlive(getBit(alive, i));
+            cell.setLifePoints(lifePoints[i]);
+            cell.setMood(MOODS[moods[i]]);
+            cell.setConsecutiveNearToDeath(nearToDeath[i]);
+            cell.setFromNaiveToVampire((flags[i] & FLAG_NAIVE_TO_VAMPIRE) != 0);
+            cell.setFromHealerToVampire((flags[i] & FLAG_HEALER_TO_VAMPIRE) != 0);
+            cell.setEmpoweredBite((flags[i] & FLAG_EMPOWERED_BITE) != 0);
+        }
+    }
+
+    /**
+     * Writes the engine state back into the cells and records it as the
+     * generation following the given one.
+     *
+     * @param previous the Generation the engine state evolved from
+     * @return the new Generation, already appended to the game history
+     */
+    public Generation materialize(Generation previous) {
+        writeBack();
+        Generation next = Generation.createNextGeneration(previous);
+        for (Cell cell : cells) {
+            cell.addGeneration(next); // Track cell in new generation
+        }
+        return next;
+    }
+
+    /**
+     * Returns a read-only view of the current engine state.
+     *
+     * The view is a flyweight shared by every call and reflects the engine
+     * arrays directly: it is only valid until the next step. Use
+     * GenerationView.copy() to keep it.
+     *
+     * @param stepOffset the step of the generation the engine was loaded from
+     * @return the current GenerationView
+     */
+    public GenerationView view(int stepOffset) {
+        return view.bind(stepOffset + step, alive, lifePoints, moods);
+    }
+
+    // QUERIES
+
+    /**
+     * Returns the number of generations computed since the engine was loaded.
+     *
+     * @return the engine step counter
+     */
+    public int getStep() {
+        return step;
+    }
+
+    /**
+     * Returns the Board this engine was loaded from.
+     *
+     * @return the source Board
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Checks whether the cell at the given coordinates is alive.
+     *
+     * @param x the column index
+     * @param y the row index
+     * @return true if the cell is alive in the current generation
+     */
+    public boolean isAlive(int x, int y) {
+        return getBit(alive, indexOf(x, y));
+    }
+
+    /**
+     * Returns the lifePoints of the cell at the given coordinates.
+     *
+     * @param x the column index
+     * @param y the row index
+     * @return the current lifePoints of the cell
+     */
+    public int getLifePoints(int x, int y) {
+        return lifePoints[indexOf(x, y)];
+    }
+
+    /**
+     * Returns the mood of the cell at the given coordinates.
+     *
+     * @param x the column index
+     * @param y the row index
+     * @return the current CellMood of the cell
+     */
+    public CellMood getMood(int x, int y) {
+        return MOODS[moods[indexOf(x, y)]];
+    }
+
+    /**
+     * Counts the alive cells in the current generation.
+     *
+     * @return the number of alive cells
+     */
+    public int countAlive() {
+        int count = 0;
+        for (long word : alive) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    private int indexOf(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new IllegalArgumentException("Coordinates out of board: " + x + "," + y);
+        }
+        return y * width + x;
+    }
+
+    // BITSET HELPERS
+
+    static boolean getBit(long[] bits, int i) {
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    static void setBit(long[] bits, int i, boolean value) {
+        if (value) {
+            bits[i >>> 6] |= 1L << i;
+        } else {
+            bits[i >>> 6] &= ~(1L << i);
+        }
+    }
+
+    static int nextSetBit(long[] bits, int from) {
+        int w = from >>> 6;
+        if (w >= bits.length) return -1;
+        long word = bits[w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == bits.length) return -1;
+            word = bits[w];
+        }
+    }
+}
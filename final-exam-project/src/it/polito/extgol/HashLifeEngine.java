@@ -0,0 +1,515 @@
+package it.polito.extgol;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * HashLife evolution engine for boards that behave as plain Conway's Game of Life.
+ *
+ * A board qualifies (see supports(Board)) when every cell is BASIC and NAIVE with no
+ * pending mood transition and non-negative lifePoints, and no tile has a lifePoint
+ * modifier: in that case no interaction or energy rule can change the aliveness
+ * computed by the classic rules.
+ *
+ * The pattern is stored as a canonicalized quadtree: identical sub-squares are the
+ * same Node instance, and every node memoizes its future, so repetitive patterns are
+ * evolved once. A node of level k advanced by 2^j generations (j <= k - 2) yields its
+ * centered sub-square, which lets the engine jump 2^j generations at once.
+ *
+ * The quadtree lives on an unbounded plane while the Board is bounded. A jump of 2^j
+ * generations is only taken when the alive cells, grown by 2^j in every direction, still
+ * fit on the board, so that no cell outside the board could have been born. Otherwise
+ * the engine advances one generation and clears whatever was born outside the board,
+ * which is exactly the bounded behavior.
+ */
+public class HashLifeEngine {
+
+    /** Number of canonical nodes after which unreachable nodes are dropped. */
+    private static final int MAX_NODES = 1 << 22;
+
+    /**
+     * Canonical quadtree node. Level-0 nodes are single cells; a node of level k
+     * covers a square of side 2^k.
+     */
+    private static final class Node {
+        final Node nw;
+        final Node ne;
+        final Node sw;
+        final Node se;
+        final int level;
+        final long population;
+        final int hash;
+
+        /** Memoized centered future for the current step size. */
+        Node result;
+
+        /** Leaf constructor. */
+        Node(boolean alive) {
+            this.nw = this.ne = this.sw = this.se = null;
+            this.level = 0;
+            this.population = alive ? 1 : 0;
+            this.hash = alive ? 1 : 0;
+        }
+
+        /** Inner node constructor. */
+        Node(Node nw, Node ne, Node sw, Node se) {
+            this.nw = nw;
+            this.ne = ne;
+            this.sw = sw;
+            this.se = se;
+            this.level = nw.level + 1;
+            this.population = nw.population + ne.population + sw.population + se.population;
+            int h = System.identityHashCode(nw);
+            h = 31 * h + System.identityHashCode(ne);
+            h = 31 * h + System.identityHashCode(sw);
+            h = 31 * h + System.identityHashCode(se);
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Node)) return false;
+            Node n = (Node) o;
+            return level == n.level && nw == n.nw && ne == n.ne && sw == n.sw && se == n.se;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final Node DEAD = new Node(false);
+    private static final Node ALIVE = new Node(true);
+
+    private final int width;
+    private final int height;
+
+    private final Map<Node, Node> canonical = new HashMap<>();
+    private final List<Node> emptyByLevel = new ArrayList<>();
+
+    /** Root of the quadtree and coordinates of its top-left corner. */
+    private Node root;
+    private long originX;
+    private long originY;
+
+    /** log2 of the number of generations computed by Node.result, or -1 if unset. */
+    private int stepLog = -1;
+
+    /** Number of generations computed since the engine was loaded. */
+    private long generation;
+
+    /**
+     * Loads the aliveness of every cell on the given board.
+     *
+     * @param board the Board providing the initial pattern
+     * @throws IllegalArgumentException if the board is not a plain Conway board
+     */
+    public HashLifeEngine(Board board) {
+        Objects.requireNonNull(board, "Board cannot be null");
+        if (!supports(board)) {
+            throw new IllegalArgumentException("Board is not a plain Conway board");
+        }
+        this.width = board.getWidth();
+        this.height = board.getHeight();
+        emptyByLevel.add(DEAD);
+
+        int level = 1;
+        while ((1L << level) < Math.max(width, height)) {
+            level++;
+        }
+        boolean[] alive = new boolean[width * height];
+        for (Tile tile : board.getTiles()) {
+            alive[tile.getY() * width + tile.getX()] = tile.getCell().isAlive();
+        }
+        this.root = build(alive, 0, 0, level);
+        this.originX = 0;
+        this.originY = 0;
+    }
+
+    /**
+     * Tells whether the given board evolves as plain Conway's Game of Life, which
+     * is required by this engine.
+     *
+     * @param board the Board to inspect
+     * @return true if the board is bounded, every cell is a BASIC, NAIVE cell with no
+     *         custom rule, no pending mood transition and non-negative lifePoints,
+     *         and no tile alters lifePoints
+     */
+    public static boolean supports(Board board) {
+        if (board.getTopology() != Topology.BOUNDED) return false;
+        for (Tile tile : board.getTiles()) {
+            Cell cell = tile.getCell();
+            Integer modifier = tile.getLifePointModifier();
+            if (cell == null || (modifier != null && modifier != 0)) return false;
+            if (cell.getType() != CellType.BASIC || cell.getMood() != CellMood.NAIVE) return false;
+            if (cell.getCustomRule() != null) return false;
+            if (cell.isFromNaiveToVampire() || cell.isFromHealerToVampire()) return false;
+            if (cell.isAlive() && cell.getLifePoints() < 0) return false;
+        }
+        return true;
+    }
+
+    // EVOLUTION
+
+    /**
+     * Advances the pattern by one generation.
+     */
+    public void step() {
+        advance(1);
+    }
+
+    /**
+     * Advances the pattern by the given number of generations, jumping by the
+     * largest power of two that provably stays within the board at each stage.
+     *
+     * @param generations the number of generations to compute
+     */
+    public void advance(long generations) {
+        if (generations < 0) {
+            throw new IllegalArgumentException("Generations cannot be negative");
+        }
+        long remaining = generations;
+        while (remaining > 0) {
+            if (root.population == 0) {
+                generation += remaining; // an empty board stays empty
+                return;
+            }
+            int j = 63 - Long.numberOfLeadingZeros(remaining);
+            long[] box = boundingBox();
+            while (j > 0 && !fitsOnBoard(box, 1L << j)) {
+                j--;
+            }
+            jump(j);
+            if (j == 0 && !fitsOnBoard(box, 1)) {
+                root = clip(root, originX, originY);
+            }
+            remaining -= 1L << j;
+            generation += 1L << j;
+            collectIfLarge();
+        }
+    }
+
+    /**
+     * Checks whether the bounding box grown by the given margin lies on the board.
+     */
+    private boolean fitsOnBoard(long[] box, long margin) {
+        return box[0] - margin >= 0 && box[1] - margin >= 0
+            && box[2] + margin < width && box[3] + margin < height;
+    }
+
+    /**
+     * Advances the unbounded pattern by 2^j generations.
+     */
+    private void jump(int j) {
+        if (stepLog != j) {
+            stepLog = j;
+            for (Node n : canonical.values()) {
+                n.result = null;
+            }
+        }
+        // the pattern must sit in the centered square of a quarter of the side
+        // (1/16 of the area) of a root large enough for the step
+        while (root.level < j + 3 || !isInnerQuarterOnly(root)) {
+            expand();
+        }
+        long quarter = 1L << (root.level - 2);
+        root = result(root);
+        originX += quarter;
+        originY += quarter;
+    }
+
+    /**
+     * Returns the centered sub-square of a node of level k advanced by
+     * 2^min(stepLog, k - 2) generations.
+     */
+    private Node result(Node n) {
+        if (n.result != null) return n.result;
+        Node r;
+        if (n.level == 2) {
+            r = evolveBase(n);
+        } else {
+            Node n00 = n.nw;
+            Node n01 = horizontal(n.nw, n.ne);
+            Node n02 = n.ne;
+            Node n10 = vertical(n.nw, n.sw);
+            Node n11 = centered(n);
+            Node n12 = vertical(n.ne, n.se);
+            Node n20 = n.sw;
+            Node n21 = horizontal(n.sw, n.se);
+            Node n22 = n.se;
+
+            if (stepLog >= n.level - 2) {
+                // full speed: two half steps of 2^(k-3) generations
+                Node r00 = result(n00), r01 = result(n01), r02 = result(n02);
+                Node r10 = result(n10), r11 = result(n11), r12 = result(n12);
+                Node r20 = result(n20), r21 = result(n21), r22 = result(n22);
+                r = join(result(join(r00, r01, r10, r11)), result(join(r01, r02, r11, r12)),
+                         result(join(r10, r11, r20, r21)), result(join(r11, r12, r21, r22)));
+            } else {
+                // slower step: only the second stage advances in time
+                Node c00 = centered(n00), c01 = centered(n01), c02 = centered(n02);
+                Node c10 = centered(n10), c11 = centered(n11), c12 = centered(n12);
+                Node c20 = centered(n20), c21 = centered(n21), c22 = centered(n22);
+                r = join(result(join(c00, c01, c10, c11)), result(join(c01, c02, c11, c12)),
+                         result(join(c10, c11, c20, c21)), result(join(c11, c12, c21, c22)));
+            }
+        }
+        n.result = r;
+        return r;
+    }
+
+    /**
+     * Evolves the 4x4 square of a level-2 node by one generation with Conway's
+     * rules and returns its 2x2 center.
+     */
+    private Node evolveBase(Node n) {
+        int[][] grid = new int[4][4];
+        Node[][] quads = { { n.nw, n.ne }, { n.sw, n.se } };
+        for (int qy = 0; qy < 2; qy++) {
+            for (int qx = 0; qx < 2; qx++) {
+                Node q = quads[qy][qx];
+                grid[qy * 2][qx * 2] = (int) q.nw.population;
+                grid[qy * 2][qx * 2 + 1] = (int) q.ne.population;
+                grid[qy * 2 + 1][qx * 2] = (int) q.sw.population;
+                grid[qy * 2 + 1][qx * 2 + 1] = (int) q.se.population;
+            }
+        }
+        Node[] center = new Node[4];
+        int k = 0;
+        for (int y = 1; y <= 2; y++) {
+            for (int x = 1; x <= 2; x++) {
+                int neighbors = 0;
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        if (dx != 0 || dy != 0) neighbors += grid[y + dy][x + dx];
+                    }
+                }
+                boolean alive = grid[y][x] == 1;
+                center[k++] = (neighbors == 3 || (alive && neighbors == 2)) ? ALIVE : DEAD;
+            }
+        }
+        return join(center[0], center[1], center[2], center[3]);
+    }
+
+    // QUADTREE HELPERS
+
+    private Node join(Node nw, Node ne, Node sw, Node se) {
+        Node candidate = new Node(nw, ne, sw, se);
+        Node existing = canonical.putIfAbsent(candidate, candidate);
+        return existing != null ? existing : candidate;
+    }
+
+    private Node empty(int level) {
+        while (emptyByLevel.size() <= level) {
+            Node e = emptyByLevel.get(emptyByLevel.size() - 1);
+            emptyByLevel.add(join(e, e, e, e));
+        }
+        return emptyByLevel.get(level);
+    }
+
+    /** Centered sub-square (one level down) of a node. */
+    private Node centered(Node n) {
+        return join(n.nw.se, n.ne.sw, n.sw.ne, n.se.nw);
+    }
+
+    /** Sub-square straddling two horizontally adjacent nodes. */
+    private Node horizontal(Node w, Node e) {
+        return join(w.ne, e.nw, w.se, e.sw);
+    }
+
+    /** Sub-square straddling two vertically adjacent nodes. */
+    private Node vertical(Node n, Node s) {
+        return join(n.sw, n.se, s.nw, s.ne);
+    }
+
+    /**
+     * Tells whether all alive cells of a node lie in its centered square of a
+     * quarter of the side (1/16 of the area), two levels down.
+     */
+    private boolean isInnerQuarterOnly(Node n) {
+        if (n.level < 3) return false;
+        Node inner = centered(centered(n));
+        return inner.population == n.population;
+    }
+
+    /**
+     * Doubles the side of the root, keeping the current root at its center.
+     */
+    private void expand() {
+        Node e = empty(root.level - 1);
+        long half = 1L << (root.level - 1);
+        root = join(join(e, e, e, root.nw), join(e, e, root.ne, e),
+                    join(e, root.sw, e, e), join(root.se, e, e, e));
+        originX -= half;
+        originY -= half;
+    }
+
+    /**
+     * Builds the node of the given level whose top-left corner is (x, y).
+     */
+    private Node build(boolean[] alive, long x, long y, int level) {
+        if (x >= width || y >= height) return empty(level);
+        if (level == 0) {
+            return alive[(int) (y * width + x)] ? ALIVE : DEAD;
+        }
+        long half = 1L << (level - 1);
+        return join(build(alive, x, y, level - 1), build(alive, x + half, y, level - 1),
+                    build(alive, x, y + half, level - 1), build(alive, x + half, y + half, level - 1));
+    }
+
+    /**
+     * Clears every cell outside the board from a node whose top-left corner is (x, y).
+     */
+    private Node clip(Node n, long x, long y) {
+        if (n.population == 0) return n;
+        long side = 1L << n.level;
+        if (x >= 0 && y >= 0 && x + side <= width && y + side <= height) return n;
+        if (x >= width || y >= height || x + side <= 0 || y + side <= 0) return empty(n.level);
+        long half = side >> 1;
+        return join(clip(n.nw, x, y), clip(n.ne, x + half, y),
+                    clip(n.sw, x, y + half), clip(n.se, x + half, y + half));
+    }
+
+    /**
+     * Returns {minX, minY, maxX, maxY} of the alive cells, assuming at least one.
+     */
+    private long[] boundingBox() {
+        long[] box = { Long.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE };
+        forEachAlive(root, originX, originY, (x, y) -> {
+            box[0] = Math.min(box[0], x);
+            box[1] = Math.min(box[1], y);
+            box[2] = Math.max(box[2], x);
+            box[3] = Math.max(box[3], y);
+        });
+        return box;
+    }
+
+    /**
+     * Drops canonical nodes no longer reachable from the root once the table
+     * grows past MAX_NODES.
+     */
+    private void collectIfLarge() {
+        if (canonical.size() < MAX_NODES) return;
+        canonical.clear();
+        Set<Node> seen = new HashSet<>();
+        List<Node> stack = new ArrayList<>();
+        stack.add(root);
+        for (Node e : emptyByLevel) {
+            stack.add(e);
+        }
+        while (!stack.isEmpty()) {
+            Node n = stack.remove(stack.size() - 1);
+            if (n.level == 0 || !seen.add(n)) continue;
+            n.result = null;
+            canonical.put(n, n);
+            stack.add(n.nw);
+            stack.add(n.ne);
+            stack.add(n.sw);
+            stack.add(n.se);
+        }
+    }
+
+    // QUERIES
+
+    /**
+     * Receives the coordinates of an alive cell.
+     */
+    @FunctionalInterface
+    public interface CellVisitor {
+        void visit(long x, long y);
+    }
+
+    private void forEachAlive(Node n, long x, long y, CellVisitor visitor) {
+        if (n.population == 0) return;
+        if (n.level == 0) {
+            visitor.visit(x, y);
+            return;
+        }
+        long half = 1L << (n.level - 1);
+        forEachAlive(n.nw, x, y, visitor);
+        forEachAlive(n.ne, x + half, y, visitor);
+        forEachAlive(n.sw, x, y + half, visitor);
+        forEachAlive(n.se, x + half, y + half, visitor);
+    }
+
+    /**
+     * Visits the coordinates of every alive cell, skipping empty regions.
+     *
+     * @param visitor the callback receiving each alive cell
+     */
+    public void forEachAlive(CellVisitor visitor) {
+        forEachAlive(root, originX, originY, visitor);
+    }
+
+    /**
+     * Returns the coordinates of every alive cell.
+     *
+     * @return a Set of Coord of the alive cells
+     */
+    public Set<Coord> getAliveCoords() {
+        Set<Coord> alive = new HashSet<>();
+        forEachAlive((x, y) -> alive.add(new Coord((int) x, (int) y)));
+        return alive;
+    }
+
+    /**
+     * Returns the number of alive cells.
+     *
+     * @return the current population
+     */
+    public long getPopulation() {
+        return root.population;
+    }
+
+    /**
+     * Returns the number of generations computed since the engine was loaded.
+     *
+     * @return the engine generation counter
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    // MATERIALIZATION
+
+    /**
+     * Writes the current aliveness back into the cells of the board, updating their
+     * lifePoints as the entity engine would (respawn resets to 0, survival adds 1,
+     * death removes 1), and records the result as the generation following the
+     * given one. Meant to be called after every single step.
+     *
+     * @param previous the Generation the pattern evolved from
+     * @return the new Generation, already appended to the game history
+     */
+    public Generation materialize(Generation previous) {
+        Board board = previous.getBoard();
+        boolean[] alive = new boolean[width * height];
+        forEachAlive((x, y) -> alive[(int) (y * width + x)] = true);
+
+        for (Tile tile : board.getTiles()) {
+            Cell cell = tile.getCell();
+            boolean wasAlive = cell.isAlive();
+            boolean willLive = alive[tile.getY() * width + tile.getX()];
+            if (!wasAlive && willLive) {
+                cell.setLifePoints(0);
+            } else if (wasAlive && !willLive) {
+                cell.setLifePoints(cell.getLifePoints() - 1);
+            } else if (wasAlive) {
+                cell.setLifePoints(cell.getLifePoints() + 1);
+            }
+            cell.setAlive(willLive);
+        }
+
+        Generation next = Generation.createNextGeneration(previous);
+        for (Cell cell : board.getCellSet()) {
+            cell.addGeneration(next); // Track cell in new generation
+        }
+        return next;
+    }
+}
@@ -0,0 +1,285 @@
+package it.polito.extgol;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * Read-only, memory-mapped access to a history file written by HistoryWriter,
+ * for replaying and scrubbing a run without holding it in memory.
+ *
+ * Format version 2, all integers big-endian:
+ *   - a 40-byte header:
+ *       - 4 bytes: magic number
+ *       - 4 bytes: format version
+ *       - 4 bytes: board width
+ *       - 4 bytes: board height
+ *       - 4 bytes: step of the first frame
+ *       - 4 bytes: number of frames, 0 until the writer is closed
+ *       - 4 bytes: size of the largest frame, 0 until the writer is closed
+ *       - 4 bytes: reserved
+ *       - 8 bytes: offset of the index, 0 until the writer is closed
+ *   - one frame per step, in step order: a 4-byte length, the 4-byte CRC32C
+ *     of the body, then the body, the generation encoded by GenerationCodec
+ *   - the index: the 8-byte offset of each frame
+ *
+ * get(step) reads one slot of the mapped index and decodes one frame, so any
+ * step is reached in constant time, and only the pages of the frames actually
+ * read are loaded by the operating system. The file is mapped in windows of
+ * SEGMENT_BYTES, each extended by the largest frame so that every frame lies
+ * entirely in the window where it starts; files of any size can be read.
+ *
+ * Every frame is checked against its length and checksum before it is decoded,
+ * so a damaged file fails with an IllegalStateException rather than yielding
+ * wrong generations. A file whose writer did not close it (e.g. after a crash)
+ * has no index: it is rebuilt in memory by scanning the frames up to the first
+ * one that is truncated or fails its checksum.
+ */
+public final class HistoryFile implements Closeable {
+
+    /** "EGOH", identifies a history file. */
+    static final int MAGIC = 0x45474F48;
+
+    /** Version written by HistoryWriter; open(...) rejects any other. */
+    static final int FORMAT_VERSION = 2;
+
+    static final int HEADER_BYTES = 40;
+
+    static final int FIRST_STEP_OFFSET = 16;
+
+    /** Length and checksum preceding the body of each frame. */
+    static final int FRAME_HEADER_BYTES = 8;
+
+    /** Size of the windows the frames are mapped in. */
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+    private final int width;
+    private final int height;
+    private final int firstStep;
+    private final int count;
+    private final int maxFrameBytes;
+
+    /** Offset of the end of the last frame. */
+    private final long framesEnd;
+
+    /** Offset of each frame, mapped from the file or rebuilt by scanning. */
+    private final LongBuffer index;
+
+    /** Mapped windows of the frames, created on first access. */
+    private final MappedByteBuffer[] segments;
+
+    private HistoryFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(header, 0);
+        header.flip();
+        if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+            throw new IllegalStateException("Not a history file");
+        }
+        if (header.getInt() != FORMAT_VERSION) {
+            throw new IllegalStateException("Unsupported history file version");
+        }
+        this.width = header.getInt();
+        this.height = header.getInt();
+        this.firstStep = header.getInt();
+        int frames = header.getInt();
+        int maxFrame = header.getInt();
+        header.getInt(); // reserved
+        long indexOffset = header.getLong();
+        if (width < 1 || height < 1 || (long) width * height > GenerationCodec.MAX_CELLS) {
+            throw new IllegalStateException("Corrupted history file header");
+        }
+
+        if (indexOffset != 0) {
+            if (frames < 0 || maxFrame < 0 || indexOffset < HEADER_BYTES
+                    || indexOffset + (long) frames * Long.BYTES > channel.size()) {
+                throw new IllegalStateException("Corrupted history file header");
+            }
+            this.count = frames;
+            this.maxFrameBytes = maxFrame;
+            this.framesEnd = indexOffset;
+            this.index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, (long) frames * Long.BYTES)
+                    .asLongBuffer();
+        } else {
+            // the writer did not complete the file: find the frames it wrote
+            long[] offsets = new long[1];
+            int n = 0;
+            int largest = 0;
+            long size = channel.size();
+            long position = HEADER_BYTES;
+            ByteBuffer frameHeader = ByteBuffer.allocate(FRAME_HEADER_BYTES);
+            ByteBuffer body = ByteBuffer.allocate(0);
+            while (position + FRAME_HEADER_BYTES <= size) {
+                frameHeader.clear();
+                readFully(frameHeader, position);
+                int frameBytes = frameHeader.getInt(0);
+                if (frameBytes <= 0 || position + FRAME_HEADER_BYTES + frameBytes > size) {
+                    break;
+                }
+                if (body.capacity() < frameBytes) {
+                    body = ByteBuffer.allocate(frameBytes);
+                }
+                body.clear().limit(frameBytes);
+                readFully(body, position + FRAME_HEADER_BYTES);
+                body.flip();
+                if (checksum(body) != frameHeader.getInt(Integer.BYTES)) {
+                    break;
+                }
+                if (n == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, n * 2);
+                }
+                offsets[n++] = position;
+                largest = Math.max(largest, frameBytes);
+                position += FRAME_HEADER_BYTES + frameBytes;
+            }
+            this.count = n;
+            this.maxFrameBytes = largest;
+            this.framesEnd = position;
+            this.index = LongBuffer.wrap(offsets, 0, n).slice();
+        }
+        this.segments = new MappedByteBuffer[(int) ((framesEnd + SEGMENT_BYTES - 1) / SEGMENT_BYTES)];
+    }
+
+    /**
+     * Opens a history file for reading.
+     *
+     * @param path the history file
+     * @return the open HistoryFile
+     * @throws UncheckedIOException  if the file cannot be read
+     * @throws IllegalStateException if the file is not a history file of a
+     *                               supported version
+     */
+    public static HistoryFile open(Path path) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            HistoryFile file = new HistoryFile(channel);
+            channel = null; // owned by the HistoryFile from now on
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open history file " + path, e);
+        } finally {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // the open failure is the one worth reporting
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes the generation at the given step.
+     *
+     * @param step the step of the generation, between getFirstStep() and getLastStep()
+     * @return a detached GenerationView of that generation
+     * @throws IndexOutOfBoundsException if the file holds no generation at that step
+     * @throws IllegalStateException     if the frame is corrupted
+     */
+    public GenerationView get(int step) {
+        int k = step - firstStep;
+        if (k < 0 || k >= count) {
+            throw new IndexOutOfBoundsException("No generation at step " + step);
+        }
+        long offset = index.get(k);
+        if (offset < HEADER_BYTES || offset + FRAME_HEADER_BYTES > framesEnd) {
+            throw new IllegalStateException("Corrupted history index at step " + step);
+        }
+        MappedByteBuffer segment = segment((int) (offset / SEGMENT_BYTES));
+        int position = (int) (offset % SEGMENT_BYTES);
+        int frameBytes = segment.getInt(position);
+        if (frameBytes <= 0 || frameBytes > maxFrameBytes
+                || offset + FRAME_HEADER_BYTES + frameBytes > framesEnd) {
+            throw new IllegalStateException("Corrupted history frame at step " + step);
+        }
+        byte[] frame = new byte[frameBytes];
+        segment.get(position + FRAME_HEADER_BYTES, frame);
+        if (checksum(ByteBuffer.wrap(frame)) != segment.getInt(position + Integer.BYTES)) {
+            throw new IllegalStateException("Corrupted history frame at step " + step);
+        }
+        return GenerationCodec.decodeView(frame, step, width, height);
+    }
+
+    /**
+     * Returns the CRC32C of the remaining bytes of a frame body, as stored in
+     * its frame header.
+     */
+    static int checksum(ByteBuffer body) {
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Maps the window starting at the given segment, on first access.
+     */
+    private synchronized MappedByteBuffer segment(int s) {
+        if (segments[s] == null) {
+            long start = s * SEGMENT_BYTES;
+            long length = Math.min(framesEnd - start, SEGMENT_BYTES + FRAME_HEADER_BYTES + maxFrameBytes);
+            try {
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot map history file", e);
+            }
+        }
+        return segments[s];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getFirstStep() {
+        return firstStep;
+    }
+
+    /**
+     * Returns the step of the last generation in the file.
+     *
+     * @return the last step, or getFirstStep() - 1 if the file is empty
+     */
+    public int getLastStep() {
+        return firstStep + count - 1;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Closes the file. The mappings are released by the garbage collector.
+     */
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close history file", e);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                return;
+            }
+            position += n;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package it.polito.extgol;
+
+/**
+ * Tells the streaming API of ExtendedGameOfLife which of the emitted
+ * generations to keep once the consumer is done with them.
+ *
+ * Use the factory methods none(), keepLast(n) and keepEvery(k).
+ */
+public final class HistoryRetention {
+
+    private enum Kind { NONE, LAST, EVERY }
+
+    private static final HistoryRetention NONE = new HistoryRetention(Kind.NONE, 0);
+
+    private final Kind kind;
+    private final int amount;
+
+    private HistoryRetention(Kind kind, int amount) {
+        this.kind = kind;
+        this.amount = amount;
+    }
+
+    /**
+     * Keeps no generation: memory stays constant however long the run.
+     *
+     * @return the retention keeping nothing
+     */
+    public static HistoryRetention none() {
+        return NONE;
+    }
+
+    /**
+     * Keeps the last n emitted generations.
+     *
+     * @param n the number of generations to keep, at least 1
+     * @return the retention keeping a sliding window of generations
+     */
+    public static HistoryRetention keepLast(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Must keep at least one generation");
+        }
+        return new HistoryRetention(Kind.LAST, n);
+    }
+
+    /**
+     * Keeps the emitted generations whose step is a multiple of k.
+     *
+     * @param k the sampling period, at least 1
+     * @return the retention sampling one generation every k
+     */
+    public static HistoryRetention keepEvery(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("Sampling period must be positive");
+        }
+        return new HistoryRetention(Kind.EVERY, k);
+    }
+
+    /**
+     * Tells whether the generation at the given step must be kept.
+     */
+    boolean retains(int step) {
+        switch (kind) {
+            case LAST:
+                return true;
+            case EVERY:
+                return step % amount == 0;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns the maximum number of generations kept at once, or -1 if unbounded.
+     */
+    int capacity() {
+        return kind == Kind.LAST ? amount : -1;
+    }
+}
@@ -0,0 +1,192 @@
+package it.polito.extgol;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Appends generations to a history file, in the format read by HistoryFile.
+ *
+ * Each generation becomes one frame compressed by GenerationCodec, checksummed
+ * and written at the end of the file, so memory does not grow with the length of the run
+ * except for an 8-byte offset per frame. close() writes the offset index and
+ * completes the header; a file whose writer never closed it is still readable,
+ * HistoryFile rebuilds its index by scanning the frames.
+ *
+ * A writer is a Consumer of GenerationView, so it can be handed as the sink of
+ * ExtendedGameOfLife.runStreaming(...) to record a run as it is computed.
+ * Generations must be appended in consecutive steps.
+ */
+public final class HistoryWriter implements Closeable, Consumer<GenerationView> {
+
+    private static final int INITIAL_FRAMES = 1024;
+
+    private final FileChannel channel;
+    private final int width;
+    private final int height;
+
+    private int firstStep;
+    private int count;
+    private int maxFrameBytes;
+    private long end = HistoryFile.HEADER_BYTES;
+    private long[] offsets = new long[INITIAL_FRAMES];
+
+    private HistoryWriter(FileChannel channel, int width, int height) {
+        this.channel = channel;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Creates a history file for a board of the given size, replacing any
+     * existing file.
+     *
+     * @param path   the history file
+     * @param width  the number of columns of the board
+     * @param height the number of rows of the board
+     * @return the open HistoryWriter, with no generation yet
+     * @throws UncheckedIOException if the file cannot be created
+     */
+    public static HistoryWriter create(Path path, int width, int height) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Board must have at least one tile");
+        }
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            HistoryWriter writer = new HistoryWriter(channel, width, height);
+            writer.writeHeader(0L);
+            channel = null; // owned by the HistoryWriter from now on
+            return writer;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create history file " + path, e);
+        } finally {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // the creation failure is the one worth reporting
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends a generation computed by the streaming API.
+     *
+     * @param view the generation to append, at the step following the last one
+     * @throws IllegalArgumentException if the view has a different board size
+     *                                  or does not follow the last generation
+     * @throws UncheckedIOException     if the file cannot be written
+     */
+    public void append(GenerationView view) {
+        if (view.getWidth() != width || view.getHeight() != height) {
+            throw new IllegalArgumentException("Generation does not match the board size");
+        }
+        if (count > 0 && view.getStep() != firstStep + count) {
+            throw new IllegalArgumentException("Expected step " + (firstStep + count)
+                    + " but got " + view.getStep());
+        }
+        byte[] frame = GenerationCodec.encode(view);
+        ByteBuffer out = ByteBuffer.allocate(HistoryFile.FRAME_HEADER_BYTES + frame.length);
+        out.putInt(frame.length).putInt(HistoryFile.checksum(ByteBuffer.wrap(frame))).put(frame).flip();
+        try {
+            writeFully(out, end);
+            if (count == 0) {
+                firstStep = view.getStep();
+                writeFully(ByteBuffer.allocate(Integer.BYTES).putInt(0, firstStep),
+                        HistoryFile.FIRST_STEP_OFFSET);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append to history file", e);
+        }
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        offsets[count++] = end;
+        end += HistoryFile.FRAME_HEADER_BYTES + frame.length;
+        maxFrameBytes = Math.max(maxFrameBytes, frame.length);
+    }
+
+    /**
+     * Appends a recorded generation, e.g. one of Game.getGenerations().
+     *
+     * @param generation the generation to append, at the step following the last one
+     * @throws IllegalArgumentException if the generation has a different board
+     *                                  size or does not follow the last generation
+     * @throws UncheckedIOException     if the file cannot be written
+     */
+    public void append(Generation generation) {
+        append(GenerationView.of(generation));
+    }
+
+    /**
+     * Appends a generation; lets the writer be the sink of the streaming API.
+     *
+     * @param view the generation to append
+     */
+    @Override
+    public void accept(GenerationView view) {
+        append(view);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Writes the offset index after the last frame and completes the header,
+     * then closes the file.
+     *
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    @Override
+    public void close() {
+        try {
+            ByteBuffer index = ByteBuffer.allocate(count * Long.BYTES);
+            index.asLongBuffer().put(offsets, 0, count);
+            writeFully(index, end);
+            writeHeader(end);
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot complete history file", e);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // the write failure, if any, is the one worth reporting
+            }
+        }
+    }
+
+    /**
+     * Writes the header, with an index offset of 0 until the index is written.
+     */
+    private void writeHeader(long indexOffset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HistoryFile.HEADER_BYTES);
+        header.putInt(HistoryFile.MAGIC)
+              .putInt(HistoryFile.FORMAT_VERSION)
+              .putInt(width)
+              .putInt(height)
+              .putInt(firstStep)
+              .putInt(count)
+              .putInt(maxFrameBytes)
+              .putInt(0) // reserved
+              .putLong(indexOffset)
+              .flip();
+        writeFully(header, 0);
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
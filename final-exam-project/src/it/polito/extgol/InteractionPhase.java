@@ -0,0 +1,295 @@
+package it.polito.extgol;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Cell-to-cell interaction phase of the GridEngine, working on its primitive arrays.
+ *
+ * The reference order is the one of ExtendedGameOfLife.evolve: alive cells are
+ * visited column by column (x, then y) and each one interacts with its "forward"
+ * neighbors, i.e. the ones coming later in that order, in neighbor table order.
+ * On a bounded board these are (x, y+1), (x+1, y-1), (x+1, y), (x+1, y+1). This
+ * enumerates every unordered pair exactly once whatever the board topology.
+ *
+ * Interactions are additive lifePoint deltas, except for two guards that skip an
+ * interaction when a NAIVE or HEALER cell has negative lifePoints at that moment.
+ * Only alive VAMPIRE neighbors can lower the lifePoints of such a cell, so a cell
+ * whose lifePoints are at least its number of alive vampire neighbors can never
+ * trip a guard, whatever the order. The phase exploits this:
+ *   1. cells that could trip a guard ("unsafe") are marked, in parallel;
+ *   2. every cell gathers the deltas and mood-transition flags of its pairs with
+ *      no unsafe endpoint and applies them to itself, in parallel;
+ *   3. the pairs touching an unsafe cell are replayed sequentially in reference order.
+ * The outcome is identical to running every pair in reference order, and the cost
+ * is proportional to the number of alive cells rather than to the board area.
+ * Without a pool the same steps simply run on the calling thread.
+ */
+final class InteractionPhase {
+
+    private static final byte NAIVE = (byte) CellMood.NAIVE.ordinal();
+    private static final byte VAMPIRE = (byte) CellMood.VAMPIRE.ordinal();
+    private static final byte HEALER = (byte) CellMood.HEALER.ordinal();
+
+    private final int width;
+    private final int height;
+    private final int size;
+
+    /** Board.NEIGHBOR_SLOTS neighbor indices per cell, size marking a missing neighbor. */
+    private final int[] neighbors;
+
+    private final int[] lifePoints;
+    private final byte[] moods;
+    private final byte[] flags;
+
+    /** Cells whose guards may depend on the interaction order. */
+    private final long[] unsafe;
+
+    /**
+     * Creates an interaction phase working on the given engine arrays.
+     *
+     * @param width      the board width
+     * @param height     the board height
+     * @param neighbors  the neighbor table of the board
+     * @param lifePoints the lifePoints of each cell, updated in place
+     * @param moods      the mood ordinal of each cell
+     * @param flags      the GridEngine flag bits of each cell, updated in place
+     */
+    InteractionPhase(int width, int height, int[] neighbors, int[] lifePoints, byte[] moods, byte[] flags) {
+        this.width = width;
+        this.height = height;
+        this.size = width * height;
+        this.neighbors = neighbors;
+        this.lifePoints = lifePoints;
+        this.moods = moods;
+        this.flags = flags;
+        this.unsafe = new long[(size + 63) >>> 6];
+    }
+
+    /**
+     * Runs the interactions on the calling thread.
+     *
+     * @param alive the aliveness bitset of the current generation
+     */
+    void run(long[] alive) {
+        run(alive, null);
+    }
+
+    /**
+     * Runs the interactions with the same outcome as running every pair in
+     * reference order.
+     *
+     * @param alive the aliveness bitset of the current generation
+     * @param pool  the ForkJoinPool running the stripes, or null to run sequentially
+     */
+    void run(long[] alive, ForkJoinPool pool) {
+        boolean[] anyUnsafe = new boolean[1];
+        Stripes.forEach(pool, size, (from, to) -> {
+            if (markUnsafe(alive, from, to)) {
+                anyUnsafe[0] = true;
+            }
+        });
+        Stripes.forEach(pool, size, (from, to) -> gather(alive, from, to));
+        if (anyUnsafe[0]) {
+            replay(alive, unsafe);
+        }
+    }
+
+    /**
+     * Runs, in reference order, the pairs touching a cell of the filter.
+     *
+     * The acting cell of such a pair is either a filtered cell or one of its
+     * neighbors, so only those are collected and sorted in column order.
+     *
+     * @param alive  the aliveness bitset
+     * @param filter the cells whose pairs are replayed
+     */
+    private void replay(long[] alive, long[] filter) {
+        int[] keys = new int[16];
+        int count = 0;
+        for (int i = GridEngine.nextSetBit(filter, 0); i >= 0; i = GridEngine.nextSetBit(filter, i + 1)) {
+            int slot = i * Board.NEIGHBOR_SLOTS;
+            for (int k = -1; k < Board.NEIGHBOR_SLOTS; k++) {
+                int j = k < 0 ? i : neighbors[slot + k];
+                if (!GridEngine.getBit(alive, j)) continue;
+                if (count == keys.length) keys = Arrays.copyOf(keys, count * 2);
+                keys[count++] = columnKey(j);
+            }
+        }
+        Arrays.sort(keys, 0, count);
+
+        for (int k = 0; k < count; k++) {
+            if (k > 0 && keys[k] == keys[k - 1]) continue;
+            int i = (keys[k] % height) * width + keys[k] / height;
+            int slot = i * Board.NEIGHBOR_SLOTS;
+            for (int s = 0; s < Board.NEIGHBOR_SLOTS; s++) {
+                int j = neighbors[slot + s];
+                if (j != size && columnKey(j) > keys[k]) {
+                    replayPair(alive, filter, i, j);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the position of a cell when cells are ordered by x and then by y.
+     *
+     * @param i the index y * width + x of the cell
+     * @return the column-major position x * height + y
+     */
+    private int columnKey(int i) {
+        return (i % width) * height + i / width;
+    }
+
+    private void replayPair(long[] alive, long[] filter, int a, int b) {
+        if (!GridEngine.getBit(alive, b)) return;
+        if (GridEngine.getBit(filter, a) || GridEngine.getBit(filter, b)) {
+            interact(a, b, lifePoints, moods, flags);
+        }
+    }
+
+    /**
+     * Primitive counterpart of Cell.interact: applies the interaction of cell a
+     * onto cell b, both assumed alive.
+     *
+     * @param a          index of the acting cell
+     * @param b          index of the other cell
+     * @param lifePoints the lifePoints of each cell, updated in place
+     * @param moods      the mood ordinal of each cell
+     * @param flags      the GridEngine flag bits of each cell, updated in place
+     */
+    static void interact(int a, int b, int[] lifePoints, byte[] moods, byte[] flags) {
+        byte moodA = moods[a];
+        byte moodB = moods[b];
+        if (moodA == moodB) return;
+
+        if (moodA == HEALER) {
+            if (moodB == NAIVE) {
+                lifePoints[b]++;
+            } else if (moodB == VAMPIRE) {
+                lifePoints[a]--;
+                lifePoints[b]++;
+                if ((flags[a] & GridEngine.FLAG_EMPOWERED_BITE) != 0) {
+                    flags[a] |= GridEngine.FLAG_HEALER_TO_VAMPIRE;
+                }
+            }
+        } else if (moodA == VAMPIRE) {
+            if (lifePoints[b] < 0) return;
+            lifePoints[a]++;
+            lifePoints[b]--;
+            if (moodB == NAIVE) {
+                flags[b] |= GridEngine.FLAG_NAIVE_TO_VAMPIRE;
+            } else if ((flags[a] & GridEngine.FLAG_EMPOWERED_BITE) != 0) {
+                flags[b] |= GridEngine.FLAG_HEALER_TO_VAMPIRE;
+            }
+        } else {
+            if (lifePoints[a] < 0) return;
+            if (moodB == HEALER) {
+                lifePoints[a]++;
+            } else {
+                flags[a] |= GridEngine.FLAG_NAIVE_TO_VAMPIRE;
+                lifePoints[a]--;
+                lifePoints[b]++;
+            }
+        }
+    }
+
+    /**
+     * Marks the alive NAIVE and HEALER cells in [from, to) whose lifePoints could
+     * drop below zero during the phase.
+     *
+     * @return true if at least one cell of the stripe is unsafe
+     */
+    private boolean markUnsafe(long[] alive, int from, int to) {
+        Arrays.fill(unsafe, from >>> 6, (to + 63) >>> 6, 0L);
+        boolean found = false;
+        for (int i = GridEngine.nextSetBit(alive, from); i >= 0 && i < to; i = GridEngine.nextSetBit(alive, i + 1)) {
+            if (moods[i] == VAMPIRE) continue;
+            int slot = i * Board.NEIGHBOR_SLOTS;
+            int vampires = 0;
+            for (int k = 0; k < Board.NEIGHBOR_SLOTS; k++) {
+                int j = neighbors[slot + k];
+                // the sentinel is never alive, so its mood is never read
+                if (GridEngine.getBit(alive, j) && moods[j] == VAMPIRE) {
+                    vampires++;
+                }
+            }
+            if (lifePoints[i] - vampires < 0) {
+                unsafe[i >>> 6] |= 1L << i;
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Lets every alive cell in [from, to) apply to itself the effects of its pairs
+     * with no unsafe endpoint. Each cell only writes its own lifePoints and flags.
+     */
+    private void gather(long[] alive, int from, int to) {
+        for (int i = GridEngine.nextSetBit(alive, from); i >= 0 && i < to; i = GridEngine.nextSetBit(alive, i + 1)) {
+            if (GridEngine.getBit(unsafe, i)) continue;
+            int slot = i * Board.NEIGHBOR_SLOTS;
+            int key = columnKey(i);
+            int delta = 0;
+            byte gained = 0;
+            for (int k = 0; k < Board.NEIGHBOR_SLOTS; k++) {
+                int j = neighbors[slot + k];
+                if (!GridEngine.getBit(alive, j) || GridEngine.getBit(unsafe, j)) continue;
+
+                // the cell coming first in column order is the one acting
+                boolean acting = columnKey(j) > key;
+                int effect = acting ? actorEffect(i, j) : targetEffect(j, i);
+                delta += effect;
+                gained |= acting ? actorFlags(i, j) : targetFlags(j, i);
+            }
+            lifePoints[i] += delta;
+            flags[i] |= gained;
+        }
+    }
+
+    /** LifePoint change of acting cell a when interacting with b, guards passing. */
+    private int actorEffect(int a, int b) {
+        byte moodA = moods[a];
+        byte moodB = moods[b];
+        if (moodA == moodB) return 0;
+        if (moodA == HEALER) return moodB == VAMPIRE ? -1 : 0;
+        if (moodA == VAMPIRE) return 1;
+        return moodB == HEALER ? 1 : -1;
+    }
+
+    /** LifePoint change of target cell b when a interacts with it, guards passing. */
+    private int targetEffect(int a, int b) {
+        byte moodA = moods[a];
+        byte moodB = moods[b];
+        if (moodA == moodB) return 0;
+        if (moodA == HEALER) return 1;
+        if (moodA == VAMPIRE) return -1;
+        return moodB == VAMPIRE ? 1 : 0;
+    }
+
+    /** Flags gained by acting cell a when interacting with b, guards passing. */
+    private byte actorFlags(int a, int b) {
+        byte moodA = moods[a];
+        byte moodB = moods[b];
+        if (moodA == HEALER && moodB == VAMPIRE && (flags[a] & GridEngine.FLAG_EMPOWERED_BITE) != 0) {
+            return GridEngine.FLAG_HEALER_TO_VAMPIRE;
+        }
+        if (moodA == NAIVE && moodB == VAMPIRE) {
+            return GridEngine.FLAG_NAIVE_TO_VAMPIRE;
+        }
+        return 0;
+    }
+
+    /** Flags gained by target cell b when a interacts with it, guards passing. */
+    private byte targetFlags(int a, int b) {
+        if (moods[a] != VAMPIRE) return 0;
+        if (moods[b] == NAIVE) {
+            return GridEngine.FLAG_NAIVE_TO_VAMPIRE;
+        }
+        if (moods[b] == HEALER && (flags[a] & GridEngine.FLAG_EMPOWERED_BITE) != 0) {
+            return GridEngine.FLAG_HEALER_TO_VAMPIRE;
+        }
+        return 0;
+    }
+}
@@ -19,6 +19,12 @@ public class JPAUtil {
     /** The name of the persistence unit defined in persistence.xml. */
     private static final String PU_NAME = "game-of-life-pu";
 
+    /**
+     * Number of identifiers reserved per sequence call by the entities saved in
+     * bulk (tiles, cells and generations), and JDBC batch size of bulk saves.
+     */
+    static final int ID_ALLOCATION_SIZE = 50;
+
     private JPAUtil() {} // utility class need not to be instantiated
     
     /**
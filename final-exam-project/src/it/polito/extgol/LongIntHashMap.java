@@ -0,0 +1,172 @@
+package it.polito.extgol;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive long keys to non-negative int values.
+ *
+ * Entries live in two parallel arrays probed linearly, so lookups allocate
+ * nothing and never box. A value of NO_VALUE marks a free slot; removals shift
+ * the following entries back instead of leaving tombstones.
+ */
+final class LongIntHashMap {
+
+    /** Returned when a key is absent, and used to mark free slots. */
+    static final int NO_VALUE = -1;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    /**
+     * Creates a map able to hold the given number of entries without resizing.
+     *
+     * @param expected the expected number of entries
+     */
+    LongIntHashMap(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expected * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, NO_VALUE);
+        mask = capacity - 1;
+    }
+
+    private int slotOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * Returns the value mapped to the key.
+     *
+     * @param key the key to look up
+     * @return the mapped value, or NO_VALUE if the key is absent
+     */
+    int get(long key) {
+        for (int i = slotOf(key); ; i = (i + 1) & mask) {
+            if (values[i] == NO_VALUE) return NO_VALUE;
+            if (keys[i] == key) return values[i];
+        }
+    }
+
+    /**
+     * Maps the key to the given value, replacing any previous mapping.
+     *
+     * @param key   the key
+     * @param value the value, cannot be negative
+     */
+    void put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Values cannot be negative");
+        }
+        int i = slotOf(key);
+        while (values[i] != NO_VALUE) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > values.length) {
+            rehash(values.length << 1);
+        }
+    }
+
+    /**
+     * Adds the delta to the value mapped to the key, mapping it to the delta
+     * if the key is absent.
+     *
+     * @param key   the key
+     * @param delta the non-negative amount to add
+     */
+    void add(long key, int delta) {
+        int i = slotOf(key);
+        while (values[i] != NO_VALUE) {
+            if (keys[i] == key) {
+                values[i] += delta;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        put(key, delta);
+    }
+
+    /**
+     * Removes the mapping of the key.
+     *
+     * @param key the key to remove
+     * @return the removed value, or NO_VALUE if the key was absent
+     */
+    int remove(long key) {
+        int i = slotOf(key);
+        while (values[i] != NO_VALUE && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        int old = values[i];
+        if (old == NO_VALUE) return NO_VALUE;
+
+        // shift back the entries whose probe sequence crosses the freed slot
+        for (int j = (i + 1) & mask; values[j] != NO_VALUE; j = (j + 1) & mask) {
+            int ideal = slotOf(keys[j]);
+            if (((j - ideal) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        values[i] = NO_VALUE;
+        size--;
+        return old;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != NO_VALUE) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of slots, to iterate with keyAt and valueAt.
+     *
+     * @return the current capacity
+     */
+    int capacity() {
+        return values.length;
+    }
+
+    long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * Returns the value stored in a slot.
+     *
+     * @param slot the slot index, in [0, capacity())
+     * @return the value, or NO_VALUE if the slot is free
+     */
+    int valueAt(int slot) {
+        return values[slot];
+    }
+}
@@ -0,0 +1,128 @@
+package it.polito.extgol;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Read-only generation history of a stored game, loaded from the database one
+ * page of consecutive steps at a time.
+ *
+ * get(step) loads the page holding the step with a keyset query on the
+ * (game_id, step) unique index, so its cost depends on the page size and not
+ * on the length of the history nor on the step. The state maps of the page are
+ * batch fetched, one query per map for pages of up to
+ * GameRepository.DEFAULT_PAGE_SIZE generations, instead of three queries per
+ * generation. The last maxPages pages are
+ * kept in least-recently-used order; older ones are dropped and reloaded when
+ * needed again, so memory stays bounded however long the game.
+ *
+ * Generations are identified by their step: a generation obtained before its
+ * page was dropped is still found by indexOf(...), at its step.
+ */
+final class PagedGenerations extends AbstractList<Generation> implements RandomAccess {
+
+    private final Game game;
+    private final Long gameId;
+    private final int size;
+    private final int pageSize;
+    private final int maxPages;
+
+    /** The cells of the game's board by identifier, to attach loaded states to. */
+    private final Map<Long, Cell> cellsById;
+
+    /** Loaded pages by page number, least recently used first. */
+    private final LinkedHashMap<Integer, List<Generation>> pages = new LinkedHashMap<>(16, 0.75f, true);
+
+    PagedGenerations(Game game, int size, int pageSize, int maxPages, Map<Long, Cell> cellsById) {
+        this.game = game;
+        this.gameId = game.getId();
+        this.size = size;
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+        this.cellsById = cellsById;
+    }
+
+    @Override
+    public synchronized Generation get(int step) {
+        if (step < 0 || step >= size) {
+            throw new IndexOutOfBoundsException("No generation at step " + step);
+        }
+        int number = step / pageSize;
+        List<Generation> page = pages.get(number);
+        if (page == null) {
+            page = load(number * pageSize);
+            pages.put(number, page);
+            if (pages.size() > maxPages) {
+                Iterator<List<Generation>> eldest = pages.values().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return page.get(step - number * pageSize);
+    }
+
+    /**
+     * Loads the generations of one page and attaches them to the game.
+     *
+     * @param from the step of the first generation of the page
+     * @return the generations of the page, in step order
+     * @throws IllegalStateException if the stored steps are not consecutive
+     */
+    private List<Generation> load(int from) {
+        int expected = Math.min(pageSize, size - from);
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            List<Generation> page = em.createQuery(
+                    "SELECT gen FROM Generation gen WHERE gen.game.id = :game AND gen.step >= :from"
+                    + " ORDER BY gen.step", Generation.class)
+                .setParameter("game", gameId)
+                .setParameter("from", from)
+                .setMaxResults(expected)
+                .getResultList();
+            for (int k = 0; k < page.size(); k++) {
+                if (page.get(k).getStep() != from + k) {
+                    throw new IllegalStateException("Missing generation at step " + (from + k));
+                }
+                page.get(k).attach(game, game.getBoard(), cellsById);
+            }
+            if (page.size() != expected) {
+                throw new IllegalStateException("Missing generation at step " + (from + page.size()));
+            }
+            return page;
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the step of a generation of this game without loading any page.
+     */
+    @Override
+    public int indexOf(Object o) {
+        if (o instanceof Generation g && g.getGame() == game && g.getStep() < size) {
+            return g.getStep();
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+}
@@ -0,0 +1,339 @@
+package it.polito.extgol;
+
+import java.util.Objects;
+
+/**
+ * Compiled evolution rule of a cell type.
+ *
+ * The rule is a 2 x 9 table telling, for a dead or alive cell and for each
+ * number of alive neighbors from 0 to 8, whether the cell is alive in the next
+ * generation. Each row is stored as a 9-bit mask (bit n for n alive neighbors),
+ * so a lookup is a shift and a mask, with no branch on the count.
+ *
+ * A rule can also track stress, the small state machine behind the Highlander:
+ * a counter grows by one at every generation whose neighbor count is in the
+ * stress mask and resets to 0 otherwise; once it reaches the tolerance the
+ * cell dies whatever the table says. A tolerance of 0 disables the counter,
+ * which is then left untouched.
+ *
+ * Rules can also be parsed from rule strings, to be registered on a Board
+ * and assigned to its cells:
+ *   - Life-like rules "B36/S23" (birth and survival counts, in any order and
+ *     case) or the older "23/36" (survival/birth) notation;
+ *   - Generations rules "B2/S/C3" or "/2/3" (survival/birth/states): a cell
+ *     failing to survive spends states - 2 more generations dying, in which
+ *     it is not alive and cannot be born again. The same counter tracks them.
+ * Rules giving birth with 0 alive neighbors are rejected, since every engine
+ * relies on isolated dead cells staying dead.
+ *
+ * Tables are immutable and shared, and new cell behaviors can be added as new
+ * tables instead of new code paths.
+ */
+public final class RuleTable {
+
+    /** Largest number of alive neighbors a cell can have. */
+    public static final int MAX_NEIGHBORS = 8;
+
+    /** Mask with a bit for every possible number of alive neighbors. */
+    public static final int ALL_COUNTS = (1 << (MAX_NEIGHBORS + 1)) - 1;
+
+    /** Number of consecutive stressful generations a Highlander can withstand. */
+    public static final int HIGHLANDER_TOLERANCE = 3;
+
+    private static final int BIRTH_3 = 1 << 3;
+
+    private static final int COUNTS_2_3 = 1 << 2 | 1 << 3;
+
+    /** Rules of the four CellTypes, indexed by ordinal. */
+    private static final RuleTable[] BY_TYPE = new RuleTable[CellType.values().length];
+
+    static {
+        BY_TYPE[CellType.BASIC.ordinal()] = new RuleTable(BIRTH_3, COUNTS_2_3);
+        BY_TYPE[CellType.LONER.ordinal()] = new RuleTable(BIRTH_3, 1 << 1 | COUNTS_2_3);
+        BY_TYPE[CellType.SOCIAL.ordinal()] = new RuleTable(BIRTH_3, ALL_COUNTS & ~(1 << 0 | 1 << 1));
+        // a Highlander survives any count and only dies of prolonged stress
+        BY_TYPE[CellType.HIGHLANDER.ordinal()] = new RuleTable(BIRTH_3, ALL_COUNTS,
+                ALL_COUNTS & ~COUNTS_2_3, HIGHLANDER_TOLERANCE);
+    }
+
+    /** Row 0: births of dead cells; row 1: survivals of alive cells. */
+    private final int[] next;
+
+    private final int stress;
+    private final int tolerance;
+
+    /** Generations spent dying by a cell failing to survive, 0 for Life-like rules. */
+    private final int decay;
+
+    /** 64-bit hash of the rule, see fingerprint(). */
+    private final long fingerprint;
+
+    /**
+     * Creates a rule with no stress counter.
+     *
+     * @param birth   bit n set if a dead cell with n alive neighbors is born
+     * @param survive bit n set if an alive cell with n alive neighbors survives
+     * @throws IllegalArgumentException if a mask has bits above MAX_NEIGHBORS
+     */
+    public RuleTable(int birth, int survive) {
+        this(birth, survive, 0, 0);
+    }
+
+    /**
+     * Creates a rule with a stress counter.
+     *
+     * @param birth     bit n set if a dead cell with n alive neighbors is born
+     * @param survive   bit n set if an alive cell with n alive neighbors survives
+     * @param stress    bit n set if a generation with n alive neighbors is stressful
+     * @param tolerance the counter value at which the cell dies, 0 to disable the counter
+     * @throws IllegalArgumentException if a mask has bits above MAX_NEIGHBORS or
+     *                                  the tolerance is negative
+     */
+    public RuleTable(int birth, int survive, int stress, int tolerance) {
+        this(birth, survive, stress, tolerance, 0);
+    }
+
+    private RuleTable(int birth, int survive, int stress, int tolerance, int decay) {
+        if ((birth & ~ALL_COUNTS) != 0 || (survive & ~ALL_COUNTS) != 0 || (stress & ~ALL_COUNTS) != 0) {
+            throw new IllegalArgumentException("Masks can only hold neighbor counts from 0 to " + MAX_NEIGHBORS);
+        }
+        if (tolerance < 0) {
+            throw new IllegalArgumentException("Tolerance cannot be negative");
+        }
+        if ((birth & 1) != 0) {
+            throw new IllegalArgumentException("Births with no alive neighbor are not supported");
+        }
+        this.next = new int[] { birth, survive };
+        this.stress = tolerance == 0 ? 0 : stress;
+        this.tolerance = tolerance;
+        this.decay = decay;
+        long h = GridEngine.mix(birth);
+        h = GridEngine.mix(h ^ survive);
+        h = GridEngine.mix(h ^ this.stress);
+        h = GridEngine.mix(h ^ tolerance);
+        this.fingerprint = GridEngine.mix(h ^ decay);
+    }
+
+    /**
+     * Creates a Generations rule.
+     *
+     * @param birth   bit n set if a dead cell with n alive neighbors is born
+     * @param survive bit n set if an alive cell with n alive neighbors survives
+     * @param states  the number of cell states, at least 2: alive, states - 2
+     *                dying ones and dead; 2 gives a Life-like rule
+     * @return the compiled rule
+     * @throws IllegalArgumentException if a mask has bits above MAX_NEIGHBORS,
+     *                                  births with no neighbor or states is below 2
+     */
+    public static RuleTable generations(int birth, int survive, int states) {
+        if (states < 2) {
+            throw new IllegalArgumentException("Generations rules need at least 2 states");
+        }
+        return new RuleTable(birth, survive, 0, 0, states - 2);
+    }
+
+    /**
+     * Parses a rule string, see the class description for the accepted notations.
+     *
+     * @param rule the rule string, e.g. "B36/S23", "23/3" or "B2/S/C3"
+     * @return the compiled rule
+     * @throws IllegalArgumentException if the string is malformed or describes
+     *                                  an unsupported rule
+     */
+    public static RuleTable parse(String rule) {
+        Objects.requireNonNull(rule, "Rule cannot be null");
+        String[] parts = rule.trim().toUpperCase().split("/", -1);
+        if (parts.length < 2 || parts.length > 3) {
+            throw new IllegalArgumentException("Malformed rule: " + rule);
+        }
+        Integer birth = null;
+        Integer survive = null;
+        Integer states = null;
+        boolean tagged = !parts[0].isEmpty() && Character.isLetter(parts[0].charAt(0));
+        for (int k = 0; k < parts.length; k++) {
+            String part = parts[k];
+            char tag = tagged ? (part.isEmpty() ? '?' : part.charAt(0)) : "SBC".charAt(k);
+            String digits = tagged ? part.substring(Math.min(1, part.length())) : part;
+            if (tag == 'B' && birth == null) {
+                birth = countsMask(digits, rule);
+            } else if (tag == 'S' && survive == null) {
+                survive = countsMask(digits, rule);
+            } else if (tag == 'C' && states == null && digits.matches("\\d{1,3}")) {
+                states = Integer.parseInt(digits);
+            } else {
+                throw new IllegalArgumentException("Malformed rule: " + rule);
+            }
+        }
+        if (birth == null || survive == null) {
+            throw new IllegalArgumentException("Malformed rule: " + rule);
+        }
+        return generations(birth, survive, states == null ? 2 : states);
+    }
+
+    private static int countsMask(String digits, String rule) {
+        int mask = 0;
+        for (char c : digits.toCharArray()) {
+            if (c < '0' || c > '0' + MAX_NEIGHBORS) {
+                throw new IllegalArgumentException("Malformed rule: " + rule);
+            }
+            mask |= 1 << (c - '0');
+        }
+        return mask;
+    }
+
+    /**
+     * Formats this rule in the B/S notation, followed by the number of states
+     * for Generations rules, e.g. "B36/S23" or "B2/S/C3".
+     * Stress counters have no rule string notation and are not included.
+     *
+     * @return the canonical rule string
+     */
+    public String toRuleString() {
+        StringBuilder sb = new StringBuilder("B");
+        appendCounts(sb, next[0]);
+        sb.append("/S");
+        appendCounts(sb, next[1]);
+        if (decay > 0) {
+            sb.append("/C").append(decay + 2);
+        }
+        return sb.toString();
+    }
+
+    private static void appendCounts(StringBuilder sb, int mask) {
+        for (int n = 0; n <= MAX_NEIGHBORS; n++) {
+            if (((mask >>> n) & 1) != 0) sb.append(n);
+        }
+    }
+
+    /**
+     * Returns the shared rule of a cell type.
+     *
+     * @param type the CellType, null being treated as BASIC like Cell.evolve does
+     * @return the compiled rule of that type
+     */
+    public static RuleTable of(CellType type) {
+        return BY_TYPE[type == null ? CellType.BASIC.ordinal() : type.ordinal()];
+    }
+
+    /**
+     * Returns the shared rule of a cell type from its ordinal, as stored by the engines.
+     *
+     * @param type the CellType ordinal
+     * @return the compiled rule of that type
+     */
+    static RuleTable of(byte type) {
+        return BY_TYPE[type];
+    }
+
+    /**
+     * Looks up the table.
+     *
+     * @param alive          the current aliveness of the cell
+     * @param aliveNeighbors the number of alive neighbors, from 0 to MAX_NEIGHBORS
+     * @return true if the table makes the cell alive in the next generation
+     */
+    public boolean lives(boolean alive, int aliveNeighbors) {
+        return ((next[alive ? 1 : 0] >>> aliveNeighbors) & 1) != 0;
+    }
+
+    /**
+     * Advances the counter of a cell by one generation: the stress counter for
+     * rules with a tolerance, the remaining dying generations for Generations rules.
+     *
+     * @param alive          the current aliveness of the cell
+     * @param counter        the current counter
+     * @param aliveNeighbors the number of alive neighbors in this generation
+     * @return the new counter, or the unchanged one if the rule tracks none
+     */
+    public int nextCounter(boolean alive, int counter, int aliveNeighbors) {
+        if (decay > 0) {
+            if (alive) return lives(true, aliveNeighbors) ? 0 : decay;
+            return counter > 0 ? counter - 1 : 0;
+        }
+        if (tolerance == 0) return counter;
+        return ((stress >>> aliveNeighbors) & 1) != 0 ? counter + 1 : 0;
+    }
+
+    /**
+     * Advances the counter of a dead cell by several generations with no alive
+     * neighbor, as spent by an isolated tile the engines skip.
+     *
+     * @param counter     the current counter
+     * @param generations the number of generations
+     * @return the new counter
+     */
+    public int idleCounter(int counter, int generations) {
+        if (generations <= 0) return counter;
+        if (decay > 0) return Math.max(0, counter - generations);
+        if (tolerance == 0) return counter;
+        return (stress & 1) != 0 ? counter + generations : 0;
+    }
+
+    /**
+     * Decides the next aliveness of a cell from the table and its counter.
+     *
+     * @param alive          the current aliveness of the cell
+     * @param counter        the current counter, before nextCounter(...) advances it
+     * @param aliveNeighbors the number of alive neighbors
+     * @return true if the cell is alive in the next generation
+     */
+    public boolean evolve(boolean alive, int counter, int aliveNeighbors) {
+        if (tolerance != 0 && nextCounter(alive, counter, aliveNeighbors) >= tolerance) return false;
+        if (!alive && counter > 0 && decay > 0) return false; // still dying
+        return lives(alive, aliveNeighbors);
+    }
+
+    public int getBirthMask() {
+        return next[0];
+    }
+
+    public int getSurviveMask() {
+        return next[1];
+    }
+
+    public int getStressMask() {
+        return stress;
+    }
+
+    public int getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Returns the number of states of this rule in the Generations sense.
+     *
+     * @return 2 for Life-like rules, more for rules with dying states
+     */
+    public int getStates() {
+        return decay + 2;
+    }
+
+    /**
+     * Returns a 64-bit hash of the rule, equal for equal rules, for the state
+     * hashes that must tell custom rules apart.
+     *
+     * @return the rule fingerprint
+     */
+    long fingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RuleTable)) return false;
+        RuleTable other = (RuleTable) o;
+        return next[0] == other.next[0] && next[1] == other.next[1]
+                && stress == other.stress && tolerance == other.tolerance && decay == other.decay;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(next[0], next[1], stress, tolerance, decay);
+    }
+
+    @Override
+    public String toString() {
+        return toRuleString();
+    }
+}
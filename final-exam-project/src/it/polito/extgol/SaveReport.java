@@ -0,0 +1,56 @@
+package it.polito.extgol;
+
+/**
+ * Outcome of a bulk save: how many rows were written and how fast.
+ */
+public class SaveReport {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final long rows;
+    private final long elapsedNanos;
+
+    /**
+     * Creates a report.
+     *
+     * @param rows         the number of rows written
+     * @param elapsedNanos the time spent writing them, in nanoseconds
+     */
+    public SaveReport(long rows, long elapsedNanos) {
+        this.rows = rows;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the number of rows written, across every table.
+     *
+     * @return the row count
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the time spent saving, from the start of the transaction to its commit.
+     *
+     * @return the elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the save throughput.
+     *
+     * @return the rows written per second, or 0 if no time was measured
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * NANOS_PER_SECOND / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d rows in %.3f s (%.0f rows/s)",
+                rows, elapsedNanos / NANOS_PER_SECOND, getRowsPerSecond());
+    }
+}
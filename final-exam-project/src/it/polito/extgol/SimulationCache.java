@@ -0,0 +1,189 @@
+package it.polito.extgol;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Memoizes the outcome of runs, so that running the same initial configuration
+ * with the same events for the same number of steps again costs a lookup.
+ *
+ * Outcomes are keyed by keyOf(...), a 64-bit hash of everything a run depends
+ * on. They are kept in memory in least-recently-used order and evicted once
+ * their estimated size exceeds the byte budget. A cache created with a
+ * CachedRunRepository also stores every outcome in the database and looks
+ * there when an outcome is not in memory, so outcomes outlive the process.
+ *
+ * Different runs sharing a key are possible but with a probability in the
+ * order of 2^-64. All methods are thread safe, so a cache can be shared by
+ * concurrent runs.
+ */
+public class SimulationCache {
+
+    private final long maxBytes;
+
+    /** Persistent tier, or null for a memory-only cache. */
+    private final CachedRunRepository repository;
+
+    /** Outcomes in access order, least recently used first. */
+    private final LinkedHashMap<Long, CachedRun> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long bytes;
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a memory-only cache.
+     *
+     * @param maxBytes the budget of the estimated size of the kept outcomes
+     * @throws IllegalArgumentException if maxBytes is not positive
+     */
+    public SimulationCache(long maxBytes) {
+        this(maxBytes, null);
+    }
+
+    /**
+     * Creates a cache backed by the database.
+     *
+     * @param maxBytes   the budget of the estimated size of the outcomes kept in memory
+     * @param repository the repository storing every outcome, or null for a memory-only cache
+     * @throws IllegalArgumentException if maxBytes is not positive
+     */
+    public SimulationCache(long maxBytes, CachedRunRepository repository) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.maxBytes = maxBytes;
+        this.repository = repository;
+    }
+
+    /**
+     * Computes the key of a run: a hash of the board size and topology, of the
+     * state hash of the board, of the step the run starts from, of the events
+     * and of the number of steps.
+     *
+     * The state hash already covers everything the future of each cell depends
+     * on, custom rules by their 64-bit fingerprint, so every term of the key is
+     * a full 64-bit hash and two different runs share a key with a probability
+     * in the order of 2^-64.
+     *
+     * @param game     the Game whose current board state would be run
+     * @param eventMap the events to trigger by generation step, or null for none
+     * @param steps    the number of generations to simulate
+     * @return the cache key
+     */
+    public static long keyOf(Game game, Map<Integer, EventType> eventMap, int steps) {
+        Board board = game.getBoard();
+        long h = board.getStateHash();
+        h = fold(h, board.getWidth());
+        h = fold(h, board.getHeight());
+        h = fold(h, board.getTopology().ordinal());
+        h = fold(h, game.getStart().getStep());
+        if (eventMap != null) {
+            for (Map.Entry<Integer, EventType> e : new TreeMap<>(eventMap).entrySet()) {
+                h = fold(h, (long) e.getKey() << 8 | e.getValue().ordinal());
+            }
+        }
+        return fold(h, steps);
+    }
+
+    private static long fold(long h, long value) {
+        return GridEngine.mix(h ^ GridEngine.mix(value));
+    }
+
+    /**
+     * Returns the cached outcome of a run, from memory or else from the database.
+     *
+     * @param key the key computed by keyOf(...)
+     * @return the outcome, or empty if the run was never cached
+     */
+    public synchronized Optional<CachedRun> get(long key) {
+        CachedRun run = entries.get(key);
+        if (run == null && repository != null) {
+            Optional<CachedRunRecord> record = repository.findById(key);
+            if (record.isPresent()) {
+                run = record.get().toCachedRun();
+                keep(key, run);
+            }
+        }
+        if (run == null) {
+            misses++;
+            return Optional.empty();
+        }
+        hits++;
+        return Optional.of(run);
+    }
+
+    /**
+     * Caches the outcome of a run, storing it in the database too for a
+     * persistent cache. An outcome larger than the whole budget is only stored
+     * in the database.
+     *
+     * @param key the key computed by keyOf(...)
+     * @param run the outcome to cache
+     */
+    public synchronized void put(long key, CachedRun run) {
+        Objects.requireNonNull(run, "Run cannot be null");
+        if (repository != null) {
+            repository.update(new CachedRunRecord(key, run));
+        }
+        keep(key, run);
+    }
+
+    /**
+     * Puts an outcome in memory and evicts the least recently used ones until
+     * the budget is met again.
+     */
+    private void keep(long key, CachedRun run) {
+        CachedRun old = entries.remove(key);
+        if (old != null) {
+            bytes -= old.estimatedBytes();
+        }
+        if (run.estimatedBytes() > maxBytes) {
+            return;
+        }
+        entries.put(key, run);
+        bytes += run.estimatedBytes();
+        Iterator<CachedRun> eldest = entries.values().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().estimatedBytes();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Drops every outcome kept in memory; outcomes stored in the database stay.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the estimated size of the outcomes kept in memory.
+     *
+     * @return the size in bytes, at most the budget
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,431 @@
+package it.polito.extgol;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Unbounded board for the Extended Game of Life whose memory grows with the
+ * population instead of the area.
+ *
+ * Unlike Board, no Tile or Cell entity is created per coordinate. A cell is stored
+ * only while it is alive or carries a non-default state (a type other than BASIC,
+ * a mood other than NAIVE, or pending mood flags); any other coordinate holds an
+ * implicit dead BASIC, NAIVE cell. Stored cells are reached through a LongIntHashMap
+ * keyed by their packed (x, y) coordinates, whose values index parallel primitive
+ * arrays holding the cell state, and neighbors are computed arithmetically.
+ *
+ * Each step applies the same rules as ExtendedGameOfLife.evolve: pairwise interactions
+ * in column order, per-type rules, mood transitions, lifePoint bookkeeping and the
+ * negative-lifePoints death rule. Coordinates span the whole int range. Sparse boards
+ * have no tiles, hence no lifePoint modifiers; the lifePoints of a cell that is not
+ * stored read as 0, since they cannot affect any later generation.
+ */
+public class SparseBoard {
+
+    private static final byte BASIC = (byte) CellType.BASIC.ordinal();
+    private static final byte NAIVE = (byte) CellMood.NAIVE.ordinal();
+
+    private static final CellType[] TYPES = CellType.values();
+    private static final CellMood[] MOODS = CellMood.values();
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** Forward neighbor offsets visited by the interaction phase, in order. */
+    private static final int[][] FORWARD_NEIGHBORS = { {0, 1}, {1, -1}, {1, 0}, {1, 1} };
+
+    /** Stored cells: packed coordinates to slot index. */
+    private final LongIntHashMap slots = new LongIntHashMap(INITIAL_CAPACITY);
+
+    // cell state by slot
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private long[] alive = new long[INITIAL_CAPACITY >>> 6];
+    private int[] lifePoints = new int[INITIAL_CAPACITY];
+    private int[] nearToDeath = new int[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private byte[] moods = new byte[INITIAL_CAPACITY];
+    private byte[] flags = new byte[INITIAL_CAPACITY];
+
+    /** Released slots available for reuse. */
+    private int[] free = new int[INITIAL_CAPACITY];
+    private int freeCount;
+
+    /** Number of slots ever handed out. */
+    private int highWater;
+
+    private int aliveCount;
+
+    /** Number of generations computed so far. */
+    private int step;
+
+    /**
+     * Creates an empty sparse board.
+     */
+    public SparseBoard() {
+    }
+
+    /**
+     * Creates a sparse board holding the current state of the cells of a Board.
+     *
+     * @param board the Board to copy
+     * @return a new SparseBoard with the same cells at the same coordinates
+     * @throws IllegalArgumentException if a tile has a non-zero lifePoint modifier
+     *                                  or a custom rule, or the board wraps around
+     */
+    public static SparseBoard fromBoard(Board board) {
+        Objects.requireNonNull(board, "Board cannot be null");
+        if (board.getTopology() != Topology.BOUNDED) {
+            throw new IllegalArgumentException("Sparse boards cannot wrap around: " + board.getTopology());
+        }
+        SparseBoard sparse = new SparseBoard();
+        for (Tile tile : board.getTiles()) {
+            Integer modifier = tile.getLifePointModifier();
+            if (modifier != null && modifier != 0) {
+                throw new IllegalArgumentException("Sparse boards do not support tile modifiers: " + tile);
+            }
+            Cell cell = tile.getCell();
+            if (cell.getCustomRule() != null) {
+                throw new IllegalArgumentException("Sparse boards do not support custom rules: " + tile);
+            }
+            byte f = 0;
+            if (cell.isFromNaiveToVampire()) f |= GridEngine.FLAG_NAIVE_TO_VAMPIRE;
+            if (cell.isFromHealerToVampire()) f |= GridEngine.FLAG_HEALER_TO_VAMPIRE;
+            if (cell.getEmpoweredBite()) f |= GridEngine.FLAG_EMPOWERED_BITE;
+            if (!cell.isAlive() && cell.getType() == CellType.BASIC
+                    && cell.getMood() == CellMood.NAIVE && f == 0) {
+                continue;
+            }
+            int s = sparse.slotFor(tile.getX(), tile.getY());
+            sparse.setAliveBit(s, cell.isAlive());
+            sparse.lifePoints[s] = cell.getLifePoints();
+            sparse.nearToDeath[s] = cell.getConsecutiveNearToDeath();
+            sparse.types[s] = (byte) cell.getType().ordinal();
+            sparse.moods[s] = (byte) cell.getMood().ordinal();
+            sparse.flags[s] = f;
+        }
+        return sparse;
+    }
+
+    // COORDINATES
+
+    /**
+     * Packs coordinates into a key whose signed order is column order: by x, then by y.
+     */
+    static long pack(int x, int y) {
+        return ((long) x << 32) | ((y ^ Integer.MIN_VALUE) & 0xffffffffL);
+    }
+
+    static int unpackX(long key) {
+        return (int) (key >> 32);
+    }
+
+    static int unpackY(long key) {
+        return (int) key ^ Integer.MIN_VALUE;
+    }
+
+    // SLOT MANAGEMENT
+
+    /**
+     * Returns the slot of the cell at the given coordinates, storing a dead
+     * BASIC, NAIVE cell there if none is stored yet.
+     */
+    private int slotFor(int x, int y) {
+        long key = pack(x, y);
+        int s = slots.get(key);
+        if (s != LongIntHashMap.NO_VALUE) return s;
+
+        if (freeCount > 0) {
+            s = free[--freeCount];
+        } else {
+            s = highWater++;
+            if (s == keys.length) grow();
+        }
+        keys[s] = key;
+        lifePoints[s] = 0;
+        nearToDeath[s] = 0;
+        types[s] = BASIC;
+        moods[s] = NAIVE;
+        flags[s] = 0;
+        slots.put(key, s);
+        return s;
+    }
+
+    private void grow() {
+        int capacity = keys.length << 1;
+        keys = Arrays.copyOf(keys, capacity);
+        alive = Arrays.copyOf(alive, capacity >>> 6);
+        lifePoints = Arrays.copyOf(lifePoints, capacity);
+        nearToDeath = Arrays.copyOf(nearToDeath, capacity);
+        types = Arrays.copyOf(types, capacity);
+        moods = Arrays.copyOf(moods, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+    }
+
+    /**
+     * Drops a stored cell that is dead and carries only default state.
+     */
+    private void releaseIfDefault(int s) {
+        if (GridEngine.getBit(alive, s) || types[s] != BASIC || moods[s] != NAIVE || flags[s] != 0) {
+            return;
+        }
+        slots.remove(keys[s]);
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, freeCount * 2);
+        }
+        free[freeCount++] = s;
+    }
+
+    private void setAliveBit(int s, boolean value) {
+        boolean was = GridEngine.getBit(alive, s);
+        if (was != value) {
+            GridEngine.setBit(alive, s, value);
+            aliveCount += value ? 1 : -1;
+        }
+    }
+
+    private boolean isStoredAlive(long key) {
+        int s = slots.get(key);
+        return s != LongIntHashMap.NO_VALUE && GridEngine.getBit(alive, s);
+    }
+
+    // EVOLUTION
+
+    /**
+     * Computes the next generation.
+     *
+     * Only the alive cells and their neighbors are visited, so the cost of a
+     * step is proportional to the population, wherever it is on the plane.
+     */
+    public void step() {
+        long[] aliveKeys = aliveKeys();
+        Arrays.sort(aliveKeys); // column order, as in ExtendedGameOfLife.evolve
+
+        // 1. interactions, each unordered pair of alive neighbors exactly once
+        for (long key : aliveKeys) {
+            int a = slots.get(key);
+            int x = unpackX(key);
+            int y = unpackY(key);
+            for (int[] d : FORWARD_NEIGHBORS) {
+                int b = slots.get(pack(x + d[0], y + d[1]));
+                if (b != LongIntHashMap.NO_VALUE && GridEngine.getBit(alive, b)) {
+                    InteractionPhase.interact(a, b, lifePoints, moods, flags);
+                }
+            }
+        }
+
+        // 2. alive neighbor counts of every cell that may change
+        LongIntHashMap counts = new LongIntHashMap(aliveKeys.length * 9);
+        for (long key : aliveKeys) {
+            int x = unpackX(key);
+            int y = unpackY(key);
+            counts.add(key, 0);
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    if (dx != 0 || dy != 0) counts.add(pack(x + dx, y + dy), 1);
+                }
+            }
+        }
+
+        // 3. rules, reading only the precomputed counts and each cell's own state
+        for (int c = 0; c < counts.capacity(); c++) {
+            int n = counts.valueAt(c);
+            if (n == LongIntHashMap.NO_VALUE) continue;
+            long key = counts.keyAt(c);
+            int s = slots.get(key);
+            if (s == LongIntHashMap.NO_VALUE) {
+                if (RuleTable.of(CellType.BASIC).lives(false, n)) { // an implicit BASIC cell is born
+                    s = slotFor(unpackX(key), unpackY(key));
+                    setAliveBit(s, true);
+                }
+                continue;
+            }
+            evolve(s, n);
+            releaseIfDefault(s);
+        }
+        step++;
+    }
+
+    /**
+     * Applies the per-type rules, mood transitions and lifePoint bookkeeping to
+     * a stored cell.
+     */
+    private void evolve(int s, int aliveNeighbors) {
+        boolean wasAlive = GridEngine.getBit(alive, s);
+        int lp = lifePoints[s];
+
+        boolean willLive = GridEngine.evolveCell(RuleTable.of(types[s]), nearToDeath, s, wasAlive, aliveNeighbors);
+        GridEngine.applyMoodTransition(moods, flags, s);
+
+        if (!wasAlive && willLive) {
+            lp = 0; // Respawn reset LP
+        } else if (wasAlive && !willLive) {
+            lp -= 1; // Death reduces LP
+        } else if (wasAlive) {
+            lp += 1; // Survival increases LP
+        }
+        lifePoints[s] = lp;
+        // even if GOL says live, LP < 0 -> dies
+        setAliveBit(s, willLive && lp >= 0);
+    }
+
+    /**
+     * Advances the board by the given number of generations.
+     *
+     * @param steps the number of generations to compute
+     */
+    public void run(int steps) {
+        for (int i = 0; i < steps; i++) {
+            step();
+        }
+    }
+
+    /**
+     * Applies a global event to every alive cell, as Game.unrollEvent does.
+     *
+     * @param event the EventType to apply
+     */
+    public void applyEvent(EventType event) {
+        Objects.requireNonNull(event, "Event cannot be null");
+        for (int s = GridEngine.nextSetBit(alive, 0); s >= 0; s = GridEngine.nextSetBit(alive, s + 1)) {
+            switch (event) {
+                case CATACLYSM:
+                    lifePoints[s] = 0;
+                    break;
+                case FAMINE:
+                    lifePoints[s] -= 1;
+                    break;
+                case BLOOM:
+                    lifePoints[s] += 2;
+                    break;
+                case BLOOD_MOON:
+                    if (MOODS[moods[s]] == CellMood.VAMPIRE) {
+                        flags[s] |= GridEngine.FLAG_EMPOWERED_BITE;
+                    }
+                    break;
+                case SANCTUARY:
+                    if (MOODS[moods[s]] == CellMood.HEALER) {
+                        lifePoints[s] += 1;
+                    } else if (MOODS[moods[s]] == CellMood.VAMPIRE) {
+                        moods[s] = NAIVE;
+                    }
+                    break;
+            }
+        }
+    }
+
+    private long[] aliveKeys() {
+        long[] result = new long[aliveCount];
+        int k = 0;
+        for (int s = GridEngine.nextSetBit(alive, 0); s >= 0; s = GridEngine.nextSetBit(alive, s + 1)) {
+            result[k++] = keys[s];
+        }
+        return result;
+    }
+
+    // STATE
+
+    /**
+     * Sets the aliveness of the cell at the given coordinates.
+     *
+     * @param x     the column index
+     * @param y     the row index
+     * @param value true to make the cell alive
+     */
+    public void setAlive(int x, int y, boolean value) {
+        int s = value ? slotFor(x, y) : slots.get(pack(x, y));
+        if (s == LongIntHashMap.NO_VALUE) return;
+        setAliveBit(s, value);
+        releaseIfDefault(s);
+    }
+
+    /**
+     * Sets the type and mood of the cell at the given coordinates.
+     *
+     * @param x    the column index
+     * @param y    the row index
+     * @param type the CellType of the cell
+     * @param mood the CellMood of the cell
+     */
+    public void setCell(int x, int y, CellType type, CellMood mood) {
+        Objects.requireNonNull(type, "Cell type cannot be null");
+        Objects.requireNonNull(mood, "Cell mood cannot be null");
+        int s = slotFor(x, y);
+        types[s] = (byte) type.ordinal();
+        moods[s] = (byte) mood.ordinal();
+        releaseIfDefault(s);
+    }
+
+    /**
+     * Sets the lifePoints of the cell at the given coordinates. Has no lasting
+     * effect on a dead BASIC, NAIVE cell, which is not stored.
+     *
+     * @param x          the column index
+     * @param y          the row index
+     * @param lifePoints the new lifePoints
+     */
+    public void setLifePoints(int x, int y, int lifePoints) {
+        int s = slotFor(x, y);
+        this.lifePoints[s] = lifePoints;
+        releaseIfDefault(s);
+    }
+
+    public boolean isAlive(int x, int y) {
+        return isStoredAlive(pack(x, y));
+    }
+
+    public int getLifePoints(int x, int y) {
+        int s = slots.get(pack(x, y));
+        return s == LongIntHashMap.NO_VALUE ? 0 : lifePoints[s];
+    }
+
+    public CellType getType(int x, int y) {
+        int s = slots.get(pack(x, y));
+        return s == LongIntHashMap.NO_VALUE ? CellType.BASIC : TYPES[types[s]];
+    }
+
+    public CellMood getMood(int x, int y) {
+        int s = slots.get(pack(x, y));
+        return s == LongIntHashMap.NO_VALUE ? CellMood.NAIVE : MOODS[moods[s]];
+    }
+
+    /**
+     * Returns the number of generations computed so far.
+     *
+     * @return the step counter
+     */
+    public int getStep() {
+        return step;
+    }
+
+    /**
+     * Counts the alive cells.
+     *
+     * @return the number of alive cells
+     */
+    public int countAlive() {
+        return aliveCount;
+    }
+
+    /**
+     * Counts the cells currently stored, alive or carrying non-default state.
+     *
+     * @return the number of stored cells
+     */
+    public int countStored() {
+        return slots.size();
+    }
+
+    /**
+     * Returns the coordinates of every alive cell.
+     *
+     * @return a Set of Coord of the alive cells
+     */
+    public Set<Coord> getAliveCoords() {
+        Set<Coord> result = new HashSet<>();
+        for (long key : aliveKeys()) {
+            result.add(new Coord(unpackX(key), unpackY(key)));
+        }
+        return result;
+    }
+}
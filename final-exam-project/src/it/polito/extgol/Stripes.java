@@ -0,0 +1,70 @@
+package it.polito.extgol;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits a range of tile indices into horizontal stripes and runs an action on
+ * each of them, concurrently when a ForkJoinPool is available.
+ *
+ * Stripes are cut on 64-tile boundaries, so actions that write one bit per tile
+ * into a long[] bitset never share a word with another stripe.
+ */
+final class Stripes {
+
+    /** Stripes smaller than this number of tiles are handled by a single task. */
+    static final int MIN_STRIPE_TILES = 1 << 14;
+
+    /**
+     * Action applied to the tiles with index in [from, to).
+     */
+    @FunctionalInterface
+    interface RangeAction {
+        void run(int from, int to);
+    }
+
+    private Stripes() {} // utility class need not to be instantiated
+
+    /**
+     * Runs the action over [0, size), returning once every stripe is done.
+     *
+     * @param pool   the ForkJoinPool running the stripes, or null to run sequentially
+     * @param size   the number of tiles
+     * @param action the action applied to each stripe
+     */
+    static void forEach(ForkJoinPool pool, int size, RangeAction action) {
+        if (pool == null || size <= MIN_STRIPE_TILES) {
+            action.run(0, size);
+        } else {
+            pool.invoke(new Stripe(action, 0, size));
+        }
+    }
+
+    /**
+     * Fork/join task splitting its stripe in halves until it is small enough.
+     */
+    private static final class Stripe extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient RangeAction action;
+        private final int from;
+        private final int to;
+
+        Stripe(RangeAction action, int from, int to) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= MIN_STRIPE_TILES) {
+                action.run(from, to);
+                return;
+            }
+            int mid = ((from + to) >>> 1) & ~63;
+            invokeAll(new Stripe(action, from, mid), new Stripe(action, mid, to));
+        }
+    }
+}
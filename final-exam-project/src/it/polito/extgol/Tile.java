@@ -1,6 +1,6 @@
 package it.polito.extgol;
 
-import java.util.HashSet;
+import java.util.Objects;
 import java.util.Set;
 
 import jakarta.persistence.AttributeOverride;
@@ -16,6 +16,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Transient;
 
 /**
@@ -26,7 +27,8 @@ import jakarta.persistence.Transient;
 public class Tile implements Interactable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tile_seq")
+    @SequenceGenerator(name = "tile_seq", sequenceName = "tile_seq", allocationSize = JPAUtil.ID_ALLOCATION_SIZE)
     private Long id;
 
     /** Coordinates of the tile on the board. */
@@ -60,9 +62,9 @@ public class Tile implements Interactable {
     @JoinColumn(name = "cell_id", nullable = false, unique = true)
     private Cell cell;
 
-    /** Neighboring tiles for interactions. Not persisted. */
+    /** Neighboring tiles for interactions, built on first use. Not persisted. */
     @Transient
-    private Set<Tile> neighbors = new HashSet<Tile>();
+    private Set<Tile> neighbors;
 
     /** Life point modifier */
     @Column(name = "lifePointModifier", nullable = false) 
@@ -121,6 +123,9 @@ public class Tile implements Interactable {
      */
     public void setCell(Cell cell) {
         this.cell = cell;
+        if (board != null) {
+            board.onCellReplaced();
+        }
     }
 
     /**
@@ -143,10 +148,14 @@ public class Tile implements Interactable {
 
     /**
      * Provides the set of neighboring tiles around this tile.
+     * The set is taken from the board's neighbor table on first use.
      *
      * @return a Set of adjacent Tile instances
      */
     public Set<Tile> getNeighbors() {
+        if (this.neighbors == null) {
+            this.neighbors = board.getAdjacentTiles(this);
+        }
         return this.neighbors;
     }
 
@@ -187,6 +196,9 @@ public class Tile implements Interactable {
     }
 
     public void setLifePointModifier(Integer lifePointModifier) {
+        if (board != null && !Objects.equals(this.lifePointModifier, lifePointModifier)) {
+            board.onStateChanged(tileCoord); // the modifier is part of the state hash
+        }
         this.lifePointModifier = lifePointModifier;
     }
 
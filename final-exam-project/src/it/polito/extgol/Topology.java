@@ -0,0 +1,78 @@
+package it.polito.extgol;
+
+/**
+ * Selects how the edges of a Board are connected, and therefore which tiles
+ * are neighbors of the tiles on the border.
+ *
+ * The topology is resolved once, when the board builds its neighbor table, so
+ * the engines count neighbors with no bounds check whatever the topology.
+ * Wrapping topologies need at least 3 columns and 3 rows, so that the eight
+ * neighbors of a tile are always distinct tiles other than itself.
+ */
+public enum Topology {
+
+    /**
+     * The board is a rectangle surrounded by a dead border: tiles on the edges
+     * have fewer than eight neighbors (the classic behavior).
+     */
+    BOUNDED,
+
+    /**
+     * Left and right edges are joined, and so are top and bottom edges:
+     * every tile has eight neighbors.
+     */
+    TORUS,
+
+    /**
+     * Left and right edges are joined as in a torus, while crossing the top or
+     * bottom edge mirrors the column: the tile above (x, 0) is (width - 1 - x, height - 1).
+     */
+    KLEIN_BOTTLE;
+
+    /** Minimum number of columns and rows of a wrapping board. */
+    static final int MIN_WRAPPING_SIDE = 3;
+
+    /**
+     * Checks whether the edges of the board are joined together.
+     *
+     * @return true for every topology but BOUNDED
+     */
+    public boolean wraps() {
+        return this != BOUNDED;
+    }
+
+    /**
+     * Resolves the tile reached from (x, y) by the offset (dx, dy), each offset
+     * being in [-1, 1].
+     *
+     * @param x      the column of the starting tile
+     * @param y      the row of the starting tile
+     * @param dx     the column offset
+     * @param dy     the row offset
+     * @param width  the board width
+     * @param height the board height
+     * @return the index y * width + x of the reached tile, or -1 if it falls off the board
+     */
+    int resolve(int x, int y, int dx, int dy, int width, int height) {
+        int nx = x + dx;
+        int ny = y + dy;
+        switch (this) {
+            case TORUS:
+                nx = Math.floorMod(nx, width);
+                ny = Math.floorMod(ny, height);
+                break;
+
+            case KLEIN_BOTTLE:
+                if (ny < 0 || ny >= height) {
+                    ny = Math.floorMod(ny, height);
+                    nx = width - 1 - nx;
+                }
+                nx = Math.floorMod(nx, width);
+                break;
+
+            default:
+                if (nx < 0 || nx >= width || ny < 0 || ny >= height) return -1;
+        }
+        return ny * width + nx;
+    }
+}
@@ -0,0 +1,98 @@
+package it.polito.extgol.test;
+
+import static it.polito.extgol.test.TestGames.EVENTS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import it.polito.extgol.BatchResult;
+import it.polito.extgol.BatchRunner;
+import it.polito.extgol.CellType;
+import it.polito.extgol.Coord;
+import it.polito.extgol.GameSpec;
+import it.polito.extgol.Topology;
+
+/**
+ * Checks that concurrent batch runs give the same summaries as sequential ones.
+ */
+public class BatchRunnerTests {
+
+    private static GameSpec randomSpec(long seed, int density) {
+        Random rnd = new Random(seed);
+        List<Coord> alive = new ArrayList<>();
+        Map<Coord, CellType> types = new HashMap<>();
+        for (int y = 0; y < 12; y++) {
+            for (int x = 0; x < 12; x++) {
+                Coord c = new Coord(x, y);
+                types.put(c, CellType.values()[rnd.nextInt(CellType.values().length)]);
+                if (rnd.nextInt(100) < density) {
+                    alive.add(c);
+                }
+            }
+        }
+        return GameSpec.of("seed-" + seed + "-" + density, 12, 12, 20)
+                .withAlive(alive)
+                .withTypes(types)
+                .withEvents(EVENTS)
+                .withTopology(seed % 2 == 0 ? Topology.TORUS : Topology.BOUNDED);
+    }
+
+    @Test
+    public void testConcurrentRunsMatchSequentialOnes() {
+        List<GameSpec> specs = new ArrayList<>();
+        for (long seed = 1; seed <= 8; seed++) {
+            specs.add(randomSpec(seed, 10 + (int) seed * 5));
+        }
+        BatchRunner runner = new BatchRunner(4);
+        List<BatchResult> results = runner.run(specs);
+
+        assertEquals(specs.size(), results.size());
+        for (int i = 0; i < specs.size(); i++) {
+            BatchResult expected = new BatchRunner(1).runOne(specs.get(i));
+            BatchResult actual = results.get(i);
+            assertTrue(actual.toString(), actual.isCompleted());
+            assertEquals(specs.get(i).getName(), actual.getName());
+            assertEquals(expected.getFinalAlive(), actual.getFinalAlive());
+            assertEquals(expected.getFinalEnergy(), actual.getFinalEnergy());
+            assertEquals(expected.getExtinctAt(), actual.getExtinctAt());
+            assertEquals(expected.getAliveStats().getSum(), actual.getAliveStats().getSum());
+            assertEquals(21, actual.getAliveStats().getCount());
+        }
+    }
+
+    @Test
+    public void testFailingSpecDoesNotStopTheOthers() {
+        GameSpec outside = GameSpec.of("outside", 5, 5, 3).withAlive(List.of(new Coord(7, 7)));
+        GameSpec blinker = GameSpec.of("blinker", 5, 5, 3)
+                .withAlive(List.of(new Coord(1, 2), new Coord(2, 2), new Coord(3, 2)));
+        GameSpec empty = GameSpec.of("empty", 5, 5, 3);
+
+        List<BatchResult> results = new BatchRunner(2).run(List.of(outside, blinker, empty));
+
+        assertFalse(results.get(0).isCompleted());
+        assertTrue(results.get(0).getFailure() instanceof IllegalArgumentException);
+        assertEquals(3, results.get(1).getFinalAlive());
+        assertEquals(-1, results.get(1).getExtinctAt());
+        assertEquals(0, results.get(2).getExtinctAt());
+
+        String table = BatchRunner.formatTable(results);
+        assertTrue(table.contains("outside") && table.contains("FAILED"));
+        assertTrue(table.contains("blinker") && table.contains("empty"));
+    }
+
+    @Test
+    public void testSpecsAreValidated() {
+        assertThrows(IllegalArgumentException.class, () -> new BatchRunner(0));
+        assertThrows(IllegalArgumentException.class, () -> GameSpec.of("bad", 0, 5, 1));
+        assertThrows(IllegalArgumentException.class, () -> GameSpec.of("bad", 5, 5, -1));
+    }
+}
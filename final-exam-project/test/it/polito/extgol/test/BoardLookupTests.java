@@ -0,0 +1,115 @@
+package it.polito.extgol.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import it.polito.extgol.Board;
+import it.polito.extgol.Cell;
+import it.polito.extgol.CellMood;
+import it.polito.extgol.CellType;
+import it.polito.extgol.Coord;
+import it.polito.extgol.Game;
+import it.polito.extgol.Generation;
+import it.polito.extgol.Tile;
+import it.polito.extgol.Topology;
+
+/**
+ * Checks the coordinate lookups and the tile and cell views of the board, and
+ * the bulk setters built on them.
+ */
+public class BoardLookupTests {
+
+    @Test
+    public void testLookupsMatchTheTiles() {
+        Board board = Game.createExtended("lookup", 7, 5, Topology.TORUS).getBoard();
+        for (Tile tile : board.getTiles()) {
+            Coord c = new Coord(tile.getX(), tile.getY());
+            assertSame(tile, board.getTile(c));
+            assertSame(tile.getCell(), board.getCell(c));
+            assertEquals(c, board.getCell(c).getCoordinates());
+        }
+    }
+
+    @Test
+    public void testLookupsOutsideTheBoardFindNothing() {
+        Board board = Game.createExtended("outside", 7, 5).getBoard();
+        assertNull(board.getTile(new Coord(7, 0)));
+        assertNull(board.getTile(new Coord(0, 5)));
+        assertNull(board.getTile(new Coord(-1, 2)));
+        assertNull(board.getCell(new Coord(3, -1)));
+        assertNull(board.getTile(null));
+    }
+
+    @Test
+    public void testLargePatternIsSeeded() {
+        int side = 400;
+        Game game = Game.createExtended("seed", side, side);
+        Board board = game.getBoard();
+        Random rnd = new Random(7);
+        List<Coord> alive = new ArrayList<>();
+        List<Coord> social = new ArrayList<>();
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                if (rnd.nextInt(100) < 30) {
+                    alive.add(new Coord(x, y));
+                    if (rnd.nextBoolean()) {
+                        social.add(new Coord(x, y));
+                    }
+                }
+            }
+        }
+        Generation start = Generation.createInitial(game, board, alive);
+        start.setType(social, CellType.SOCIAL);
+        game.setMoods(CellMood.HEALER, social);
+
+        assertEquals(alive.size(), start.getAliveCells().size());
+        for (Coord c : social) {
+            Cell cell = board.getCell(c);
+            assertTrue(cell.isAlive());
+            assertEquals(CellType.SOCIAL, cell.getType());
+            assertEquals(CellMood.HEALER, cell.getMood());
+        }
+    }
+
+    @Test
+    public void testViewsAreCachedAndIndexOrdered() {
+        Board board = Game.createExtended("views", 6, 4).getBoard();
+        List<Tile> tiles = board.getTiles();
+        assertSame(tiles, board.getTiles());
+        assertSame(board.getCellSet(), board.getCellSet());
+        assertEquals(24, tiles.size());
+        assertEquals(24, board.getCellSet().size());
+        int i = 0;
+        for (Cell cell : board.getCellSet()) {
+            Tile tile = tiles.get(i);
+            assertEquals(i % 6, tile.getX());
+            assertEquals(i / 6, tile.getY());
+            assertSame(tile.getCell(), cell);
+            i++;
+        }
+        assertThrows(UnsupportedOperationException.class, () -> tiles.remove(0));
+        assertThrows(UnsupportedOperationException.class, () -> board.getCellSet().clear());
+    }
+
+    @Test
+    public void testCellSetFollowsReplacedCells() {
+        Board board = Game.createExtended("replace", 4, 4).getBoard();
+        Tile tile = board.getTile(new Coord(2, 1));
+        Cell old = tile.getCell();
+        Cell replacement = new Cell(new Coord(2, 1));
+        tile.setCell(replacement);
+        assertTrue(board.getCellSet().contains(replacement));
+        assertFalse(board.getCellSet().contains(old));
+        assertSame(replacement, board.getCell(new Coord(2, 1)));
+    }
+}
@@ -0,0 +1,88 @@
+package it.polito.extgol.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+
+import it.polito.extgol.Coord;
+import it.polito.extgol.EngineMode;
+import it.polito.extgol.ExtendedGameOfLife;
+import it.polito.extgol.Game;
+import it.polito.extgol.GameRepository;
+import it.polito.extgol.Generation;
+import it.polito.extgol.JPAUtil;
+import it.polito.extgol.SaveReport;
+
+/**
+ * Checks that games saved in bulk are stored whole and in step order.
+ */
+public class BulkSaveTest {
+
+    /**
+     * Close JPA after all tests.
+     */
+    @AfterClass
+    public static void closeDB() {
+        JPAUtil.close();
+    }
+
+    @Before
+    public void setUp() {
+        TestDatabaseUtil.clearDatabase();
+    }
+
+    private static Game blinker(String name, int steps) {
+        Game game = Game.createExtended(name, 4, 4);
+        Generation.createInitial(game, game.getBoard(),
+                List.of(new Coord(1, 2), new Coord(2, 2), new Coord(3, 2)));
+        new ExtendedGameOfLife(EngineMode.GRID).run(game, steps);
+        return game;
+    }
+
+    @Test
+    public void testBulkSaveReportsRowsAndReloads() {
+        Game game = blinker("bulk-test", 20);
+        SaveReport report = new ExtendedGameOfLife().saveGameBulk(game);
+
+        // game, board, 16 tiles, 16 cells, 21 generations with 3 * 16 states each
+        assertEquals(2 + 16 + 16 + 21 * (1 + 3 * 16), report.getRows());
+        assertTrue(report.getRowsPerSecond() > 0);
+        assertEquals(21, game.getGenerations().size());
+
+        Game loaded = GameRepository.load(game);
+        assertEquals(21, loaded.getGenerations().size());
+        assertEquals(game.getGenerations().get(20).getAliveCells().size(),
+                loaded.getGenerations().get(20).getAliveCells().size());
+    }
+
+    @Test
+    public void testHistoriesLongerThanAFlushKeepTheirOrder() {
+        Game game = blinker("bulk-order", 250);
+        ExtendedGameOfLife life = new ExtendedGameOfLife();
+        life.saveGameBulk(game);
+
+        Game loaded = GameRepository.load(game);
+        assertEquals(251, loaded.getGenerations().size());
+        for (int step = 0; step <= 250; step++) {
+            assertEquals(step, loaded.getGenerations().get(step).getStep());
+        }
+
+        // a stored game is saved again by merging it, writing only what was added
+        Generation last = loaded.getGenerations().get(250);
+        for (int step = 0; step < 5; step++) {
+            last = life.evolve(last);
+        }
+        SaveReport report = life.saveGameBulk(loaded);
+        assertEquals(5 * (1 + 3 * 16), report.getRows());
+
+        Game resaved = GameRepository.loadPaged(loaded.getId());
+        assertEquals(256, resaved.getGenerations().size());
+        assertEquals(255, resaved.getGenerations().get(255).getStep());
+        assertEquals(3, resaved.getGenerations().get(255).getAliveCells().size());
+    }
+}
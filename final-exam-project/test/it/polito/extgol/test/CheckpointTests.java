@@ -0,0 +1,152 @@
+package it.polito.extgol.test;
+
+import static it.polito.extgol.test.TestGames.EVENTS;
+import static it.polito.extgol.test.TestGames.assertSameState;
+import static it.polito.extgol.test.TestGames.randomGame;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import it.polito.extgol.Coord;
+import it.polito.extgol.ExtendedGameOfLife;
+import it.polito.extgol.Game;
+import it.polito.extgol.GenerationView;
+import it.polito.extgol.HistoryRetention;
+import it.polito.extgol.Topology;
+
+/**
+ * Checks that a streaming run resumed from its checkpoint file emits the same
+ * generations as an uninterrupted run, and that damaged or foreign checkpoint
+ * files are handled.
+ */
+public class CheckpointTests {
+
+    private static final int STEPS = 40;
+    private static final int INTERVAL = 7;
+
+    private Path file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = Files.createTempFile("extgol-checkpoint", ".bin");
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Runs the first steps of a game with checkpointing, as a run killed at
+     * that point would have.
+     */
+    private void interruptedRun(Game game, int steps) {
+        ExtendedGameOfLife life = new ExtendedGameOfLife();
+        life.setCheckpointing(file, INTERVAL);
+        life.runStreaming(game, steps, EVENTS, HistoryRetention.none(), view -> { });
+    }
+
+    @Test
+    public void testResumedRunMatchesUninterruptedRun() {
+        List<GenerationView> expected = new ExtendedGameOfLife().runStreaming(
+                randomGame("checkpoint", 12, 12, 5), STEPS, EVENTS, HistoryRetention.keepEvery(1), view -> { });
+
+        interruptedRun(randomGame("checkpoint", 12, 12, 5), 25);
+        List<GenerationView> resumed = new ExtendedGameOfLife().resumeStreaming(
+                randomGame("checkpoint", 12, 12, 5), file, STEPS, EVENTS, HistoryRetention.keepEvery(1), view -> { });
+
+        // the last checkpoint before step 25 is the one of step 21
+        assertEquals(STEPS - 21, resumed.size());
+        for (GenerationView view : resumed) {
+            assertSameState(expected.get(view.getStep() - 1), view);
+        }
+    }
+
+    @Test
+    public void testResumedRunKeepsCheckpointing() {
+        interruptedRun(randomGame("checkpoint", 10, 10, 6), 10);
+        ExtendedGameOfLife life = new ExtendedGameOfLife();
+        life.setCheckpointing(file, INTERVAL);
+        life.resumeStreaming(randomGame("checkpoint", 10, 10, 6), file, 30, EVENTS, HistoryRetention.none(), view -> { });
+
+        List<GenerationView> rest = new ExtendedGameOfLife().resumeStreaming(
+                randomGame("checkpoint", 10, 10, 6), file, 30, EVENTS, HistoryRetention.keepEvery(1), view -> { });
+        assertEquals(30 - 28, rest.size());
+        assertEquals(29, rest.get(0).getStep());
+    }
+
+    @Test
+    public void testCorruptedCheckpointFallsBackToThePreviousOne() throws IOException {
+        interruptedRun(randomGame("checkpoint", 10, 10, 7), 15); // checkpoints at steps 7 and 14
+        long slotBytes = Files.size(file) / 2;
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            // slots are written alternately starting from the second one,
+            // so the checkpoint of step 14 ends the first slot
+            raf.seek(slotBytes - 1);
+            int last = raf.read();
+            raf.seek(slotBytes - 1);
+            raf.write(last ^ 0xff);
+        }
+
+        List<GenerationView> resumed = new ExtendedGameOfLife().resumeStreaming(
+                randomGame("checkpoint", 10, 10, 7), file, 20, EVENTS, HistoryRetention.keepEvery(1), view -> { });
+        assertEquals(8, resumed.get(0).getStep());
+
+        List<GenerationView> expected = new ExtendedGameOfLife().runStreaming(
+                randomGame("checkpoint", 10, 10, 7), 20, EVENTS, HistoryRetention.keepEvery(1), view -> { });
+        for (GenerationView view : resumed) {
+            assertSameState(expected.get(view.getStep() - 1), view);
+        }
+    }
+
+    @Test
+    public void testResumeWithoutCheckpointFails() throws IOException {
+        assertThrows(IllegalStateException.class, () -> new ExtendedGameOfLife().resumeStreaming(
+                randomGame("checkpoint", 10, 10, 8), file, 20, EVENTS, HistoryRetention.none(), view -> { }));
+
+        // a file of another size is left as it is
+        Files.write(file, new byte[] { 1, 2, 3 });
+        assertThrows(IllegalStateException.class, () -> new ExtendedGameOfLife().resumeStreaming(
+                randomGame("checkpoint", 10, 10, 8), file, 20, EVENTS, HistoryRetention.none(), view -> { }));
+        assertEquals(3, Files.size(file));
+
+        Files.delete(file);
+        assertThrows(UncheckedIOException.class, () -> new ExtendedGameOfLife().resumeStreaming(
+                randomGame("checkpoint", 10, 10, 8), file, 20, EVENTS, HistoryRetention.none(), view -> { }));
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    public void testResumeOnDifferentBoardFails() {
+        interruptedRun(randomGame("checkpoint", 10, 10, 9), 10);
+        Game other = randomGame("checkpoint", 10, 10, 9);
+        other.getBoard().getTile(new Coord(3, 3)).setLifePointModifier(2);
+        assertThrows(IllegalStateException.class, () -> new ExtendedGameOfLife().resumeStreaming(
+                other, file, 20, EVENTS, HistoryRetention.none(), view -> { }));
+        assertTrue(Files.exists(file));
+
+        Game torus = randomGame(Game.createExtended("checkpoint", 10, 10, Topology.TORUS), 9);
+        assertThrows(IllegalStateException.class, () -> new ExtendedGameOfLife().resumeStreaming(
+                torus, file, 20, EVENTS, HistoryRetention.none(), view -> { }));
+    }
+
+    @Test
+    public void testInvalidIntervalIsRejected() {
+        ExtendedGameOfLife life = new ExtendedGameOfLife();
+        assertThrows(IllegalArgumentException.class, () -> life.setCheckpointing(file, 0));
+        life.setCheckpointing(null, 0);
+        assertEquals(null, life.getCheckpointPath());
+    }
+}
@@ -0,0 +1,190 @@
+package it.polito.extgol.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import it.polito.extgol.Board;
+import it.polito.extgol.Cell;
+import it.polito.extgol.CellMood;
+import it.polito.extgol.CellType;
+import it.polito.extgol.Coord;
+import it.polito.extgol.CycleDetector;
+import it.polito.extgol.EngineMode;
+import it.polito.extgol.EventType;
+import it.polito.extgol.ExtendedGameOfLife;
+import it.polito.extgol.Game;
+import it.polito.extgol.Generation;
+import it.polito.extgol.GridEngine;
+
+/**
+ * Checks the incremental state hash and the early termination of cyclic runs.
+ */
+public class CycleDetectionTests {
+
+    private static Game pattern(String name, Coord... alive) {
+        Game game = Game.createExtended(name, 6, 6);
+        Generation.createInitial(game, game.getBoard(), List.of(alive));
+        return game;
+    }
+
+    private static Game block() {
+        return pattern("block", new Coord(1, 1), new Coord(1, 2), new Coord(2, 1), new Coord(2, 2));
+    }
+
+    private static Game blinker() {
+        return pattern("blinker", new Coord(1, 2), new Coord(2, 2), new Coord(3, 2));
+    }
+
+    @Test
+    public void testDetectorFindsPeriodsWithinItsWindow() {
+        CycleDetector detector = new CycleDetector(3);
+        long[] hashes = { 10, 20, 30, 40, 50, 20, 60, 50 };
+        int[] periods = { 0, 0, 0, 0, 0, 0, 0, 3 };
+        for (int step = 0; step < hashes.length; step++) {
+            assertEquals("step " + step, periods[step], detector.observe(step, hashes[step]));
+        }
+        detector.reset();
+        assertEquals(0, detector.observe(8, 50));
+        assertEquals(1, detector.observe(9, 50));
+        assertThrows(IllegalArgumentException.class, () -> new CycleDetector(0));
+    }
+
+    @Test
+    public void testIncrementalHashMatchesFreshHash() {
+        for (long seed = 1; seed <= 4; seed++) {
+            Random rnd = new Random(seed);
+            Game game = Game.createExtended("hash-" + seed, 14, 11);
+            Board board = game.getBoard();
+            board.registerRule("brain", "B2/S/C4");
+            List<Coord> alive = new ArrayList<>();
+            for (int y = 0; y < 11; y++) {
+                for (int x = 0; x < 14; x++) {
+                    Coord c = new Coord(x, y);
+                    Cell cell = board.getTile(c).getCell();
+                    cell.setType(CellType.values()[rnd.nextInt(CellType.values().length)]);
+                    cell.setMood(CellMood.values()[rnd.nextInt(CellMood.values().length)]);
+                    cell.setLifePoints(rnd.nextInt(4));
+                    if (rnd.nextInt(4) == 0) {
+                        cell.setCustomRule("brain");
+                    }
+                    if (rnd.nextInt(100) < 15 + 10 * seed) {
+                        alive.add(c);
+                    }
+                }
+            }
+            Generation.createInitial(game, board, alive);
+
+            GridEngine engine = new GridEngine(board);
+            engine.trackStateHash(true);
+            for (int step = 1; step <= 12; step++) {
+                if (step == 4) {
+                    engine.applyEvent(EventType.BLOOM);
+                }
+                engine.step();
+                engine.writeBack();
+                GridEngine fresh = new GridEngine(board);
+                fresh.trackStateHash(true);
+                assertEquals("seed " + seed + " step " + step, fresh.getStateHash(), engine.getStateHash());
+            }
+        }
+    }
+
+    @Test
+    public void testStillLifeStopsWhenLifePointsAreIgnored() {
+        ExtendedGameOfLife life = new ExtendedGameOfLife();
+        life.setCycleDetection(4, false);
+        Game game = life.run(block(), 1000);
+
+        assertEquals(2, game.getGenerations().size());
+        assertEquals((Integer) 1, game.getCyclePeriod());
+        assertEquals((Integer) 0, game.getCycleStart());
+        assertEquals(0, game.getEquivalentStep(1000));
+
+        // survivors keep gaining lifePoints, so the full state never repeats
+        life.setCycleDetection(4);
+        Game exact = life.run(block(), 20);
+        assertEquals(21, exact.getGenerations().size());
+        assertNull(exact.getCyclePeriod());
+    }
+
+    /** A block on -2 tiles, which dies once its lifePoints run out. */
+    private static Game drainedBlock(int lifePoints) {
+        Game game = block();
+        for (Cell cell : game.getStart().getAliveCells()) {
+            game.getBoard().getTile(cell.getCoordinates()).setLifePointModifier(-2);
+            cell.setLifePoints(lifePoints);
+        }
+        return game;
+    }
+
+    @Test
+    public void testLifePointsCannotBeIgnoredWhenTheyMatter() {
+        Game reference = new ExtendedGameOfLife().run(drainedBlock(4), 6);
+        assertEquals(4, reference.getGenerations().get(4).getAliveCells().size());
+        assertTrue(reference.getGenerations().get(5).getAliveCells().isEmpty());
+
+        ExtendedGameOfLife life = new ExtendedGameOfLife();
+        life.setCycleDetection(4, false);
+        assertThrows(IllegalStateException.class, () -> life.run(drainedBlock(4), 100));
+
+        Game healer = block();
+        healer.setMoods(CellMood.HEALER, List.of(new Coord(1, 1)));
+        assertThrows(IllegalStateException.class, () -> life.run(healer, 100));
+
+        Game negative = block();
+        negative.getBoard().getCell(new Coord(2, 2)).setLifePoints(-3);
+        assertThrows(IllegalStateException.class, () -> life.run(negative, 100));
+
+        // exact comparison finds the extinction instead
+        life.setCycleDetection(4);
+        Game exact = life.run(drainedBlock(4), 100);
+        assertEquals((Integer) 1, exact.getCyclePeriod());
+        assertEquals((Integer) 5, exact.getCycleStart());
+    }
+
+    @Test
+    public void testOscillatorPeriodIsRecorded() {
+        ExtendedGameOfLife life = new ExtendedGameOfLife(EngineMode.PARALLEL);
+        life.setCycleDetection(5, false);
+        Game game = life.run(blinker(), 1000);
+
+        assertEquals((Integer) 2, game.getCyclePeriod());
+        assertEquals((Integer) 0, game.getCycleStart());
+        assertEquals(3, game.getGenerations().size());
+        assertEquals(1, game.getEquivalentStep(999));
+        assertEquals(0, game.getEquivalentStep(1000));
+    }
+
+    @Test
+    public void testExtinctionIsAnExactFixedPoint() {
+        ExtendedGameOfLife life = new ExtendedGameOfLife();
+        life.setCycleDetection(1);
+        Game game = life.run(pattern("lonely", new Coord(3, 3)), 500);
+
+        assertEquals((Integer) 1, game.getCyclePeriod());
+        assertEquals((Integer) 1, game.getCycleStart());
+        assertEquals(3, game.getGenerations().size());
+    }
+
+    @Test
+    public void testCyclesAreOnlySearchedAfterTheLastEvent() {
+        ExtendedGameOfLife life = new ExtendedGameOfLife();
+        life.setCycleDetection(1);
+        Game game = life.run(pattern("events", new Coord(3, 3)), 500,
+                new HashMap<>(Map.of(5, EventType.BLOOM)));
+
+        assertEquals((Integer) 6, game.getCycleStart());
+        assertEquals(8, game.getGenerations().size());
+        assertThrows(IllegalArgumentException.class, () -> life.setCycleDetection(-1));
+    }
+}
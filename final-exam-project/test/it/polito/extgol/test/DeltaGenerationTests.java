@@ -0,0 +1,141 @@
+package it.polito.extgol.test;
+
+import static it.polito.extgol.test.TestGames.ALL_MOODS;
+import static it.polito.extgol.test.TestGames.assertSameHistory;
+import static it.polito.extgol.test.TestGames.assertSameState;
+import static it.polito.extgol.test.TestGames.randomGame;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import it.polito.extgol.Coord;
+import it.polito.extgol.EngineMode;
+import it.polito.extgol.EventType;
+import it.polito.extgol.ExtendedGameOfLife;
+import it.polito.extgol.Game;
+import it.polito.extgol.Generation;
+import it.polito.extgol.GenerationStorage;
+
+/**
+ * Checks that delta-encoded and packed generations expose the same states
+ * as full snapshots while storing less.
+ */
+public class DeltaGenerationTests {
+
+    private static Game storedGame(long seed, int width, int height, GenerationStorage storage, int keyframes) {
+        Game game = Game.createExtended("delta-" + seed, width, height);
+        game.setGenerationStorage(storage, keyframes);
+        return randomGame(game, seed, ALL_MOODS, 30, null);
+    }
+
+    private static int storedStates(Game game) {
+        int total = 0;
+        for (Generation g : game.getGenerations()) {
+            total += g.countStoredStates();
+        }
+        return total;
+    }
+
+    @Test
+    public void testDeltaHistoryMatchesFullHistory() {
+        Map<Integer, EventType> events = Map.of(2, EventType.BLOOD_MOON, 5, EventType.SANCTUARY);
+        for (EngineMode mode : List.of(EngineMode.ENTITY, EngineMode.GRID)) {
+            Game full = storedGame(3, 10, 8, GenerationStorage.FULL, 1);
+            Game delta = storedGame(3, 10, 8, GenerationStorage.DELTA, 4);
+
+            new ExtendedGameOfLife(mode).run(full, 15, events);
+            new ExtendedGameOfLife(mode).run(delta, 15, events);
+
+            assertSameHistory(full, delta);
+            assertTrue(storedStates(delta) < storedStates(full));
+        }
+    }
+
+    @Test
+    public void testKeyframesAreTakenAtTheInterval() {
+        Game delta = storedGame(9, 6, 6, GenerationStorage.DELTA, 5);
+        new ExtendedGameOfLife(EngineMode.GRID).run(delta, 12);
+
+        for (Generation g : delta.getGenerations()) {
+            assertEquals("step " + g.getStep(), g.getStep() % 5 == 0, g.isKeyframe());
+        }
+        Generation last = delta.getGenerations().get(12);
+        assertEquals(36, last.getCellAlivenessStates().size());
+        assertEquals(36, last.getEnergyStates().size());
+    }
+
+    @Test
+    public void testRandomAccessReconstruction() {
+        Game full = storedGame(21, 8, 8, GenerationStorage.FULL, 1);
+        Game delta = storedGame(21, 8, 8, GenerationStorage.DELTA, 6);
+        new ExtendedGameOfLife(EngineMode.GRID).run(full, 20);
+        new ExtendedGameOfLife(EngineMode.GRID).run(delta, 20);
+
+        // out of order lookups must not depend on the reconstruction cache
+        for (int step : new int[] { 17, 3, 4, 19, 11, 0, 13, 12 }) {
+            assertSameState(full.getGenerations().get(step), delta.getGenerations().get(step));
+        }
+    }
+
+    @Test
+    public void testPackedHistoryMatchesFullHistory() {
+        Map<Integer, EventType> events = Map.of(1, EventType.FAMINE, 4, EventType.BLOOD_MOON);
+        Game full = storedGame(8, 12, 9, GenerationStorage.FULL, 1);
+        Game packed = storedGame(8, 12, 9, GenerationStorage.PACKED, 1);
+
+        new ExtendedGameOfLife(EngineMode.GRID).run(full, 10, events);
+        new ExtendedGameOfLife(EngineMode.GRID).run(packed, 10, events);
+
+        assertSameHistory(full, packed);
+        for (Generation g : packed.getGenerations()) {
+            assertTrue(g.isPacked());
+            assertEquals(0, g.countStoredStates());
+            assertTrue(g.getPackedSize() > 0);
+        }
+    }
+
+    @Test
+    public void testPackedStateIsCompact() {
+        Game packed = Game.createExtended("packed", 100, 100);
+        packed.setGenerationStorage(GenerationStorage.PACKED, 1);
+        Random rnd = new Random(4);
+        List<Coord> alive = new ArrayList<>();
+        for (int k = 0; k < 2000; k++) {
+            alive.add(new Coord(rnd.nextInt(100), rnd.nextInt(100)));
+        }
+        Generation.createInitial(packed, packed.getBoard(), alive);
+        new ExtendedGameOfLife(EngineMode.GRID).run(packed, 5);
+
+        // a few bits per cell for the three attributes together
+        for (Generation g : packed.getGenerations()) {
+            assertTrue("step " + g.getStep() + ": " + g.getPackedSize(), g.getPackedSize() < 100 * 100 / 2);
+        }
+    }
+
+    @Test
+    public void testStorageCannotChangeAfterRunning() {
+        Game game = storedGame(1, 4, 4, GenerationStorage.FULL, 1);
+        new ExtendedGameOfLife().run(game, 2);
+        assertThrows("Storage must be chosen before running", IllegalStateException.class,
+                () -> game.setGenerationStorage(GenerationStorage.DELTA, 8));
+    }
+
+    @Test
+    public void testFullStorageIsTheDefault() {
+        Game game = Game.createExtended("default", 4, 4);
+        assertEquals(GenerationStorage.FULL, game.getGenerationStorage());
+        new ExtendedGameOfLife().run(game, 3);
+        for (Generation g : game.getGenerations()) {
+            assertTrue(g.isKeyframe());
+            assertFalse(g.getCellAlivenessStates().isEmpty());
+        }
+    }
+}
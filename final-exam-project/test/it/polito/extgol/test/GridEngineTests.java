@@ -0,0 +1,243 @@
+package it.polito.extgol.test;
+
+import static it.polito.extgol.test.TestGames.ALL_MOODS;
+import static it.polito.extgol.test.TestGames.DENSITY;
+import static it.polito.extgol.test.TestGames.assertSameHistory;
+import static it.polito.extgol.test.TestGames.randomGame;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+
+import org.junit.Test;
+
+import it.polito.extgol.Board;
+import it.polito.extgol.Cell;
+import it.polito.extgol.CellMood;
+import it.polito.extgol.CellType;
+import it.polito.extgol.Coord;
+import it.polito.extgol.EngineMode;
+import it.polito.extgol.EventType;
+import it.polito.extgol.ExtendedGameOfLife;
+import it.polito.extgol.Game;
+import it.polito.extgol.Generation;
+import it.polito.extgol.GridEngine;
+import it.polito.extgol.Tile;
+
+/**
+ * Checks that the array-based GridEngine produces the same generations
+ * as the reference entity-based evolution.
+ */
+public class GridEngineTests {
+
+    private static final CellMood[] MOODS = { CellMood.NAIVE, CellMood.HEALER };
+
+    /** Gives about one tile in five a random energy modifier. */
+    private static final BiConsumer<Tile, Random> MODIFIERS =
+            (tile, rnd) -> tile.setLifePointModifier(rnd.nextInt(5) == 0 ? rnd.nextInt(3) - 1 : 0);
+
+    /**
+     * Builds a reproducible extended game with random types, moods, energies,
+     * tile modifiers and initial alive cells.
+     */
+    private static Game modifiedGame(long seed, int width, int height, CellMood[] moods, int density) {
+        return randomGame(Game.createExtended("grid-" + seed, width, height), seed, moods, density, MODIFIERS);
+    }
+
+    @Test
+    public void testGridMatchesEntityEngine() {
+        for (long seed = 1; seed <= 5; seed++) {
+            Game reference = modifiedGame(seed, 9, 7, MOODS, DENSITY);
+            Game grid = modifiedGame(seed, 9, 7, MOODS, DENSITY);
+
+            new ExtendedGameOfLife().run(reference, 12);
+            new ExtendedGameOfLife(EngineMode.GRID).run(grid, 12);
+
+            assertSameHistory(reference, grid);
+        }
+    }
+
+    @Test
+    public void testGridMatchesEntityEngineWithEvents() {
+        Map<Integer, EventType> events = Map.of(
+            1, EventType.BLOOM,
+            3, EventType.FAMINE,
+            4, EventType.SANCTUARY,
+            6, EventType.CATACLYSM);
+
+        Game reference = modifiedGame(42, 8, 8, MOODS, DENSITY);
+        Game grid = modifiedGame(42, 8, 8, MOODS, DENSITY);
+
+        new ExtendedGameOfLife().run(reference, 10, events);
+        new ExtendedGameOfLife(EngineMode.GRID).run(grid, 10, events);
+
+        assertSameHistory(reference, grid);
+        assertEquals(reference.getEventMapInternal(), grid.getEventMapInternal());
+    }
+
+    @Test
+    public void testParallelStripesMatchSequentialEngine() {
+        Game sequential = modifiedGame(7, 160, 120, MOODS, DENSITY);
+        Game parallel = modifiedGame(7, 160, 120, MOODS, DENSITY);
+
+        GridEngine seq = new GridEngine(sequential.getBoard());
+        GridEngine par = new GridEngine(parallel.getBoard(), new ForkJoinPool(4));
+        for (int step = 0; step < 8; step++) {
+            seq.step();
+            par.step();
+            for (int y = 0; y < 120; y++) {
+                for (int x = 0; x < 160; x++) {
+                    assertEquals(seq.isAlive(x, y), par.isAlive(x, y));
+                    assertEquals(seq.getLifePoints(x, y), par.getLifePoints(x, y));
+                    assertEquals(seq.getMood(x, y), par.getMood(x, y));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testVampireInteractionsMatchEntityEngine() {
+        Map<Integer, EventType> events = Map.of(
+            0, EventType.BLOOD_MOON,
+            2, EventType.FAMINE,
+            5, EventType.SANCTUARY,
+            7, EventType.BLOOD_MOON);
+
+        for (long seed = 1; seed <= 20; seed++) {
+            Game reference = modifiedGame(seed, 8, 6, ALL_MOODS, DENSITY);
+            Game grid = modifiedGame(seed, 8, 6, ALL_MOODS, DENSITY);
+            Game parallel = modifiedGame(seed, 8, 6, ALL_MOODS, DENSITY);
+
+            new ExtendedGameOfLife().run(reference, 10, events);
+            new ExtendedGameOfLife(EngineMode.GRID).run(grid, 10, events);
+            new ExtendedGameOfLife(EngineMode.PARALLEL).run(parallel, 10, events);
+
+            assertSameHistory(reference, grid);
+            assertSameHistory(reference, parallel);
+        }
+    }
+
+    @Test
+    public void testParallelInteractionsMatchSequentialOnLargeBoard() {
+        Game sequential = modifiedGame(11, 200, 100, ALL_MOODS, DENSITY);
+        Game parallel = modifiedGame(11, 200, 100, ALL_MOODS, DENSITY);
+
+        GridEngine seq = new GridEngine(sequential.getBoard());
+        GridEngine par = new GridEngine(parallel.getBoard(), new ForkJoinPool(4));
+        for (int step = 0; step < 6; step++) {
+            if (step % 3 == 0) {
+                seq.applyEvent(EventType.BLOOD_MOON);
+                par.applyEvent(EventType.BLOOD_MOON);
+            }
+            seq.step();
+            par.step();
+            for (int y = 0; y < 100; y++) {
+                for (int x = 0; x < 200; x++) {
+                    assertEquals(seq.isAlive(x, y), par.isAlive(x, y));
+                    assertEquals(seq.getLifePoints(x, y), par.getLifePoints(x, y));
+                    assertEquals(seq.getMood(x, y), par.getMood(x, y));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testActiveRegionMatchesEntityEngineOnSparseBoard() {
+        Random rnd = new Random(5);
+        CellType[] types = CellType.values();
+        Game reference = Game.createExtended("sparse-ref", 30, 30);
+        Game grid = Game.createExtended("sparse-grid", 30, 30);
+        for (Game g : List.of(reference, grid)) {
+            for (int y = 0; y < 30; y++) {
+                for (int x = 0; x < 30; x++) {
+                    g.getBoard().getTile(new Coord(x, y)).getCell().setType(types[(x * 7 + y * 3) % types.length]);
+                }
+            }
+        }
+        // a glider heading to a far away clump
+        List<Coord> alive = new ArrayList<>(List.of(new Coord(1, 0), new Coord(2, 1),
+                new Coord(0, 2), new Coord(1, 2), new Coord(2, 2)));
+        for (int k = 0; k < 12; k++) {
+            alive.add(new Coord(20 + rnd.nextInt(6), 20 + rnd.nextInt(6)));
+        }
+        Generation.createInitial(reference, reference.getBoard(), alive);
+        Generation.createInitial(grid, grid.getBoard(), alive);
+
+        new ExtendedGameOfLife().run(reference, 60);
+        new ExtendedGameOfLife(EngineMode.GRID).run(grid, 60);
+
+        assertSameHistory(reference, grid);
+    }
+
+    @Test
+    public void testEngineDoesNotTouchCellsUntilWriteBack() {
+        Game game = Game.createExtended("blinker", 5, 5);
+        Board board = game.getBoard();
+        Generation.createInitial(game, board, List.of(new Coord(1, 2), new Coord(2, 2), new Coord(3, 2)));
+
+        GridEngine engine = new GridEngine(board);
+        engine.step();
+
+        assertTrue(engine.isAlive(2, 1));
+        assertFalse(engine.isAlive(1, 2));
+        assertEquals(3, engine.countAlive());
+        assertTrue("Cells keep their state until write-back", board.getTile(new Coord(1, 2)).getCell().isAlive());
+
+        engine.writeBack();
+        assertFalse(board.getTile(new Coord(1, 2)).getCell().isAlive());
+        assertEquals(1, board.getTile(new Coord(2, 2)).getCell().getLifePoints());
+    }
+
+    @Test
+    public void testDenseCountingMatchesEntityEngine() {
+        // boards this crowded are counted row by row, and thin out into the
+        // active-region path as they evolve
+        for (long seed = 1; seed <= 3; seed++) {
+            Game reference = modifiedGame(seed, 23, 17, ALL_MOODS, 70);
+            Game grid = modifiedGame(seed, 23, 17, ALL_MOODS, 70);
+            Game parallel = modifiedGame(seed, 23, 17, ALL_MOODS, 70);
+
+            new ExtendedGameOfLife().run(reference, 25);
+            new ExtendedGameOfLife(EngineMode.GRID).run(grid, 25);
+            new ExtendedGameOfLife(EngineMode.PARALLEL).run(parallel, 25);
+
+            assertSameHistory(reference, grid);
+            assertSameHistory(reference, parallel);
+        }
+    }
+
+    @Test
+    public void testNeighborTableCountsFollowAliveChanges() {
+        Game game = modifiedGame(11, 9, 7, ALL_MOODS, DENSITY);
+        Board board = game.getBoard();
+        Random rnd = new Random(11);
+
+        for (int round = 0; round < 3; round++) {
+            for (int y = 0; y < 7; y++) {
+                for (int x = 0; x < 9; x++) {
+                    int expected = 0;
+                    for (int dx = -1; dx <= 1; dx++) {
+                        for (int dy = -1; dy <= 1; dy++) {
+                            Tile t = board.getTile(new Coord(x + dx, y + dy));
+                            if ((dx != 0 || dy != 0) && t != null && t.getCell().isAlive()) expected++;
+                        }
+                    }
+                    Cell cell = board.getTile(new Coord(x, y)).getCell();
+                    assertEquals("round " + round + " at " + x + "," + y, expected, cell.countAliveNeighbors());
+                    assertEquals(cell.getNeighbors().size(), board.getAdjacentTiles(cell.getTile()).size());
+                }
+            }
+            // flip a few cells so the counts must see the new aliveness
+            for (int k = 0; k < 10; k++) {
+                Cell cell = board.getTile(new Coord(rnd.nextInt(9), rnd.nextInt(7))).getCell();
+                cell.setAlive(!cell.isAlive());
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package it.polito.extgol.test;
+
+import static it.polito.extgol.test.TestGames.assertSameHistory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import it.polito.extgol.Board;
+import it.polito.extgol.CellMood;
+import it.polito.extgol.Coord;
+import it.polito.extgol.EngineMode;
+import it.polito.extgol.ExtendedGameOfLife;
+import it.polito.extgol.Game;
+import it.polito.extgol.Generation;
+import it.polito.extgol.GridEngine;
+import it.polito.extgol.HashLifeEngine;
+
+/**
+ * Checks that the HashLifeEngine reproduces the classic evolution of plain
+ * Conway boards, both step by step and across large jumps.
+ */
+public class HashLifeEngineTests {
+
+    private static Game conwayGame(String name, int width, int height, List<Coord> alive) {
+        Game game = Game.createExtended(name, width, height);
+        Generation.createInitial(game, game.getBoard(), alive);
+        return game;
+    }
+
+    private static List<Coord> randomSoup(long seed, int width, int height) {
+        Random rnd = new Random(seed);
+        List<Coord> alive = new ArrayList<>();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (rnd.nextInt(100) < 35) {
+                    alive.add(new Coord(x, y));
+                }
+            }
+        }
+        return alive;
+    }
+
+    private static Set<Coord> aliveOf(GridEngine engine) {
+        Set<Coord> alive = new HashSet<>();
+        for (int y = 0; y < engine.getHeight(); y++) {
+            for (int x = 0; x < engine.getWidth(); x++) {
+                if (engine.isAlive(x, y)) alive.add(new Coord(x, y));
+            }
+        }
+        return alive;
+    }
+
+    @Test
+    public void testHashLifeHistoryMatchesEntityEngine() {
+        for (long seed = 1; seed <= 5; seed++) {
+            Game reference = conwayGame("ref", 12, 10, randomSoup(seed, 12, 10));
+            Game hashLife = conwayGame("hl", 12, 10, randomSoup(seed, 12, 10));
+
+            new ExtendedGameOfLife().run(reference, 15);
+            new ExtendedGameOfLife(EngineMode.HASHLIFE).run(hashLife, 15);
+
+            assertSameHistory(reference, hashLife);
+        }
+    }
+
+    @Test
+    public void testHashLifeFallsBackForExtendedBoards() {
+        Game reference = conwayGame("ref", 6, 6, randomSoup(3, 6, 6));
+        Game hashLife = conwayGame("hl", 6, 6, randomSoup(3, 6, 6));
+        for (Game g : List.of(reference, hashLife)) {
+            g.getBoard().getTile(new Coord(2, 2)).getCell().setMood(CellMood.HEALER);
+        }
+        assertFalse(HashLifeEngine.supports(hashLife.getBoard()));
+
+        new ExtendedGameOfLife().run(reference, 8);
+        new ExtendedGameOfLife(EngineMode.HASHLIFE).run(hashLife, 8);
+
+        assertSameHistory(reference, hashLife);
+    }
+
+    @Test
+    public void testJumpsMatchSingleStepsNearBorders() {
+        for (long seed = 1; seed <= 4; seed++) {
+            Game a = conwayGame("a", 40, 30, randomSoup(seed, 40, 30));
+            Game b = conwayGame("b", 40, 30, randomSoup(seed, 40, 30));
+
+            GridEngine grid = new GridEngine(a.getBoard());
+            for (int i = 0; i < 300; i++) {
+                grid.step();
+            }
+            Set<Coord> jumped = new ExtendedGameOfLife(EngineMode.HASHLIFE).fastForward(b, 300);
+
+            assertEquals(aliveOf(grid), jumped);
+        }
+    }
+
+    @Test
+    public void testGliderTravelsAcrossLargeBoardInJumps() {
+        // glider heading south-east from the top-left corner
+        List<Coord> glider = List.of(new Coord(1, 0), new Coord(2, 1),
+                new Coord(0, 2), new Coord(1, 2), new Coord(2, 2));
+        Game game = conwayGame("glider", 512, 512, glider);
+
+        HashLifeEngine engine = new HashLifeEngine(game.getBoard());
+        engine.advance(1024);
+
+        // every 4 generations the glider moves by (1, 1)
+        Set<Coord> expected = new HashSet<>();
+        for (Coord c : glider) {
+            expected.add(new Coord(c.getX() + 256, c.getY() + 256));
+        }
+        assertEquals(expected, engine.getAliveCoords());
+        assertEquals(1024, engine.getGeneration());
+    }
+
+    @Test
+    public void testPatternLeavingTheBoardIsClipped() {
+        // a glider hitting the bottom-right corner settles into a block
+        List<Coord> glider = List.of(new Coord(1, 0), new Coord(2, 1),
+                new Coord(0, 2), new Coord(1, 2), new Coord(2, 2));
+        Game reference = conwayGame("ref", 8, 8, glider);
+        Game jumped = conwayGame("hl", 8, 8, glider);
+
+        GridEngine grid = new GridEngine(reference.getBoard());
+        for (int i = 0; i < 100; i++) {
+            grid.step();
+        }
+        Set<Coord> alive = new ExtendedGameOfLife().fastForward(jumped, 100);
+
+        assertEquals(aliveOf(grid), alive);
+        for (Coord c : alive) {
+            assertTrue(c.getX() >= 0 && c.getX() < 8 && c.getY() >= 0 && c.getY() < 8);
+        }
+        Board board = jumped.getBoard();
+        assertTrue("fastForward leaves the board untouched", board.getTile(new Coord(1, 0)).getCell().isAlive());
+    }
+}
@@ -0,0 +1,181 @@
+package it.polito.extgol.test;
+
+import static it.polito.extgol.test.TestGames.EVENTS;
+import static it.polito.extgol.test.TestGames.assertSameState;
+import static it.polito.extgol.test.TestGames.randomGame;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import it.polito.extgol.ExtendedGameOfLife;
+import it.polito.extgol.Game;
+import it.polito.extgol.Generation;
+import it.polito.extgol.GenerationView;
+import it.polito.extgol.HistoryFile;
+import it.polito.extgol.HistoryRetention;
+import it.polito.extgol.HistoryWriter;
+
+/**
+ * Checks that history files replay the generations of a run at any step,
+ * whether the writer completed them or not.
+ */
+public class HistoryFileTests {
+
+    private static final int STEPS = 30;
+
+    private Path file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = Files.createTempFile("extgol-history", ".bin");
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testRecordedRunIsReplayedAtAnyStep() {
+        Game reference = randomGame("history", 11, 9, 3);
+        new ExtendedGameOfLife().run(reference, STEPS, EVENTS);
+        new ExtendedGameOfLife().recordHistory(randomGame("history", 11, 9, 3), STEPS, EVENTS, file);
+
+        try (HistoryFile history = HistoryFile.open(file)) {
+            assertEquals(11, history.getWidth());
+            assertEquals(9, history.getHeight());
+            assertEquals(0, history.getFirstStep());
+            assertEquals(STEPS, history.getLastStep());
+            // scrub backwards, then jump around
+            for (int step = STEPS; step >= 0; step--) {
+                assertSameState(reference.getGenerations().get(step), history.get(step));
+            }
+            for (int step : new int[] { 17, 2, 29, 0, 13 }) {
+                assertSameState(reference.getGenerations().get(step), history.get(step));
+            }
+            assertThrows(IndexOutOfBoundsException.class, () -> history.get(STEPS + 1));
+            assertThrows(IndexOutOfBoundsException.class, () -> history.get(-1));
+        }
+    }
+
+    @Test
+    public void testRecordedGenerationsAreReplayed() {
+        Game game = randomGame("history", 11, 9, 4);
+        new ExtendedGameOfLife().run(game, 10, EVENTS);
+        try (HistoryWriter writer = HistoryWriter.create(file, 11, 9)) {
+            for (Generation generation : game.getGenerations()) {
+                writer.append(generation);
+            }
+        }
+        try (HistoryFile history = HistoryFile.open(file)) {
+            assertEquals(11, history.size());
+            for (Generation generation : game.getGenerations()) {
+                assertSameState(generation, history.get(generation.getStep()));
+            }
+        }
+    }
+
+    @Test
+    public void testUnfinishedFileIsReadable() throws IOException {
+        List<GenerationView> expected = new ExtendedGameOfLife().runStreaming(
+                randomGame("history", 11, 9, 5), STEPS, EVENTS, HistoryRetention.keepEvery(1), view -> { });
+        HistoryWriter writer = HistoryWriter.create(file, 11, 9);
+        try {
+            new ExtendedGameOfLife().runStreaming(randomGame("history", 11, 9, 5), STEPS, EVENTS, HistoryRetention.none(), writer);
+
+            // a crash may also leave the last frame half written
+            byte[] content = Files.readAllBytes(file);
+            Path truncated = Files.createTempFile("extgol-history", ".bin");
+            try {
+                Files.write(truncated, Arrays.copyOf(content, content.length - 3));
+                try (HistoryFile history = HistoryFile.open(truncated)) {
+                    assertEquals(1, history.getFirstStep());
+                    assertEquals(STEPS - 1, history.getLastStep());
+                    for (int step = history.getLastStep(); step >= 1; step--) {
+                        assertSameState(expected.get(step - 1), history.get(step));
+                    }
+                }
+            } finally {
+                Files.delete(truncated);
+            }
+        } finally {
+            writer.close();
+        }
+        try (HistoryFile history = HistoryFile.open(file)) {
+            assertEquals(STEPS, history.getLastStep());
+        }
+    }
+
+    @Test
+    public void testGenerationsMustBeConsecutive() {
+        List<GenerationView> views = new ExtendedGameOfLife().runStreaming(
+                randomGame("history", 11, 9, 6), 3, null, HistoryRetention.keepEvery(1), view -> { });
+        try (HistoryWriter writer = HistoryWriter.create(file, 11, 9)) {
+            writer.append(views.get(0));
+            assertThrows(IllegalArgumentException.class, () -> writer.append(views.get(2)));
+            writer.append(views.get(1));
+            assertEquals(2, writer.size());
+        }
+        try (HistoryWriter writer = HistoryWriter.create(file, 5, 5)) {
+            assertThrows(IllegalArgumentException.class, () -> writer.append(views.get(0)));
+        }
+    }
+
+    @Test
+    public void testCorruptedFramesAreRejected() throws IOException {
+        new ExtendedGameOfLife().recordHistory(randomGame("history", 11, 9, 7), 5, EVENTS, file);
+        byte[] content = Files.readAllBytes(file);
+
+        // the first frame follows the 40-byte header: length, checksum, then body
+        byte[] body = content.clone();
+        body[40 + 8 + 2] ^= 0x5A;
+        Files.write(file, body);
+        try (HistoryFile history = HistoryFile.open(file)) {
+            assertThrows(IllegalStateException.class, () -> history.get(0));
+            assertEquals(1, history.get(1).getStep());
+        }
+
+        byte[] length = content.clone();
+        length[40] = 0x7F;
+        Files.write(file, length);
+        try (HistoryFile history = HistoryFile.open(file)) {
+            assertThrows(IllegalStateException.class, () -> history.get(0));
+        }
+    }
+
+    @Test
+    public void testFramesOfAnotherSizeAreRejected() throws IOException {
+        new ExtendedGameOfLife().recordHistory(randomGame("history", 11, 9, 8), 2, EVENTS, file);
+        byte[] content = Files.readAllBytes(file);
+
+        // a frame that checks out but claims a huge board must not be decoded
+        int body = 40 + 8;
+        int length = ByteBuffer.wrap(content, 40, 4).getInt();
+        ByteBuffer.wrap(content, body + 1, 8).putInt(15000).putInt(15000);
+        CRC32C crc = new CRC32C();
+        crc.update(content, body, length);
+        ByteBuffer.wrap(content, 44, 4).putInt((int) crc.getValue());
+        Files.write(file, content);
+        try (HistoryFile history = HistoryFile.open(file)) {
+            assertThrows(IllegalStateException.class, () -> history.get(0));
+            assertEquals(1, history.get(1).getStep());
+        }
+    }
+
+    @Test
+    public void testOtherFilesAreRejected() throws IOException {
+        Files.write(file, new byte[64]);
+        assertThrows(IllegalStateException.class, () -> HistoryFile.open(file));
+    }
+}
@@ -0,0 +1,92 @@
+package it.polito.extgol.test;
+
+import static it.polito.extgol.test.TestGames.EVENTS;
+import static it.polito.extgol.test.TestGames.assertSameState;
+import static it.polito.extgol.test.TestGames.randomGame;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import it.polito.extgol.EventType;
+import it.polito.extgol.ExtendedGameOfLife;
+import it.polito.extgol.Game;
+import it.polito.extgol.Generation;
+import it.polito.extgol.GameRepository;
+import it.polito.extgol.GenerationStorage;
+
+/**
+ * Checks that games loaded with a paged history expose the same generations
+ * as the games that were stored.
+ */
+public class PagedLoadingTests {
+
+    private static final int STEPS = 40;
+
+    @Before
+    public void setUp() {
+        TestDatabaseUtil.clearDatabase();
+    }
+
+    private static Game storedGame(String name, long seed, GenerationStorage storage) {
+        Game game = randomGame(name, 8, 8, seed);
+        game.setGenerationStorage(storage, 8);
+        ExtendedGameOfLife life = new ExtendedGameOfLife();
+        life.run(game, STEPS, EVENTS);
+        life.saveGame(game);
+        return game;
+    }
+
+    @Test
+    public void testPagedHistoryMatchesStoredGame() {
+        Game stored = storedGame("paged", 1, GenerationStorage.FULL);
+        Game loaded = GameRepository.loadPaged(stored.getId(), 6, 2);
+
+        assertEquals("paged", loaded.getName());
+        assertEquals(STEPS + 1, loaded.getGenerations().size());
+        assertEquals(EventType.SANCTUARY, loaded.getEventMapInternal().get(12));
+        for (int step : new int[] { 0, 39, 5, 6, 20, 40, 1, 33 }) {
+            assertSameState(stored.getGenerations().get(step), loaded.getGenerations().get(step));
+        }
+        assertSameState(stored.getStart(), loaded.getStart());
+    }
+
+    @Test
+    public void testDroppedPagesAreReloaded() {
+        Game stored = storedGame("reload", 2, GenerationStorage.FULL);
+        Game loaded = GameRepository.loadPaged(stored.getId(), 4, 1);
+
+        Generation early = loaded.getGenerations().get(2);
+        assertSame(early, loaded.getGenerations().get(2));
+        loaded.getGenerations().get(30); // drops the page of step 2
+        assertEquals(2, loaded.getGenerations().indexOf(early));
+        assertSameState(stored.getGenerations().get(2), loaded.getGenerations().get(2));
+    }
+
+    @Test
+    public void testDeltaAndPackedHistoriesArePaged() {
+        for (GenerationStorage storage : new GenerationStorage[] { GenerationStorage.DELTA, GenerationStorage.PACKED }) {
+            Game stored = storedGame("storage-" + storage, 3, storage);
+            Game loaded = GameRepository.loadPaged(stored.getId(), 5, 3);
+            for (int step = STEPS; step >= 0; step -= 3) {
+                assertSameState(stored.getGenerations().get(step), loaded.getGenerations().get(step));
+            }
+        }
+    }
+
+    @Test
+    public void testPagedHistoryIsReadOnly() {
+        Game stored = storedGame("read-only", 4, GenerationStorage.FULL);
+        Game loaded = GameRepository.loadPaged(stored.getId());
+        assertThrows(UnsupportedOperationException.class, () -> loaded.getGenerations().clear());
+        assertThrows(IndexOutOfBoundsException.class, () -> loaded.getGenerations().get(STEPS + 1));
+    }
+
+    @Test
+    public void testUnknownGameIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> GameRepository.loadPaged(Long.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> GameRepository.loadPaged(1L, 0, 1));
+    }
+}
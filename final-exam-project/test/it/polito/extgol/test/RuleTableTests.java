@@ -0,0 +1,153 @@
+package it.polito.extgol.test;
+
+import static it.polito.extgol.test.TestGames.ALL_MOODS;
+import static it.polito.extgol.test.TestGames.DENSITY;
+import static it.polito.extgol.test.TestGames.assertSameHistory;
+import static it.polito.extgol.test.TestGames.randomGame;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import it.polito.extgol.Board;
+import it.polito.extgol.Cell;
+import it.polito.extgol.CellType;
+import it.polito.extgol.Coord;
+import it.polito.extgol.EngineMode;
+import it.polito.extgol.ExtendedGameOfLife;
+import it.polito.extgol.Game;
+import it.polito.extgol.HashLifeEngine;
+import it.polito.extgol.RuleTable;
+
+/**
+ * Checks the compiled rule tables against the per-type rules of the game.
+ */
+public class RuleTableTests {
+
+    @Test
+    public void testTablesMatchTypeRules() {
+        for (int n = 0; n <= RuleTable.MAX_NEIGHBORS; n++) {
+            String where = n + " neighbors";
+            assertEquals(where, n == 2 || n == 3, RuleTable.of(CellType.BASIC).lives(true, n));
+            assertEquals(where, n >= 1 && n <= 3, RuleTable.of(CellType.LONER).lives(true, n));
+            assertEquals(where, n >= 2, RuleTable.of(CellType.SOCIAL).lives(true, n));
+            assertTrue(where, RuleTable.of(CellType.HIGHLANDER).lives(true, n));
+            for (CellType type : CellType.values()) {
+                assertEquals(type + " " + where, n == 3, RuleTable.of(type).lives(false, n));
+            }
+        }
+        assertEquals(RuleTable.of(CellType.BASIC), RuleTable.of(null));
+    }
+
+    @Test
+    public void testHighlanderDiesAfterThreeStressfulGenerations() {
+        RuleTable rules = RuleTable.of(CellType.HIGHLANDER);
+        int counter = 0;
+        for (int generation = 1; generation < RuleTable.HIGHLANDER_TOLERANCE; generation++) {
+            assertTrue(rules.evolve(true, counter, 5));
+            counter = rules.nextCounter(true, counter, 5);
+        }
+        assertFalse(rules.evolve(true, counter, 5));
+        // a quiet generation resets the counter
+        assertEquals(0, rules.nextCounter(true, counter, 2));
+        assertEquals(counter + 4, rules.idleCounter(counter, 4));
+    }
+
+    @Test
+    public void testRulesWithoutStressLeaveTheCounterAlone() {
+        RuleTable rules = RuleTable.of(CellType.BASIC);
+        assertEquals(2, rules.nextCounter(true, 2, 7));
+        assertEquals(2, rules.idleCounter(2, 10));
+        assertTrue(rules.evolve(true, 10, 3));
+    }
+
+    @Test
+    public void testParseRuleStrings() {
+        RuleTable highLife = RuleTable.parse("B36/S23");
+        assertEquals(1 << 3 | 1 << 6, highLife.getBirthMask());
+        assertEquals(1 << 2 | 1 << 3, highLife.getSurviveMask());
+        assertEquals(highLife, RuleTable.parse("s23/b63"));
+        assertEquals(highLife, RuleTable.parse("23/36"));
+        assertEquals("B36/S23", highLife.toRuleString());
+        assertEquals(RuleTable.of(CellType.BASIC), RuleTable.parse("B3/S23"));
+
+        RuleTable brain = RuleTable.parse("B2/S/C3");
+        assertEquals(3, brain.getStates());
+        assertEquals(brain, RuleTable.parse("/2/3"));
+        assertEquals("B2/S/C3", brain.toRuleString());
+
+        for (String bad : new String[] { "", "B3", "B3/S23/C", "B9/S23", "B3/X23", "B3/S2/S3", "B03/S23", "B3/S23/C1" }) {
+            assertThrows(bad, IllegalArgumentException.class, () -> RuleTable.parse(bad));
+        }
+    }
+
+    @Test
+    public void testGenerationsCellsSpendDyingStates() {
+        // Brian's Brain: born with 2 neighbors, never survives, one dying state
+        RuleTable brain = RuleTable.parse("B2/S/C3");
+        assertFalse(brain.evolve(true, 0, 2));
+        int counter = brain.nextCounter(true, 0, 2);
+        assertEquals(1, counter);
+
+        // dying: not born although it has 2 neighbors
+        assertFalse(brain.evolve(false, counter, 2));
+        counter = brain.nextCounter(false, counter, 2);
+        assertEquals(0, counter);
+        assertTrue(brain.evolve(false, counter, 2));
+        assertEquals(0, brain.idleCounter(5, 7));
+    }
+
+    @Test
+    public void testMasksMustFitNeighborCounts() {
+        assertThrows(IllegalArgumentException.class, () -> new RuleTable(1 << 9, 0));
+        assertThrows(IllegalArgumentException.class, () -> new RuleTable(0, 0, 1 << 9, 1));
+        assertThrows(IllegalArgumentException.class, () -> new RuleTable(0, 0, 0, -1));
+    }
+
+    @Test
+    public void testBoardRegistersCustomRules() {
+        Board board = Game.createExtended("rules", 5, 5).getBoard();
+        RuleTable highLife = board.registerRule("highlife", "b36/s23");
+        assertEquals(highLife, board.getRule("highlife"));
+        assertEquals("B36/S23", board.getRules().get("highlife"));
+        board.registerRule("highlife", "B36/S23"); // same rule again
+
+        assertThrows(IllegalArgumentException.class, () -> board.registerRule("highlife", "B3/S23"));
+        assertThrows(IllegalArgumentException.class, () -> board.getRule("seeds"));
+
+        Cell cell = board.getTile(new Coord(1, 1)).getCell();
+        assertThrows(IllegalArgumentException.class, () -> cell.setCustomRule("seeds"));
+        cell.setCustomRule("highlife");
+        assertEquals("highlife", cell.getCustomRule());
+        assertFalse(HashLifeEngine.supports(board));
+    }
+
+    private static Game customRuleGame(long seed) {
+        Game game = Game.createExtended("custom-" + seed, 12, 10);
+        Board board = game.getBoard();
+        board.registerRule("highlife", "B36/S23");
+        board.registerRule("brain", "B2/S/C3");
+        board.registerRule("star-wars", "B2/S345/C4");
+        String[] names = { null, "highlife", "brain", "star-wars" };
+        return randomGame(game, seed, ALL_MOODS, DENSITY,
+                (tile, rnd) -> tile.getCell().setCustomRule(names[rnd.nextInt(names.length)]));
+    }
+
+    @Test
+    public void testCustomRulesMatchAcrossEngines() {
+        for (long seed = 1; seed <= 4; seed++) {
+            Game reference = customRuleGame(seed);
+            Game grid = customRuleGame(seed);
+            Game parallel = customRuleGame(seed);
+
+            new ExtendedGameOfLife().run(reference, 15);
+            new ExtendedGameOfLife(EngineMode.GRID).run(grid, 15);
+            new ExtendedGameOfLife(EngineMode.PARALLEL).run(parallel, 15);
+
+            assertSameHistory(reference, grid);
+            assertSameHistory(reference, parallel);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package it.polito.extgol.test;
+
+import static it.polito.extgol.test.TestGames.EVENTS;
+import static it.polito.extgol.test.TestGames.assertSameState;
+import static it.polito.extgol.test.TestGames.randomGame;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import it.polito.extgol.CachedRun;
+import it.polito.extgol.CachedRunRepository;
+import it.polito.extgol.Coord;
+import it.polito.extgol.EngineMode;
+import it.polito.extgol.EventType;
+import it.polito.extgol.ExtendedGameOfLife;
+import it.polito.extgol.Game;
+import it.polito.extgol.SimulationCache;
+
+/**
+ * Checks that the simulation cache returns the outcome of identical runs and
+ * honors its byte budget.
+ */
+public class SimulationCacheTests {
+
+    private static final long LARGE = 1 << 20;
+
+    @Test
+    public void testIdenticalRunsHitTheCache() {
+        SimulationCache cache = new SimulationCache(LARGE);
+        ExtendedGameOfLife life = new ExtendedGameOfLife();
+        CachedRun first = life.runCached(randomGame("cache", 9, 7, 1), 12, EVENTS, cache);
+        CachedRun second = life.runCached(randomGame("cache", 9, 7, 1), 12, EVENTS, cache);
+
+        assertSame(first, second);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        Game reference = randomGame("cache", 9, 7, 1);
+        new ExtendedGameOfLife(EngineMode.GRID).run(reference, 12, new HashMap<>(EVENTS));
+        assertSameState(reference.getGenerations().get(12), first.getFinalState());
+        assertEquals(12, first.getAliveStats().getCount());
+    }
+
+    @Test
+    public void testKeysFollowEverythingARunDependsOn() {
+        long base = SimulationCache.keyOf(randomGame("cache", 9, 7, 2), EVENTS, 10);
+        assertEquals(base, SimulationCache.keyOf(randomGame("cache", 9, 7, 2), EVENTS, 10));
+        assertNotEquals(base, SimulationCache.keyOf(randomGame("cache", 9, 7, 2), EVENTS, 11));
+        assertNotEquals(base, SimulationCache.keyOf(randomGame("cache", 9, 7, 2), Map.of(2, EventType.BLOOM), 10));
+        assertNotEquals(base, SimulationCache.keyOf(randomGame("cache", 9, 7, 3), EVENTS, 10));
+
+        Game modified = randomGame("cache", 9, 7, 2);
+        modified.getBoard().getTile(new Coord(0, 0)).setLifePointModifier(1);
+        assertNotEquals(base, SimulationCache.keyOf(modified, EVENTS, 10));
+
+        Game empowered = randomGame("cache", 9, 7, 2);
+        empowered.getBoard().getCell(new Coord(4, 3)).setEmpoweredBite(true);
+        assertNotEquals(base, SimulationCache.keyOf(empowered, EVENTS, 10));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedRunsAreEvicted() {
+        ExtendedGameOfLife life = new ExtendedGameOfLife();
+        SimulationCache probe = new SimulationCache(LARGE);
+        life.runCached(randomGame("cache", 9, 7, 4), 3, null, probe);
+        long entryBytes = probe.getBytes();
+
+        SimulationCache cache = new SimulationCache(2 * entryBytes);
+        CachedRun a = life.runCached(randomGame("cache", 9, 7, 4), 3, null, cache);
+        life.runCached(randomGame("cache", 9, 7, 5), 3, null, cache);
+        assertSame(a, life.runCached(randomGame("cache", 9, 7, 4), 3, null, cache)); // a is now the most recent
+        life.runCached(randomGame("cache", 9, 7, 6), 3, null, cache);                // evicts 5
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.getBytes() <= cache.getMaxBytes());
+        long misses = cache.getMisses();
+        life.runCached(randomGame("cache", 9, 7, 4), 3, null, cache);
+        assertEquals(misses, cache.getMisses());
+        life.runCached(randomGame("cache", 9, 7, 5), 3, null, cache);
+        assertEquals(misses + 1, cache.getMisses());
+
+        assertThrows(IllegalArgumentException.class, () -> new SimulationCache(0));
+    }
+
+    @Test
+    public void testPersistentCacheOutlivesMemory() {
+        TestDatabaseUtil.clearDatabase();
+        ExtendedGameOfLife life = new ExtendedGameOfLife();
+        SimulationCache cache = new SimulationCache(LARGE, new CachedRunRepository());
+        CachedRun stored = life.runCached(randomGame("cache", 9, 7, 7), 8, EVENTS, cache);
+        cache.clear();
+
+        CachedRun loaded = life.runCached(randomGame("cache", 9, 7, 7), 8, EVENTS, cache);
+        assertEquals(1, cache.getHits());
+        assertEquals(stored.getFinalState().getAliveCoords(), loaded.getFinalState().getAliveCoords());
+        assertEquals(stored.getAliveStats().getSum(), loaded.getAliveStats().getSum());
+        assertEquals(stored.getFinalState().getStep(), loaded.getFinalState().getStep());
+    }
+}
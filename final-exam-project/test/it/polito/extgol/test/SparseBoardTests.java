@@ -0,0 +1,144 @@
+package it.polito.extgol.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import it.polito.extgol.Board;
+import it.polito.extgol.Cell;
+import it.polito.extgol.CellMood;
+import it.polito.extgol.CellType;
+import it.polito.extgol.Coord;
+import it.polito.extgol.EventType;
+import it.polito.extgol.Game;
+import it.polito.extgol.Generation;
+import it.polito.extgol.GridEngine;
+import it.polito.extgol.SparseBoard;
+
+/**
+ * Checks the unbounded SparseBoard against the bounded GridEngine and on
+ * patterns far away from the origin.
+ */
+public class SparseBoardTests {
+
+    private static final List<Coord> GLIDER = List.of(new Coord(1, 0), new Coord(2, 1),
+            new Coord(0, 2), new Coord(1, 2), new Coord(2, 2));
+
+    /**
+     * Builds a game whose random cells all sit in the middle of a board large
+     * enough for the pattern never to reach its edges during the test.
+     */
+    private static Game centeredGame(long seed, int side, int core) {
+        Random rnd = new Random(seed);
+        Game game = Game.createExtended("sparse-" + seed, side, side);
+        Board board = game.getBoard();
+        CellType[] types = CellType.values();
+        CellMood[] moods = CellMood.values();
+        int offset = (side - core) / 2;
+
+        List<Coord> alive = new ArrayList<>();
+        for (int y = offset; y < offset + core; y++) {
+            for (int x = offset; x < offset + core; x++) {
+                Coord c = new Coord(x, y);
+                Cell cell = board.getTile(c).getCell();
+                cell.setType(types[rnd.nextInt(types.length)]);
+                cell.setMood(moods[rnd.nextInt(moods.length)]);
+                cell.setLifePoints(rnd.nextInt(4));
+                if (rnd.nextInt(100) < 40) {
+                    alive.add(c);
+                }
+            }
+        }
+        Generation.createInitial(game, board, alive);
+        return game;
+    }
+
+    @Test
+    public void testSparseBoardMatchesGridEngine() {
+        for (long seed = 1; seed <= 10; seed++) {
+            Game game = centeredGame(seed, 50, 12);
+            SparseBoard sparse = SparseBoard.fromBoard(game.getBoard());
+            GridEngine grid = new GridEngine(game.getBoard());
+
+            for (int step = 0; step < 12; step++) {
+                if (step % 4 == 1) {
+                    sparse.applyEvent(EventType.BLOOD_MOON);
+                    grid.applyEvent(EventType.BLOOD_MOON);
+                }
+                sparse.step();
+                grid.step();
+                for (int y = 0; y < 50; y++) {
+                    for (int x = 0; x < 50; x++) {
+                        String where = "seed " + seed + " step " + step + " at " + x + "," + y;
+                        assertEquals(where, grid.isAlive(x, y), sparse.isAlive(x, y));
+                        if (grid.isAlive(x, y)) {
+                            assertEquals(where, grid.getLifePoints(x, y), sparse.getLifePoints(x, y));
+                            assertEquals(where, grid.getMood(x, y), sparse.getMood(x, y));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGliderTravelsFarFromOrigin() {
+        SparseBoard sparse = new SparseBoard();
+        int base = 1_000_000;
+        for (Coord c : GLIDER) {
+            sparse.setAlive(base + c.getX(), -base + c.getY(), true);
+        }
+
+        sparse.run(400);
+
+        Set<Coord> expected = new HashSet<>();
+        for (Coord c : GLIDER) {
+            expected.add(new Coord(base + c.getX() + 100, -base + c.getY() + 100));
+        }
+        assertEquals(expected, sparse.getAliveCoords());
+        assertEquals(5, sparse.countAlive());
+        assertEquals("Only the glider is stored", 5, sparse.countStored());
+    }
+
+    @Test
+    public void testPatternsCrossNegativeCoordinates() {
+        SparseBoard sparse = new SparseBoard();
+        // a blinker centered on the origin
+        sparse.setAlive(-1, 0, true);
+        sparse.setAlive(0, 0, true);
+        sparse.setAlive(1, 0, true);
+
+        sparse.step();
+        assertTrue(sparse.isAlive(0, -1));
+        assertTrue(sparse.isAlive(0, 1));
+        assertFalse(sparse.isAlive(-1, 0));
+        assertEquals(1, sparse.getLifePoints(0, 0));
+
+        sparse.step();
+        assertTrue(sparse.isAlive(-1, 0));
+        assertEquals(3, sparse.countAlive());
+    }
+
+    @Test
+    public void testNonDefaultDeadCellsAreKept() {
+        SparseBoard sparse = new SparseBoard();
+        sparse.setCell(10, 10, CellType.HIGHLANDER, CellMood.VAMPIRE);
+        sparse.setAlive(5, 5, true);
+
+        sparse.step();
+
+        assertEquals(0, sparse.countAlive());
+        assertEquals(1, sparse.countStored());
+        assertEquals(CellType.HIGHLANDER, sparse.getType(10, 10));
+        assertEquals(CellMood.VAMPIRE, sparse.getMood(10, 10));
+        assertEquals(CellType.BASIC, sparse.getType(5, 5));
+    }
+}
@@ -0,0 +1,181 @@
+package it.polito.extgol.test;
+
+import static it.polito.extgol.test.TestGames.randomGame;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import it.polito.extgol.Board;
+import it.polito.extgol.Cell;
+import it.polito.extgol.CellMood;
+import it.polito.extgol.Coord;
+import it.polito.extgol.EngineMode;
+import it.polito.extgol.EventType;
+import it.polito.extgol.ExtendedGameOfLife;
+import it.polito.extgol.Game;
+import it.polito.extgol.Generation;
+import it.polito.extgol.Tile;
+
+/**
+ * Checks the Zobrist hashes of generations and the lookup of stored games by
+ * initial configuration.
+ */
+public class StateHashTests {
+
+    /**
+     * Builds a new game whose initial cells hold the states recorded by the
+     * given generation. Rule counters and pending transitions are not recorded,
+     * so the copy only has the same hash as an initial generation.
+     */
+    private static Game copyOf(Generation generation) {
+        Board source = generation.getBoard();
+        Game game = Game.createExtended("copy", source.getWidth(), source.getHeight());
+        Board board = game.getBoard();
+        Map<Cell, Boolean> aliveness = generation.getCellAlivenessStates();
+        Map<Cell, Integer> energy = generation.getEnergyStates();
+        Map<Cell, CellMood> moods = generation.getMoodStates();
+        List<Coord> alive = new ArrayList<>();
+        for (Cell original : aliveness.keySet()) {
+            Cell cell = board.getTile(original.getCoordinates()).getCell();
+            cell.setType(original.getType());
+            cell.setMood(moods.get(original));
+            cell.setLifePoints(energy.get(original));
+            if (aliveness.get(original)) {
+                alive.add(original.getCoordinates());
+            }
+        }
+        Generation.createInitial(game, board, alive);
+        return game;
+    }
+
+    @Test
+    public void testEnginesRecordTheSameHashes() {
+        Game entity = randomGame("entity", 10, 8, 3);
+        Game grid = randomGame("grid", 10, 8, 3);
+        new ExtendedGameOfLife().run(entity, 8);
+        new ExtendedGameOfLife(EngineMode.GRID).run(grid, 8);
+
+        for (int step = 0; step <= 8; step++) {
+            assertEquals("step " + step, entity.getGenerations().get(step).getStateHash(),
+                    grid.getGenerations().get(step).getStateHash());
+        }
+        assertEquals(entity.getStart().getStateHash(), copyOf(entity.getStart()).getStart().getStateHash());
+        assertNotEquals(entity.getGenerations().get(0).getStateHash(),
+                entity.getGenerations().get(1).getStateHash());
+    }
+
+    @Test
+    public void testHashFollowsEveryCellProperty() {
+        Board board = randomGame("props", 10, 8, 5).getBoard();
+        board.registerRule("highlife", "B36/S23");
+        Cell cell = board.getTile(new Coord(4, 4)).getCell();
+        long base = board.getStateHash();
+
+        cell.setLifePoints(cell.getLifePoints() + 1);
+        assertNotEquals(base, board.getStateHash());
+        cell.setLifePoints(cell.getLifePoints() - 1);
+        assertEquals(base, board.getStateHash());
+
+        cell.setAlive(!cell.isAlive());
+        assertNotEquals(base, board.getStateHash());
+        cell.setAlive(!cell.isAlive());
+
+        CellMood mood = cell.getMood();
+        cell.setMood(mood == CellMood.HEALER ? CellMood.VAMPIRE : CellMood.HEALER);
+        assertNotEquals(base, board.getStateHash());
+        cell.setMood(mood);
+
+        cell.setCustomRule("highlife");
+        assertNotEquals(base, board.getStateHash());
+        cell.setCustomRule(null);
+        assertEquals(base, board.getStateHash());
+
+        Tile tile = board.getTile(new Coord(4, 4));
+        tile.setLifePointModifier(-3);
+        assertNotEquals(base, board.getStateHash());
+        tile.setLifePointModifier(0);
+        assertEquals(base, board.getStateHash());
+    }
+
+    @Test
+    public void testIncrementalHashMatchesAFullRehash() {
+        for (EngineMode mode : List.of(EngineMode.ENTITY, EngineMode.GRID)) {
+            for (int steps = 1; steps <= 14; steps++) {
+                Game game = Game.createExtended("rehash", 10, 8);
+                game.getBoard().registerRule("highlife", "B36/S23");
+                randomGame(game, 31, TestGames.ALL_MOODS, TestGames.DENSITY, (tile, rnd) -> {
+                    tile.setLifePointModifier(rnd.nextInt(3) - 1);
+                    if (rnd.nextInt(6) == 0) {
+                        tile.getCell().setCustomRule("highlife");
+                    }
+                });
+                new ExtendedGameOfLife(mode).run(game, steps, TestGames.EVENTS);
+
+                Board board = game.getBoard();
+                long recorded = game.getGenerations().get(steps).getStateHash();
+                // putting a cell back in its tile makes the board rehash every tile
+                Tile tile = board.getTiles().get(0);
+                tile.setCell(tile.getCell());
+                assertEquals(mode + " after " + steps + " steps", recorded, board.getStateHash());
+            }
+        }
+    }
+
+    private static Game loneVampire(String name) {
+        Game game = Game.createExtended(name, 6, 6);
+        Generation.createInitial(game, game.getBoard(), List.of(new Coord(3, 3)));
+        game.setMoods(CellMood.VAMPIRE, List.of(new Coord(3, 3)));
+        return game;
+    }
+
+    @Test
+    public void testPendingTransitionsAreHashed() {
+        Game empowered = loneVampire("empowered");
+        Game plain = loneVampire("plain");
+        ExtendedGameOfLife life = new ExtendedGameOfLife();
+        life.run(empowered, 1, new HashMap<>(Map.of(0, EventType.BLOOD_MOON)));
+        life.run(plain, 1);
+
+        // the cells look the same, but only one vampire has an empowered bite
+        Cell a = empowered.getBoard().getCell(new Coord(3, 3));
+        Cell b = plain.getBoard().getCell(new Coord(3, 3));
+        assertEquals(a.isAlive(), b.isAlive());
+        assertEquals(a.getLifePoints(), b.getLifePoints());
+        assertEquals(a.getMood(), b.getMood());
+        assertNotEquals(empowered.getGenerations().get(1).getStateHash(),
+                plain.getGenerations().get(1).getStateHash());
+    }
+
+    @Test
+    public void testSameConfigurationsShareTheInitialHash() {
+        Game first = randomGame("first", 10, 8, 11);
+        Game second = randomGame("second", 10, 8, 11);
+        Game other = randomGame("other", 10, 8, 12);
+        assertEquals(first.getStart().getStateHash(), second.getStart().getStateHash());
+        assertNotEquals(first.getStart().getStateHash(), other.getStart().getStateHash());
+    }
+
+    @Test
+    public void testStoredGamesAreFoundByInitialState() {
+        TestDatabaseUtil.clearDatabase();
+        ExtendedGameOfLife life = new ExtendedGameOfLife();
+        Game stored = randomGame("stored", 10, 8, 21);
+        life.run(stored, 3);
+        life.saveGame(stored);
+        life.saveGame(randomGame("unrelated", 10, 8, 22));
+
+        Game seed = randomGame("seed", 10, 8, 21);
+        Game found = ExtendedGameOfLife.getGameRepository().findByInitialState(seed).get();
+        assertEquals("stored", found.getName());
+        assertFalse(ExtendedGameOfLife.getGameRepository().findByInitialState(randomGame("fresh", 10, 8, 23)).isPresent());
+        assertTrue(ExtendedGameOfLife.getGameRepository().findByInitialState(stored).isEmpty());
+    }
+}
@@ -0,0 +1,79 @@
+package it.polito.extgol.test;
+
+import static it.polito.extgol.test.TestGames.EVENTS;
+import static it.polito.extgol.test.TestGames.assertSameState;
+import static it.polito.extgol.test.TestGames.randomGame;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import it.polito.extgol.ExtendedGameOfLife;
+import it.polito.extgol.Game;
+import it.polito.extgol.GenerationView;
+import it.polito.extgol.HistoryRetention;
+
+/**
+ * Checks that the streaming API emits the same generations as run(...)
+ * and retains only what its policy asks for.
+ */
+public class StreamingRunTests {
+
+    @Test
+    public void testSinkSeesTheSameGenerationsAsRun() {
+        Game reference = randomGame("stream", 9, 9, 2);
+        Game streamed = randomGame("stream", 9, 9, 2);
+        new ExtendedGameOfLife().run(reference, 10, EVENTS);
+
+        List<Integer> seen = new ArrayList<>();
+        new ExtendedGameOfLife().runStreaming(streamed, 10, EVENTS, HistoryRetention.none(), view -> {
+            assertSameState(reference.getGenerations().get(view.getStep()), view);
+            seen.add(view.getStep());
+        });
+
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), seen);
+        assertEquals("No generation is recorded", 1, streamed.getGenerations().size());
+    }
+
+    @Test
+    public void testRetentionPolicies() {
+        Game reference = randomGame("stream", 9, 9, 5);
+        new ExtendedGameOfLife().run(reference, 12, EVENTS);
+        ExtendedGameOfLife life = new ExtendedGameOfLife();
+
+        List<GenerationView> none = life.runStreaming(randomGame("stream", 9, 9, 5), 12, EVENTS, HistoryRetention.none(), v -> { });
+        assertTrue(none.isEmpty());
+
+        List<GenerationView> last = life.runStreaming(randomGame("stream", 9, 9, 5), 12, EVENTS, HistoryRetention.keepLast(3), v -> { });
+        assertEquals(List.of(10, 11, 12), last.stream().map(GenerationView::getStep).collect(Collectors.toList()));
+        for (GenerationView view : last) {
+            assertSameState(reference.getGenerations().get(view.getStep()), view);
+        }
+
+        List<GenerationView> every = life.runStreaming(randomGame("stream", 9, 9, 5), 12, EVENTS, HistoryRetention.keepEvery(4), v -> { });
+        assertEquals(List.of(4, 8, 12), every.stream().map(GenerationView::getStep).collect(Collectors.toList()));
+        for (GenerationView view : every) {
+            assertSameState(reference.getGenerations().get(view.getStep()), view);
+        }
+    }
+
+    @Test
+    public void testStreamIsLazyAndOrdered() {
+        Game reference = randomGame("stream", 9, 9, 9);
+        new ExtendedGameOfLife().run(reference, 8, EVENTS);
+
+        List<GenerationView> copies = new ExtendedGameOfLife().stream(randomGame("stream", 9, 9, 9), EVENTS)
+                .limit(8)
+                .map(GenerationView::copy)
+                .collect(Collectors.toList());
+
+        assertEquals(8, copies.size());
+        for (GenerationView view : copies) {
+            assertSameState(reference.getGenerations().get(view.getStep()), view);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package it.polito.extgol.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+import it.polito.extgol.Board;
+import it.polito.extgol.Cell;
+import it.polito.extgol.CellMood;
+import it.polito.extgol.CellType;
+import it.polito.extgol.Coord;
+import it.polito.extgol.EventType;
+import it.polito.extgol.Game;
+import it.polito.extgol.Generation;
+import it.polito.extgol.GenerationView;
+import it.polito.extgol.Tile;
+
+/**
+ * Reproducible random games and the state assertions shared by the tests that
+ * compare engines, storages and replays of the same run.
+ */
+public final class TestGames {
+
+    /** Share of the cells that start alive, in percent. */
+    static final int DENSITY = 40;
+
+    static final CellMood[] ALL_MOODS = CellMood.values();
+
+    /** Events of the compared runs: a blood moon, then a bloom, then a sanctuary. */
+    static final Map<Integer, EventType> EVENTS = Map.of(
+        2, EventType.BLOOD_MOON,
+        4, EventType.BLOOM,
+        12, EventType.SANCTUARY);
+
+    private TestGames() {
+    }
+
+    /**
+     * Builds a bounded game with random types, moods, energies and initial
+     * alive cells.
+     */
+    static Game randomGame(String name, int width, int height, long seed) {
+        return randomGame(Game.createExtended(name, width, height), seed);
+    }
+
+    /**
+     * Fills the board of a newly created game with random types, moods,
+     * energies and initial alive cells.
+     */
+    static Game randomGame(Game game, long seed) {
+        return randomGame(game, seed, ALL_MOODS, DENSITY, null);
+    }
+
+    /**
+     * Fills the board of a newly created game with random cells and records
+     * them as its initial generation.
+     *
+     * Each cell draws its type, mood and energy from the given seed, in this
+     * order, then lets extra randomize its tile further and finally draws
+     * whether it starts alive, so the same seed always builds the same game.
+     *
+     * @param moods   the moods to draw from
+     * @param density the share of the cells that start alive, in percent
+     * @param extra   further randomization of each tile, or null for none
+     */
+    static Game randomGame(Game game, long seed, CellMood[] moods, int density, BiConsumer<Tile, Random> extra) {
+        Random rnd = new Random(seed);
+        Board board = game.getBoard();
+        CellType[] types = CellType.values();
+
+        List<Coord> alive = new ArrayList<>();
+        for (int y = 0; y < board.getHeight(); y++) {
+            for (int x = 0; x < board.getWidth(); x++) {
+                Coord c = new Coord(x, y);
+                Tile tile = board.getTile(c);
+                Cell cell = tile.getCell();
+                cell.setType(types[rnd.nextInt(types.length)]);
+                cell.setMood(moods[rnd.nextInt(moods.length)]);
+                cell.setLifePoints(rnd.nextInt(4));
+                if (extra != null) {
+                    extra.accept(tile, rnd);
+                }
+                if (rnd.nextInt(100) < density) {
+                    alive.add(c);
+                }
+            }
+        }
+        Generation.createInitial(game, board, alive);
+        return game;
+    }
+
+    /**
+     * Asserts that two generations of equally shaped boards hold the same state.
+     */
+    static void assertSameState(Generation expected, Generation actual) {
+        Board eb = expected.getBoard();
+        Board ab = actual.getBoard();
+        assertEquals(expected.getStep(), actual.getStep());
+        for (Tile tile : eb.getTiles()) {
+            Cell e = tile.getCell();
+            Cell a = ab.getTile(tile.getCoordinates()).getCell();
+            String where = "step " + expected.getStep() + " at " + tile.getX() + "," + tile.getY();
+            assertEquals("alive " + where, expected.getCellAlivenessStates().get(e),
+                    actual.getCellAlivenessStates().get(a));
+            assertEquals("energy " + where, expected.getEnergyStates().get(e),
+                    actual.getEnergyStates().get(a));
+            assertEquals("mood " + where, expected.getMoodStates().get(e),
+                    actual.getMoodStates().get(a));
+        }
+    }
+
+    /**
+     * Asserts that a view holds the same state as a generation of its board.
+     */
+    static void assertSameState(Generation expected, GenerationView actual) {
+        assertEquals(expected.getStep(), actual.getStep());
+        for (Tile tile : expected.getBoard().getTiles()) {
+            Cell cell = tile.getCell();
+            int x = tile.getX();
+            int y = tile.getY();
+            String where = "step " + expected.getStep() + " at " + x + "," + y;
+            assertEquals("alive " + where, expected.getCellAlivenessStates().get(cell), actual.isAlive(x, y));
+            assertEquals("energy " + where, expected.getEnergyStates().get(cell), (Integer) actual.getLifePoints(x, y));
+            assertEquals("mood " + where, expected.getMoodStates().get(cell), actual.getMood(x, y));
+        }
+    }
+
+    /**
+     * Asserts that two views of equally shaped boards hold the same state.
+     */
+    static void assertSameState(GenerationView expected, GenerationView actual) {
+        assertEquals(expected.getStep(), actual.getStep());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                String where = "step " + expected.getStep() + " at " + x + "," + y;
+                assertEquals("alive " + where, expected.isAlive(x, y), actual.isAlive(x, y));
+                assertEquals("energy " + where, expected.getLifePoints(x, y), actual.getLifePoints(x, y));
+                assertEquals("mood " + where, expected.getMood(x, y), actual.getMood(x, y));
+            }
+        }
+    }
+
+    /**
+     * Asserts that two games recorded the same generations.
+     */
+    static void assertSameHistory(Game expected, Game actual) {
+        assertEquals(expected.getGenerations().size(), actual.getGenerations().size());
+        for (int i = 0; i < expected.getGenerations().size(); i++) {
+            assertSameState(expected.getGenerations().get(i), actual.getGenerations().get(i));
+        }
+    }
+}
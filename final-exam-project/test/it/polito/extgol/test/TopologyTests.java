@@ -0,0 +1,135 @@
+package it.polito.extgol.test;
+
+import static it.polito.extgol.test.TestGames.ALL_MOODS;
+import static it.polito.extgol.test.TestGames.DENSITY;
+import static it.polito.extgol.test.TestGames.assertSameHistory;
+import static it.polito.extgol.test.TestGames.randomGame;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import it.polito.extgol.Board;
+import it.polito.extgol.Coord;
+import it.polito.extgol.EngineMode;
+import it.polito.extgol.ExtendedGameOfLife;
+import it.polito.extgol.Game;
+import it.polito.extgol.Generation;
+import it.polito.extgol.HashLifeEngine;
+import it.polito.extgol.SparseBoard;
+import it.polito.extgol.Tile;
+import it.polito.extgol.Topology;
+
+/**
+ * Checks the wrapping board topologies on the entity engine and that the
+ * array-based engines agree with it.
+ */
+public class TopologyTests {
+
+    private static final List<Coord> GLIDER = List.of(new Coord(1, 0), new Coord(2, 1),
+            new Coord(0, 2), new Coord(1, 2), new Coord(2, 2));
+
+    /**
+     * Builds a random game whose energies range from -1 to 2, so that some
+     * cells start with none left.
+     */
+    private static Game topologyGame(long seed, int width, int height, Topology topology) {
+        return randomGame(Game.createExtended("topology-" + seed, width, height, topology), seed, ALL_MOODS, DENSITY,
+                (tile, rnd) -> tile.getCell().setLifePoints(tile.getCell().getLifePoints() - 1));
+    }
+
+    private static Set<Coord> aliveCoords(Board board) {
+        Set<Coord> alive = new HashSet<>();
+        for (Tile t : board.getTiles()) {
+            if (t.getCell().isAlive()) alive.add(t.getCoordinates());
+        }
+        return alive;
+    }
+
+    @Test
+    public void testTorusNeighborsWrapAround() {
+        Board board = Game.createExtended("torus", 5, 4, Topology.TORUS).getBoard();
+        Set<Coord> expected = Set.of(new Coord(4, 3), new Coord(4, 0), new Coord(4, 1),
+                new Coord(0, 3), new Coord(0, 1), new Coord(1, 3), new Coord(1, 0), new Coord(1, 1));
+
+        Set<Coord> actual = new HashSet<>();
+        for (Tile t : board.getAdjacentTiles(board.getTile(new Coord(0, 0)))) {
+            actual.add(t.getCoordinates());
+        }
+        assertEquals(expected, actual);
+        for (Tile t : board.getTiles()) {
+            assertEquals(8, t.getNeighbors().size());
+        }
+    }
+
+    @Test
+    public void testKleinBottleMirrorsAcrossTopEdge() {
+        Board board = Game.createExtended("klein", 5, 4, Topology.KLEIN_BOTTLE).getBoard();
+
+        Set<Coord> actual = new HashSet<>();
+        for (Tile t : board.getAdjacentTiles(board.getTile(new Coord(1, 0)))) {
+            actual.add(t.getCoordinates());
+        }
+        // the row above (x, 0) is row 3 read right to left
+        assertTrue(actual.containsAll(Set.of(new Coord(2, 3), new Coord(3, 3), new Coord(4, 3))));
+        assertTrue(actual.containsAll(Set.of(new Coord(0, 0), new Coord(2, 0))));
+        assertEquals(8, actual.size());
+    }
+
+    @Test
+    public void testGliderCrossesTorusEdges() {
+        Game game = Game.createExtended("glider", 8, 8, Topology.TORUS);
+        Generation.createInitial(game, game.getBoard(), GLIDER);
+
+        // the glider moves by (1, 1) every 4 generations, 8 cells take 32 generations
+        new ExtendedGameOfLife().run(game, 32);
+
+        assertEquals(new HashSet<>(GLIDER), aliveCoords(game.getBoard()));
+    }
+
+    @Test
+    public void testGridEngineMatchesEntityEngineOnWrappingBoards() {
+        for (Topology topology : List.of(Topology.TORUS, Topology.KLEIN_BOTTLE)) {
+            for (long seed = 1; seed <= 5; seed++) {
+                Game reference = topologyGame(seed, 9, 7, topology);
+                Game grid = topologyGame(seed, 9, 7, topology);
+                Game parallel = topologyGame(seed, 9, 7, topology);
+
+                new ExtendedGameOfLife().run(reference, 12);
+                new ExtendedGameOfLife(EngineMode.GRID).run(grid, 12);
+                new ExtendedGameOfLife(EngineMode.PARALLEL).run(parallel, 12);
+
+                assertSameHistory(reference, grid);
+                assertSameHistory(reference, parallel);
+            }
+        }
+    }
+
+    @Test
+    public void testConwayOnlyEnginesRejectWrappingBoards() {
+        Game reference = Game.createExtended("ref", 8, 8, Topology.TORUS);
+        Game hashLife = Game.createExtended("hl", 8, 8, Topology.TORUS);
+        Generation.createInitial(reference, reference.getBoard(), GLIDER);
+        Generation.createInitial(hashLife, hashLife.getBoard(), GLIDER);
+
+        assertFalse(HashLifeEngine.supports(hashLife.getBoard()));
+        assertThrows(IllegalArgumentException.class, () -> SparseBoard.fromBoard(hashLife.getBoard()));
+
+        new ExtendedGameOfLife().run(reference, 20);
+        new ExtendedGameOfLife(EngineMode.HASHLIFE).run(hashLife, 20);
+        assertSameHistory(reference, hashLife);
+    }
+
+    @Test
+    public void testWrappingBoardsNeedThreeColumnsAndRows() {
+        assertThrows(IllegalArgumentException.class, () -> Game.createExtended("thin", 2, 5, Topology.TORUS));
+        assertThrows(IllegalArgumentException.class, () -> Game.createExtended("flat", 5, 2, Topology.KLEIN_BOTTLE));
+        assertEquals(Topology.BOUNDED, Game.createExtended("small", 2, 2, Topology.BOUNDED).getBoard().getTopology());
+    }
+}